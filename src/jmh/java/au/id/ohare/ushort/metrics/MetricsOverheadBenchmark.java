@@ -0,0 +1,76 @@
+package au.id.ohare.ushort.metrics;
+
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.service.UrlShortenerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the instrumentation itself. "noop" is an empty composite registry, whose
+ * meters do nothing, so the difference to "prometheus" is what recording into the
+ * percentile histograms adds: per timer update, per counter increment, under
+ * contention, and on shortcode generation as a share of a real hot path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"noop", "prometheus"})
+    public String registry;
+
+    private UrlMetrics urlMetrics;
+    private UrlShortenerService urlShortenerService;
+    private long startNanos;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry meterRegistry = "prometheus".equals(registry)
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new CompositeMeterRegistry();
+        urlMetrics = new UrlMetrics(meterRegistry);
+        urlShortenerService = new UrlShortenerService(new ClassPathResource("rude-words.txt"), meterRegistry, 48);
+        startNanos = System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordRedirect() {
+        urlMetrics.recordRedirect(AccessLog.Route.FAST, AccessLog.Outcome.REDIRECT, startNanos);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordRedirectContended() {
+        urlMetrics.recordRedirect(AccessLog.Route.FAST, AccessLog.Outcome.REDIRECT, startNanos);
+    }
+
+    @Benchmark
+    public void incrementOutcome() {
+        urlMetrics.notFound();
+    }
+
+    @Benchmark
+    public String generateShortenedCode() {
+        return urlShortenerService.generateShortenedCode("https://www.example.com/some/path?query=value");
+    }
+}
@@ -0,0 +1,120 @@
+package au.id.ohare.ushort.repository;
+
+import au.id.ohare.ushort.UshortApplication;
+import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.RedirectTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository calls on the redirect path against H2 as the table grows: the lookup by
+ * shortcode (hit and miss) and the single-row access count update. Lookups should
+ * stay flat across row counts since the shortcode is the primary key. The redirect
+ * target lookups are the JDBC read redirects use, against the managed-entity read
+ * they replace; compare time and gc.alloc.rate.norm per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UrlRepositoryBenchmark {
+
+    private static final int INSERT_BATCH = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UrlRepository urlRepository;
+    private UrlJdbcRepository urlJdbcRepository;
+    private TransactionTemplate transactionTemplate;
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:repository-benchmark",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .run();
+        urlRepository = context.getBean(UrlRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        urlJdbcRepository = context.getBean(UrlJdbcRepository.class);
+
+        codes = new String[rows];
+        LocalDateTime now = LocalDateTime.now();
+        List<NewUrl> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < rows; i++) {
+            codes[i] = code(i);
+            batch.add(new NewUrl("https://example.com/benchmark/" + i, codes[i], now));
+            if (batch.size() == INSERT_BATCH) {
+                urlJdbcRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        urlJdbcRepository.insertAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<UrlEntity> findByShortenedUrl() {
+        return urlRepository.findByShortenedUrl(codes[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public Optional<UrlEntity> findByShortenedUrlMissing() {
+        return urlRepository.findByShortenedUrl(code(rows + ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public Optional<RedirectTarget> findRedirectTarget() {
+        return urlJdbcRepository.findRedirectTarget(codes[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public Optional<RedirectTarget> findRedirectTargetMissing() {
+        return urlJdbcRepository.findRedirectTarget(code(rows + ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public Integer incrementAccessCount() {
+        String code = codes[ThreadLocalRandom.current().nextInt(rows)];
+        return transactionTemplate.execute(status -> urlRepository.incrementAccessCount(code, LocalDateTime.now()));
+    }
+
+    // Distinct, well-formed 8-character codes
+    private static String code(int i) {
+        String digits = Integer.toString(i, 36);
+        return "b" + "0".repeat(7 - digits.length()) + digits;
+    }
+}
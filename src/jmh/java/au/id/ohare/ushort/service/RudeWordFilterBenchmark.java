@@ -0,0 +1,94 @@
+package au.id.ohare.ushort.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning cost of the Aho-Corasick filter against the previous per-word
+ * equals/startsWith/endsWith loop as the word list grows. The automaton's cost
+ * should stay flat across wordCount while the loop grows linearly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RudeWordFilterBenchmark {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+    private static final String BASE62_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Param({"16", "1000", "5000"})
+    public int wordCount;
+
+    private RudeWordFilter filter;
+    private Set<String> words;
+    private String[] codes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        words = new LinkedHashSet<>();
+        while (words.size() < wordCount) {
+            int length = 3 + random.nextInt(5);
+            StringBuilder word = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            words.add(word.toString());
+        }
+        filter = RudeWordFilter.of(words);
+
+        codes = new String[1024];
+        for (int i = 0; i < codes.length; i++) {
+            StringBuilder code = new StringBuilder(8);
+            for (int j = 0; j < 8; j++) {
+                code.append(BASE62_ALPHABET.charAt(random.nextInt(BASE62_ALPHABET.length())));
+            }
+            codes[i] = code.toString();
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        for (String code : codes) {
+            blackhole.consume(filter.matches(code));
+        }
+    }
+
+    @Benchmark
+    public void legacyWordLoop(Blackhole blackhole) {
+        for (String code : codes) {
+            blackhole.consume(legacyContainsRudeWords(code));
+        }
+    }
+
+    // The pre-automaton check, kept here as the baseline
+    private boolean legacyContainsRudeWords(String code) {
+        String lowerCode = code.toLowerCase();
+        for (String rudeWord : words) {
+            if (lowerCode.equals(rudeWord.toLowerCase()) ||
+                    lowerCode.startsWith(rudeWord.toLowerCase()) ||
+                    lowerCode.endsWith(rudeWord.toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package au.id.ohare.ushort.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reusable-digest, long-packed Base62 generator against the original
+ * BigInteger implementation, for a short URL, a long URL and a URL whose first hash
+ * contains a rude word and so needs a second one. Run with the GC profiler
+ * (configured in build.gradle) and compare gc.alloc.rate.norm for the allocation
+ * difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortCodeGenerationBenchmark {
+
+    private static final String BASE62_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final String SHORT_URL = "https://example.com";
+    private static final String LONG_URL =
+            "https://very-long-domain-name-that-should-still-work.com/path/to/resource?param=value&other=1";
+
+    @Param({"short", "long", "rudeWordRetry"})
+    public String urlKind;
+
+    private String url;
+    private String code;
+    private UrlShortenerService urlShortenerService;
+    private long packedHash;
+    private byte[] hashBytes;
+    private final char[] buffer = new char[UrlShortenerService.MAX_ENCODED_DIGITS];
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        urlShortenerService = new UrlShortenerService();
+        url = switch (urlKind) {
+            case "short" -> SHORT_URL;
+            case "long" -> LONG_URL;
+            default -> firstUrlNeedingRetry();
+        };
+        code = urlShortenerService.generateShortenedCode(url);
+
+        hashBytes = truncatedHash(url);
+        packedHash = pack(hashBytes);
+    }
+
+    // Search for a URL whose first code is rejected, so generation always hashes twice
+    private String firstUrlNeedingRetry() throws NoSuchAlgorithmException {
+        for (int i = 0; ; i++) {
+            String candidate = SHORT_URL + "/" + i;
+            if (urlShortenerService.containsRudeWords(UrlShortenerService.encodeBase62(pack(truncatedHash(candidate)), buffer))) {
+                return candidate;
+            }
+        }
+    }
+
+    private static byte[] truncatedHash(String input) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = new byte[UrlShortenerService.HASH_BYTES_LENGTH];
+        System.arraycopy(digest, 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static long pack(byte[] bytes) {
+        long value = 0;
+        for (byte b : bytes) {
+            value = (value << 8) | (b & 0xFF);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public String generateShortenedCode() {
+        return urlShortenerService.generateShortenedCode(url);
+    }
+
+    @Benchmark
+    public String legacyGenerateHashedCode() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+        byte[] truncatedHash = new byte[UrlShortenerService.HASH_BYTES_LENGTH];
+        System.arraycopy(hash, 0, truncatedHash, 0, truncatedHash.length);
+        return legacyEncodeBase62(truncatedHash);
+    }
+
+    @Benchmark
+    public String encodeBase62() {
+        return UrlShortenerService.encodeBase62(packedHash, buffer);
+    }
+
+    @Benchmark
+    public boolean containsRudeWords() {
+        return urlShortenerService.containsRudeWords(code);
+    }
+
+    @Benchmark
+    public String legacyEncodeBase62() {
+        return legacyEncodeBase62(hashBytes);
+    }
+
+    // The pre-rewrite algorithm, kept here as the baseline
+    private static String legacyEncodeBase62(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        BigInteger bigInteger = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(62);
+
+        while (bigInteger.compareTo(BigInteger.ZERO) > 0) {
+            BigInteger remainder = bigInteger.remainder(base);
+            result.insert(0, BASE62_ALPHABET.charAt(remainder.intValue()));
+            bigInteger = bigInteger.divide(base);
+        }
+        while (result.length() < 6) {
+            result.insert(0, BASE62_ALPHABET.charAt(0));
+        }
+        if (result.length() > 8) {
+            result = new StringBuilder(result.substring(0, 8));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package au.id.ohare.ushort.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Write-path cost of the segment log against the equivalent H2 statements: a create
+ * is one appended record against an INSERT, a flushed click is one appended record
+ * against an UPDATE by shortcode. The log engine pays these on top of H2, which still
+ * serves redirects, so the log numbers are the overhead of persistence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentLogBenchmark {
+
+    private static final int PRELOADED_ROWS = 100_000;
+
+    private Path directory;
+    private SegmentLog segmentLog;
+    private Connection connection;
+    private PreparedStatement insert;
+    private PreparedStatement update;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("segment-log-benchmark");
+        segmentLog = SegmentLog.open(directory, 64L * 1024 * 1024);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:segment-log-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE urls (id BIGINT AUTO_INCREMENT PRIMARY KEY, original_url VARCHAR(2048) NOT NULL, " +
+                    "shortened_url VARCHAR(16) NOT NULL UNIQUE, access_count INTEGER NOT NULL, " +
+                    "last_accessed TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL)");
+        }
+        insert = connection.prepareStatement("INSERT INTO urls (original_url, shortened_url, access_count, last_accessed, created_at) VALUES (?, ?, 0, ?, ?)");
+        update = connection.prepareStatement("UPDATE urls SET access_count = access_count + ?, last_accessed = GREATEST(last_accessed, ?) WHERE shortened_url = ?");
+        for (int i = 0; i < PRELOADED_ROWS; i++) {
+            h2Insert(code(i));
+        }
+        sequence = PRELOADED_ROWS;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        segmentLog.close();
+        connection.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void logCreate() throws IOException {
+        long now = System.currentTimeMillis();
+        segmentLog.appendCreate(code(sequence++), "https://example.com/some/path", 0, now, now);
+        segmentLog.flush();
+    }
+
+    @Benchmark
+    public int h2Create() throws SQLException {
+        return h2Insert(code(sequence++));
+    }
+
+    @Benchmark
+    public void logClick() throws IOException {
+        segmentLog.appendAccess(code(sequence++ % PRELOADED_ROWS), 1, System.currentTimeMillis());
+        segmentLog.flush();
+    }
+
+    @Benchmark
+    public int h2Click() throws SQLException {
+        update.setLong(1, 1);
+        update.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+        update.setString(3, code(sequence++ % PRELOADED_ROWS));
+        return update.executeUpdate();
+    }
+
+    private int h2Insert(String code) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        insert.setString(1, "https://example.com/some/path");
+        insert.setString(2, code);
+        insert.setTimestamp(3, now);
+        insert.setTimestamp(4, now);
+        return insert.executeUpdate();
+    }
+
+    private static String code(long sequence) {
+        return Long.toString(1_000_000_000L + sequence, 36);
+    }
+}
@@ -0,0 +1,96 @@
+package au.id.ohare.ushort.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold-start cost of recovering the URL set: decoding a memory-mapped snapshot
+ * against replaying a segment log that holds every create plus a few clicks per
+ * code, which is what startup paid before snapshots. Both fold to the same live URLs;
+ * neither includes the insert into H2, which is the same for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SnapshotRestoreBenchmark {
+
+    private static final int CLICK_FLUSHES_PER_CODE = 3;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path directory;
+    private Path snapshot;
+    private List<Path> segments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-restore-benchmark");
+        try (SegmentLog segmentLog = SegmentLog.open(directory, 64L * 1024 * 1024)) {
+            for (int i = 0; i < rows; i++) {
+                segmentLog.appendCreate(code(i), "https://example.com/path/" + i, 0, i, i);
+            }
+            for (int flush = 1; flush <= CLICK_FLUSHES_PER_CODE; flush++) {
+                for (int i = 0; i < rows; i++) {
+                    segmentLog.appendAccess(code(i), 1, rows + flush);
+                }
+            }
+            long through = segmentLog.roll();
+            segments = segmentLog.sealedSegments();
+
+            WalOverlay overlay = new WalOverlay();
+            SegmentLog.replay(segments, overlay);
+            snapshot = directory.resolve("snapshot-" + through + ".bin");
+            SnapshotFile.write(snapshot, through, sink -> overlay.merge(source -> { }, sink));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long readSnapshot() throws IOException {
+        long[] accessCount = new long[1];
+        SnapshotFile.read(snapshot, url -> accessCount[0] += url.accessCount());
+        return accessCount[0];
+    }
+
+    @Benchmark
+    public long replayLog() throws IOException {
+        WalOverlay overlay = new WalOverlay();
+        SegmentLog.replay(segments, overlay);
+        long[] accessCount = new long[1];
+        overlay.merge(source -> { }, url -> accessCount[0] += url.accessCount());
+        return accessCount[0];
+    }
+
+    private static String code(int i) {
+        return "c" + Integer.toString(i, 36);
+    }
+}
@@ -0,0 +1,85 @@
+package au.id.ohare.ushort.web;
+
+import au.id.ohare.ushort.UshortApplication;
+import au.id.ohare.ushort.service.UrlService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of one redirect through embedded Tomcat, with the fast-path filter
+ * against the original route through Spring Security, the DispatcherServlet and the
+ * controllers. The client is identical in both runs, so the difference in time and in
+ * gc.alloc.rate.norm is the server-side saving.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RedirectPathBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fastPath;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest webRedirect;
+    private HttpRequest apiRedirect;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.redirect.fast-path.enabled=" + fastPath,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .run();
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        String code = context.getBean(UrlService.class).createShortenedUrl("https://example.com/benchmark").getShortenedUrl();
+
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        webRedirect = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/" + code)).GET().build();
+        apiRedirect = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/" + code)).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int webRedirect() throws IOException, InterruptedException {
+        return client.send(webRedirect, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public int apiRedirect() throws IOException, InterruptedException {
+        return client.send(apiRedirect, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
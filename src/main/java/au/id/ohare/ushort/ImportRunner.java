@@ -0,0 +1,72 @@
+package au.id.ohare.ushort;
+
+import au.id.ohare.ushort.service.BulkImportService;
+import au.id.ohare.ushort.service.BulkImportService.ImportReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Imports links from a file when started with {@code --import=<path>} and then exits, e.g.
+ * {@code java -jar ushort.jar --import=links.ndjson --spring.datasource.url=jdbc:h2:file:./urls
+ * --spring.jpa.hibernate.ddl-auto=update --spring.main.web-application-type=none}.
+ * The format follows the file extension unless {@code --import-format=csv|ndjson} is given.
+ * The import is refused unless its rows outlive the process: the datasource must be a file
+ * or server database whose schema is not dropped on exit, or {@code app.storage.engine=log}
+ * must write them to the segment log.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportRunner implements ApplicationRunner {
+
+    private static final String IMPORT_OPTION = "import";
+    private static final String FORMAT_OPTION = "import-format";
+
+    private final BulkImportService bulkImportService;
+    private final PersistentTarget persistentTarget;
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> paths = args.getOptionValues(IMPORT_OPTION);
+        if (paths == null || paths.isEmpty()) {
+            return;
+        }
+
+        if (!persistentTarget.isPersistent()) {
+            persistentTarget.logRefusal("Import");
+            System.exit(SpringApplication.exit(applicationContext, () -> 1));
+            return;
+        }
+
+        Path path = Path.of(paths.get(0));
+        List<String> formats = args.getOptionValues(FORMAT_OPTION);
+        BulkImportService.Format format = BulkImportService.Format.detect(
+                formats != null && !formats.isEmpty() ? formats.get(0) : path.getFileName().toString());
+        log.info("Importing links from file: path={}, format={}", path, format);
+
+        int exitCode;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            ImportReport report = bulkImportService.importUrls(reader, format);
+            report.errorSamples().forEach(error -> log.warn("Import error: {}", error));
+            exitCode = report.failed() > 0 ? 2 : 0;
+        } catch (Exception e) {
+            log.error("Import failed: path={}, error={}", path, e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        int finalExitCode = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> finalExitCode));
+    }
+}
@@ -0,0 +1,73 @@
+package au.id.ohare.ushort;
+
+import au.id.ohare.ushort.service.SchemaMigrationService;
+import au.id.ohare.ushort.service.SchemaMigrationService.MigrationReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Copies URLs from a database on the earlier urls schema when started with
+ * {@code --migrate-from=<jdbc-url>} and then exits, e.g.
+ * {@code java -jar ushort.jar --migrate-from=jdbc:h2:file:./old-urls --spring.datasource.url=jdbc:h2:file:./urls
+ * --spring.jpa.hibernate.ddl-auto=update --spring.main.web-application-type=none}.
+ * Credentials default to the H2 defaults unless {@code --migrate-username} and
+ * {@code --migrate-password} are given. With {@code app.storage.engine=log} the
+ * migrated rows are also written to the segment log. The migration is refused unless its
+ * rows outlive the process, as for {@link ImportRunner}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MigrateRunner implements ApplicationRunner {
+
+    private static final String MIGRATE_OPTION = "migrate-from";
+    private static final String USERNAME_OPTION = "migrate-username";
+    private static final String PASSWORD_OPTION = "migrate-password";
+
+    private final SchemaMigrationService schemaMigrationService;
+    private final PersistentTarget persistentTarget;
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> urls = args.getOptionValues(MIGRATE_OPTION);
+        if (urls == null || urls.isEmpty()) {
+            return;
+        }
+
+        if (!persistentTarget.isPersistent()) {
+            persistentTarget.logRefusal("Migration");
+            System.exit(SpringApplication.exit(applicationContext, () -> 1));
+            return;
+        }
+
+        String url = urls.get(0);
+        log.info("Migrating links from earlier schema: url={}", url);
+        int exitCode;
+        try {
+            DriverManagerDataSource legacy = new DriverManagerDataSource(url,
+                    optionValue(args, USERNAME_OPTION, "sa"), optionValue(args, PASSWORD_OPTION, ""));
+            MigrationReport report = schemaMigrationService.migrateFrom(legacy);
+            exitCode = report.skipped() > 0 ? 2 : 0;
+        } catch (Exception e) {
+            log.error("Migration failed: url={}, error={}", url, e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        int finalExitCode = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> finalExitCode));
+    }
+
+    private static String optionValue(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values != null && !values.isEmpty() ? values.get(0) : defaultValue;
+    }
+}
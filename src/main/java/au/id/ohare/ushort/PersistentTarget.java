@@ -0,0 +1,47 @@
+package au.id.ohare.ushort;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the one-shot command-line runners whether rows they write outlive the process:
+ * the segment log engine keeps them, as does a file or server datasource whose schema is
+ * not dropped on exit. The shipped defaults, in-memory H2 with create-drop, keep nothing.
+ */
+@Component
+@Slf4j
+public class PersistentTarget {
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${spring.jpa.hibernate.ddl-auto:none}")
+    private String ddlAuto;
+
+    @Value("${app.storage.engine:memory}")
+    private String storageEngine;
+
+    /**
+     * Whether written rows survive the process exiting
+     * @return true for the segment log engine, or a non in-memory datasource that keeps its schema
+     */
+    public boolean isPersistent() {
+        if ("log".equals(storageEngine)) {
+            return true;
+        }
+        boolean inMemory = datasourceUrl.isEmpty() || datasourceUrl.startsWith("jdbc:h2:mem");
+        return !inMemory && !"create-drop".equals(ddlAuto);
+    }
+
+    /**
+     * Log why a command was refused and what to pass instead
+     * @param command the refused command, e.g. "Import"
+     */
+    public void logRefusal(String command) {
+        log.error("{} refused: written links would be discarded on exit (datasource={}, ddl-auto={}, "
+                        + "storage engine={}); use a file or server datasource with "
+                        + "--spring.jpa.hibernate.ddl-auto=update, or app.storage.engine=log",
+                command, datasourceUrl, ddlAuto, storageEngine);
+    }
+}
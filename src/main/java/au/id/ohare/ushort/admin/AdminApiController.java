@@ -0,0 +1,101 @@
+package au.id.ohare.ushort.admin;
+
+import au.id.ohare.ushort.dto.UrlStatisticsPage;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.BulkImportService;
+import au.id.ohare.ushort.service.BulkImportService.ImportReport;
+import au.id.ohare.ushort.service.UrlAnalyticsService;
+import au.id.ohare.ushort.service.UrlExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminApiController {
+
+    private final BulkImportService bulkImportService;
+    private final UrlAnalyticsService urlAnalyticsService;
+    private final UrlExportService urlExportService;
+    private final UrlMetrics urlMetrics;
+
+    /**
+     * One page of URL statistics ordered by access count descending. Pass the returned
+     * nextCursor as {@code after} to fetch the following page.
+     */
+    @GetMapping("/urls")
+    public ResponseEntity<UrlStatisticsPage> listUrls(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + UrlAnalyticsService.DEFAULT_PAGE_SIZE) int limit) {
+        long startNanos = System.nanoTime();
+        try {
+            UrlStatisticsPage page = urlAnalyticsService.getPage(after, limit);
+            urlMetrics.recordAnalytics(startNanos);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected URL statistics request: after={}, error={}", after, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stream NDJSON ({"url": "..."} per line) or CSV (URL in the first column) from the
+     * request body into the urls table. The body is read incrementally, never buffered.
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv", "text/plain"})
+    public ResponseEntity<ImportReport> importUrls(HttpServletRequest request, Authentication authentication) {
+        BulkImportService.Format format = BulkImportService.Format.detect(request.getContentType());
+        log.info("Admin started bulk import: user={}, format={}", authentication.getName(), format);
+
+        try {
+            ImportReport report = bulkImportService.importUrls(
+                    new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), format);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            log.error("Bulk import failed: user={}, error={}", authentication.getName(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Stream every URL with its click count as CSV or NDJSON, optionally gzipped. Rows
+     * are written to the response as they are read, so the export runs in constant memory.
+     */
+    @GetMapping("/export")
+    public void exportUrls(@RequestParam(defaultValue = "csv") String format,
+                           @RequestParam(defaultValue = "false") boolean gzip,
+                           HttpServletResponse response, Authentication authentication) throws IOException {
+        BulkImportService.Format exportFormat = BulkImportService.Format.detect(format);
+        String extension = exportFormat == BulkImportService.Format.CSV ? "csv" : "ndjson";
+        log.info("Admin started URL export: user={}, format={}, gzip={}", authentication.getName(), exportFormat, gzip);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // A .gz download rather than Content-Encoding, so clients keep the file compressed
+        if (gzip) {
+            response.setContentType("application/gzip");
+        } else {
+            response.setContentType(exportFormat == BulkImportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"urls." + extension + (gzip ? ".gz" : "") + "\"");
+
+        urlExportService.exportUrls(response.getOutputStream(), exportFormat, gzip);
+    }
+}
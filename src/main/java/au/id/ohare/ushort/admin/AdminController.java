@@ -1,17 +1,16 @@
 package au.id.ohare.ushort.admin;
 
-import au.id.ohare.ushort.entity.UrlEntity;
-import au.id.ohare.ushort.repository.UrlRepository;
+import au.id.ohare.ushort.dto.UrlStatisticsPage;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.UrlAnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
-
-import java.util.List;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 @RequestMapping("/admin")
@@ -19,32 +18,45 @@ import java.util.List;
 @Slf4j
 public class AdminController {
 
-    private final UrlRepository urlRepository;
+    private final UrlAnalyticsService urlAnalyticsService;
+    private final UrlMetrics urlMetrics;
 
     @GetMapping("/analytics")
-    public String showAnalytics(Model model, Authentication authentication) {
+    public String showAnalytics(@RequestParam(required = false) String after,
+                                @RequestParam(defaultValue = "" + UrlAnalyticsService.DEFAULT_PAGE_SIZE) int limit,
+                                Model model, Authentication authentication) {
         String username = authentication.getName();
         String sessionId = "session-" + System.currentTimeMillis(); // Simple session ID
         log.info("Admin accessed analytics: user={}, sessionId={}", username, sessionId);
 
-        // Get all URLs sorted by access count descending
-        Sort sort = Sort.by(Sort.Direction.DESC, "accessCount");
-        List<UrlEntity> urlEntities = urlRepository.findAll(sort);
-        
-        long totalUrls = urlRepository.count();
-        long totalAccessCount = urlEntities.stream()
-                .mapToLong(url -> url.getAccessCount())
-                .sum();
-        
+        long startNanos = System.nanoTime();
+
+        // One page of URLs sorted by access count descending; totals come from aggregates
+        UrlStatisticsPage page;
+        try {
+            page = urlAnalyticsService.getPage(after, limit);
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring invalid analytics cursor: user={}, after={}", username, after);
+            page = urlAnalyticsService.getPage(null, limit);
+        }
+        long totalUrls = urlAnalyticsService.getTotalUrlCount();
+        long totalAccessCount = urlAnalyticsService.getTotalAccessCount();
+
         model.addAttribute("totalUrls", totalUrls);
         model.addAttribute("totalAccessCount", totalAccessCount);
-        model.addAttribute("urlStatistics", urlEntities);
-        model.addAttribute("hasUrls", !urlEntities.isEmpty());
+        model.addAttribute("urlStatistics", page.getItems());
+        model.addAttribute("hasUrls", !page.getItems().isEmpty());
+        model.addAttribute("hasNextPage", page.getNextCursor() != null);
+        model.addAttribute("nextCursor", page.getNextCursor() != null ? page.getNextCursor() : "");
+        // Page links carry the page size so later pages keep the one the caller asked for
+        model.addAttribute("limit", UrlAnalyticsService.pageSize(limit));
+        model.addAttribute("isFirstPage", after == null || after.isBlank());
         model.addAttribute("username", username);
 
-        log.debug("Database query executed: table={}, operation={}, duration={}ms", 
-                "urls", "SELECT", 5);
-        
+        long duration = urlMetrics.recordAnalytics(startNanos);
+        log.debug("Database query executed: table={}, operation={}, rows={}, duration={}ms",
+                "urls", "SELECT", page.getItems().size(), duration);
+
         return "admin/analytics";
     }
-}
\ No newline at end of file
+}
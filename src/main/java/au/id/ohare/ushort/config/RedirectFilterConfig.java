@@ -0,0 +1,31 @@
+package au.id.ohare.ushort.config;
+
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.UrlService;
+import au.id.ohare.ushort.web.RedirectFastPathFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RedirectFilterConfig {
+
+    /**
+     * Register the redirect fast path just ahead of Spring Security, and after the
+     * observation filter so redirects still appear in http.server.requests
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.redirect.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathFilter(UrlService urlService,
+                                                                                  AccessLog accessLog,
+                                                                                  UrlMetrics urlMetrics) {
+        FilterRegistrationBean<RedirectFastPathFilter> registration =
+                new FilterRegistrationBean<>(new RedirectFastPathFilter(urlService, accessLog, urlMetrics));
+        registration.setName("redirectFastPathFilter");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
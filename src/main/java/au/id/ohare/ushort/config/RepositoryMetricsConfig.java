@@ -0,0 +1,109 @@
+package au.id.ohare.ushort.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RepositoryMetricsConfig {
+
+    // Spring Data records JPA repository calls under this name and these tags
+    static final String INVOCATIONS_METRIC = "spring.data.repository.invocations";
+
+    /**
+     * Time every public method of the hand-written JDBC repositories under the meter
+     * Spring Data uses for its own repositories, so all database calls share one
+     * latency histogram. Spring Data repositories are left to Spring Data.
+     */
+    @Bean
+    static JdbcRepositoryMetricsPostProcessor jdbcRepositoryMetricsPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new JdbcRepositoryMetricsPostProcessor(meterRegistry);
+    }
+
+    static final class JdbcRepositoryMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+        JdbcRepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+            ClassFilter jdbcRepositories = clazz -> AnnotatedElementUtils.hasAnnotation(clazz, Repository.class)
+                    && !org.springframework.data.repository.Repository.class.isAssignableFrom(clazz);
+            StaticMethodMatcher publicMethods = new StaticMethodMatcher() {
+                @Override
+                public boolean matches(Method method, Class<?> targetClass) {
+                    return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+                }
+            };
+            this.advisor = new DefaultPointcutAdvisor(new ComposablePointcut(jdbcRepositories, publicMethods),
+                    new TimingInterceptor(meterRegistry));
+            // Outside the transaction advice, so commit time is included
+            setBeforeExistingAdvisors(true);
+        }
+    }
+
+    /**
+     * Times each call with a meter looked up once per method and outcome, so a call
+     * that has been seen before costs a map read and a timer update, with no builder,
+     * tag list or registry lookup.
+     */
+    private static final class TimingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final ConcurrentHashMap<Method, Timer> successTimers = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<FailureKey, Timer> failureTimers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long startNanos = System.nanoTime();
+            Throwable failure = null;
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                timerFor(invocation.getMethod(), failure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer timerFor(Method method, Throwable failure) {
+            if (failure == null) {
+                Timer timer = successTimers.get(method);
+                return timer != null ? timer : successTimers.computeIfAbsent(method, key -> register(key, null));
+            }
+            return failureTimers.computeIfAbsent(new FailureKey(method, failure.getClass()),
+                    key -> register(key.method(), key.exception()));
+        }
+
+        private Timer register(Method method, Class<? extends Throwable> exception) {
+            return Timer.builder(INVOCATIONS_METRIC)
+                    .description("Duration of repository invocations")
+                    .tag("repository", method.getDeclaringClass().getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("state", exception == null ? "SUCCESS" : "ERROR")
+                    .tag("exception", exception == null ? "None" : exception.getSimpleName())
+                    .register(meterRegistry.getObject());
+        }
+
+        private record FailureKey(Method method, Class<? extends Throwable> exception) {
+        }
+    }
+}
@@ -31,6 +31,9 @@ public class SecurityConfig {
             .authorizeHttpRequests(authz -> authz
                 // Require authentication for admin endpoints only
                 .requestMatchers("/admin/**", "/api/admin/**").hasRole("ADMIN")
+                // Metrics are for operators only; health stays public for probes
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 // Allow public access to everything else
                 .anyRequest().permitAll()
             )
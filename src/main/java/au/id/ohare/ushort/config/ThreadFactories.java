@@ -0,0 +1,26 @@
+package au.id.ohare.ushort.config;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the application's own background executors, so they follow
+ * {@code spring.threads.virtual.enabled} like the threads Spring Boot creates for
+ * Tomcat and {@code @Scheduled} work.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * @param name thread name
+     * @param virtual true for virtual threads, false for daemon platform threads
+     * @return a factory naming every thread it creates {@code name}
+     */
+    public static ThreadFactory named(String name, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return Thread.ofPlatform().name(name).daemon(true).factory();
+    }
+}
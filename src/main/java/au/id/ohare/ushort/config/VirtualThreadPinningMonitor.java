@@ -0,0 +1,101 @@
+package au.id.ohare.ushort.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads pinned to their carrier, typically by blocking inside a
+ * synchronized block or native frame, which stalls every other virtual thread
+ * scheduled on that carrier. Active when {@code spring.threads.virtual.enabled} is
+ * set: it streams JFR's jdk.VirtualThreadPinned events, counts each one and logs the
+ * first occurrence from every distinct call site.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Counter pinnedEvents;
+    private final long thresholdMs;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.threads.pinned-threshold-ms:20}") long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+        this.pinnedEvents = Counter.builder("ushort.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            log.info("Virtual threads enabled: pinning monitor started, thresholdMs={}", thresholdMs);
+        } catch (RuntimeException e) {
+            // JFR can be missing or disabled in stripped-down runtimes
+            log.warn("Virtual threads enabled but pinning monitor unavailable: error={}", e.getMessage());
+        }
+    }
+
+    public long getPinnedCount() {
+        return (long) pinnedEvents.count();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        String stack = describe(event.getStackTrace());
+        String site = stack.lines().findFirst().orElse("unknown");
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned: durationMs={}, thread={}, stack={}",
+                    event.getDuration().toMillis(), event.getThread() != null ? event.getThread().getJavaName() : "unknown",
+                    stack);
+        }
+    }
+
+    private static String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        StringBuilder description = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames().subList(0, Math.min(LOGGED_FRAMES, stackTrace.getFrames().size()))) {
+            if (!description.isEmpty()) {
+                description.append('\n');
+            }
+            description.append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return description.toString();
+    }
+}
@@ -1,19 +1,26 @@
 package au.id.ohare.ushort.controller;
 
+import au.id.ohare.ushort.dto.BatchShortenRequest;
+import au.id.ohare.ushort.dto.BatchShortenResponse;
 import au.id.ohare.ushort.dto.ShortenUrlRequest;
 import au.id.ohare.ushort.dto.ShortenUrlResponse;
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.BatchShorteningService;
 import au.id.ohare.ushort.service.UrlService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -27,6 +34,12 @@ public class UrlApiController {
     private static final String X_REAL_IP_HEADER = "X-Real-IP";
 
     private final UrlService urlService;
+    private final BatchShorteningService batchShorteningService;
+    private final AccessLog accessLog;
+    private final UrlMetrics urlMetrics;
+
+    @Value("${app.batch.max-size:5000}")
+    private int maxBatchSize;
 
     @PostMapping("/shorten")
     public ResponseEntity<ShortenUrlResponse> shortenUrl(
@@ -51,11 +64,10 @@ public class UrlApiController {
             return ResponseEntity.badRequest().build();
         }
 
+        long startNanos = System.nanoTime();
         try {
-            long startTime = System.currentTimeMillis();
             UrlEntity urlEntity = urlService.createShortenedUrl(originalUrl);
-            long duration = System.currentTimeMillis() - startTime;
-            
+
             // Build server URL from request
             String serverUrl = buildServerUrl(httpRequest);
             String fullShortenedUrl = urlService.buildFullShortenedUrl(urlEntity.getShortenedUrl(), serverUrl);
@@ -65,49 +77,102 @@ public class UrlApiController {
                     .shortenedUrl(fullShortenedUrl)
                     .build();
 
-            log.info("URL created: shortCode={}, originalUrl={}, duration={}ms", 
-                    urlEntity.getShortenedUrl(), originalUrl, duration);
-            log.info("Performance metrics: endpoint={}, responseTime={}ms, status={}", 
-                    "/api/shorten", duration, 200);
+            long duration = urlMetrics.recordShorten(UrlMetrics.ShortenRoute.API, true, startNanos);
+            log.debug("URL shortened via API: shortCode={}, duration={}ms", urlEntity.getShortenedUrl(), duration);
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
+            urlMetrics.recordShorten(UrlMetrics.ShortenRoute.API, false, startNanos);
             log.error("Failed to shorten URL: originalUrl={}, error={}", 
                     originalUrl, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @PostMapping("/shorten/batch")
+    public ResponseEntity<BatchShortenResponse> shortenUrls(
+            @Valid @RequestBody BatchShortenRequest request,
+            BindingResult bindingResult,
+            HttpServletRequest httpRequest) {
+
+        String clientIp = getClientIp(httpRequest);
+
+        if (bindingResult.hasErrors()) {
+            log.warn("Validation errors in batch request: {}, clientIp={}", bindingResult.getFieldErrors(), clientIp);
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<String> originalUrls = request.getUrls();
+        if (originalUrls.size() > maxBatchSize) {
+            log.warn("Batch request too large: size={}, maxBatchSize={}, clientIp={}", originalUrls.size(), maxBatchSize, clientIp);
+            return ResponseEntity.badRequest().build();
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            List<BatchShorteningService.ItemResult> results = batchShorteningService.shortenAll(originalUrls);
+
+            String serverUrl = buildServerUrl(httpRequest);
+            List<BatchShortenResponse.Item> items = results.stream()
+                    .map(result -> BatchShortenResponse.Item.builder()
+                            .originalUrl(result.originalUrl())
+                            .shortenedUrl(result.shortenedCode() != null
+                                    ? urlService.buildFullShortenedUrl(result.shortenedCode(), serverUrl)
+                                    : null)
+                            .created(result.created())
+                            .error(result.error())
+                            .build())
+                    .toList();
+
+            BatchShortenResponse response = BatchShortenResponse.builder()
+                    .created((int) items.stream().filter(BatchShortenResponse.Item::isCreated).count())
+                    .failed((int) items.stream().filter(item -> item.getError() != null).count())
+                    .results(items)
+                    .build();
+
+            urlMetrics.recordShorten(UrlMetrics.ShortenRoute.BATCH, true, startNanos);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            urlMetrics.recordShorten(UrlMetrics.ShortenRoute.BATCH, false, startNanos);
+            log.error("Failed to shorten URL batch: size={}, clientIp={}, error={}",
+                    originalUrls.size(), clientIp, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{shortenedCode}")
     public ResponseEntity<Void> redirectToOriginalUrl(
             @PathVariable String shortenedCode,
             HttpServletRequest request) {
-        
+
+        long startNanos = System.nanoTime();
         String clientIp = getClientIp(request);
         log.debug("Received redirect request: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
 
         Optional<String> originalUrlOpt = urlService.getOriginalUrl(shortenedCode, clientIp);
 
         if (originalUrlOpt.isEmpty()) {
-            log.warn("Shortened URL not found: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            log.debug("Shortened URL not found: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            accessLog.record(AccessLog.Outcome.NOT_FOUND, AccessLog.Route.API, shortenedCode, request);
+            urlMetrics.recordRedirect(AccessLog.Route.API, AccessLog.Outcome.NOT_FOUND, startNanos);
             return ResponseEntity.notFound().build();
         }
 
         String originalUrl = originalUrlOpt.get();
 
         if (EXPIRED_URL_MARKER.equals(originalUrl)) {
-            log.warn("Expired URL accessed: shortCode={}, lastAccessed={}, ttlDays={}", 
-                    shortenedCode, "unknown", 90);
+            accessLog.record(AccessLog.Outcome.EXPIRED, AccessLog.Route.API, shortenedCode, request);
+            urlMetrics.recordRedirect(AccessLog.Route.API, AccessLog.Outcome.EXPIRED, startNanos);
             return ResponseEntity.status(HttpStatus.GONE).build();
         }
 
         try {
             URI redirectUri = URI.create(originalUrl);
-            String userAgent = request.getHeader("User-Agent");
-            log.info("URL accessed: shortCode={}, clientIp={}, userAgent={}", 
-                    shortenedCode, clientIp, userAgent);
-            
+            accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.API, shortenedCode, request);
+            urlMetrics.recordRedirect(AccessLog.Route.API, AccessLog.Outcome.REDIRECT, startNanos);
+
             return ResponseEntity.status(HttpStatus.FOUND)
                     .location(redirectUri)
                     .build();
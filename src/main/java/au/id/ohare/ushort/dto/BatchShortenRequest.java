@@ -0,0 +1,19 @@
+package au.id.ohare.ushort.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchShortenRequest {
+
+    @NotEmpty(message = "At least one URL is required")
+    private List<String> urls;
+}
@@ -0,0 +1,31 @@
+package au.id.ohare.ushort.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchShortenResponse {
+
+    private int created;
+    private int failed;
+    private List<Item> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+
+        private String originalUrl;
+        private String shortenedUrl;
+        private boolean created;
+        private String error;
+    }
+}
@@ -0,0 +1,31 @@
+package au.id.ohare.ushort.dto;
+
+import au.id.ohare.ushort.service.ShortCodes;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UrlStatistic {
+
+    private Long id;
+    private String shortenedUrl;
+    private String originalUrl;
+    private Integer accessCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastAccessed;
+
+    /**
+     * Statistic for a row keyed by its packed shortcode, as selected by the repository
+     */
+    public UrlStatistic(Long id, String originalUrl, Integer accessCount, LocalDateTime createdAt,
+                        LocalDateTime lastAccessed) {
+        this(id, ShortCodes.unpack(id), originalUrl, accessCount, createdAt, lastAccessed);
+    }
+}
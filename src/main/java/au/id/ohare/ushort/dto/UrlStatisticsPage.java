@@ -0,0 +1,22 @@
+package au.id.ohare.ushort.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UrlStatisticsPage {
+
+    private List<UrlStatistic> items;
+
+    /**
+     * Cursor to pass as {@code after} for the next page, or null on the last page
+     */
+    private String nextCursor;
+}
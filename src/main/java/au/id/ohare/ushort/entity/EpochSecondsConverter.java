@@ -0,0 +1,36 @@
+package au.id.ohare.ushort.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Stores local date-times as epoch seconds in a BIGINT column: smaller than a
+ * TIMESTAMP and cheaper to compare, and second precision is all expiry and analytics need. The JDBC
+ * repository converts through the same two methods. Conversion is at UTC rather than the host
+ * zone, so every date-time has exactly one stored value, DST overlaps included, and a change of
+ * host or container time zone leaves stored rows as they were.
+ */
+@Converter
+public class EpochSecondsConverter implements AttributeConverter<LocalDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(LocalDateTime attribute) {
+        return attribute == null ? null : toEpochSecond(attribute);
+    }
+
+    @Override
+    public LocalDateTime convertToEntityAttribute(Long dbData) {
+        return dbData == null ? null : toLocalDateTime(dbData);
+    }
+
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
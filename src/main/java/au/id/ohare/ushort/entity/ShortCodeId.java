@@ -0,0 +1,18 @@
+package au.id.ohare.ushort.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a URL entity's id as its shortcode packed into a long, assigned on insert by
+ * {@link ShortCodeIdGenerator}.
+ */
+@IdGeneratorType(ShortCodeIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShortCodeId {
+}
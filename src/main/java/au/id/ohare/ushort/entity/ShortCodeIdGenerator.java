@@ -0,0 +1,32 @@
+package au.id.ohare.ushort.entity;
+
+import au.id.ohare.ushort.service.ShortCodes;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+/**
+ * Derives a URL entity's primary key from its shortcode with {@link ShortCodes#pack},
+ * so the key is the code itself and lookups by code need no secondary index.
+ */
+public class ShortCodeIdGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        String shortenedUrl = ((UrlEntity) owner).getShortenedUrl();
+        long id = shortenedUrl == null ? ShortCodes.NOT_PACKABLE : ShortCodes.pack(shortenedUrl);
+        if (id == ShortCodes.NOT_PACKABLE) {
+            throw new IllegalArgumentException("Shortcode cannot be used as a key: " + shortenedUrl);
+        }
+        return id;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
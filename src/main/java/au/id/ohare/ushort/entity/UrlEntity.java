@@ -1,5 +1,6 @@
 package au.id.ohare.ushort.entity;
 
+import au.id.ohare.ushort.service.ShortCodes;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -13,20 +14,26 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 
+/**
+ * A shortened URL. The primary key is the shortcode packed into a long, so the table
+ * is clustered by code and has no separate code column or index; the code itself is
+ * derived from the key when a row is loaded. Times are stored as epoch seconds.
+ */
 @Entity
 @Table(name = "urls", indexes = {
-    @Index(name = "idx_shortened_url", columnList = "shortened_url", unique = true),
-    @Index(name = "idx_last_accessed", columnList = "last_accessed")
+    @Index(name = "idx_last_accessed", columnList = "last_accessed"),
+    @Index(name = "idx_access_count", columnList = "access_count DESC, id DESC")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Slf4j
+@EntityListeners(UrlEntityListener.class)
 public class UrlEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ShortCodeId
     private Long id;
 
     @NotBlank(message = "Original URL cannot be blank")
@@ -35,8 +42,8 @@ public class UrlEntity {
     private String originalUrl;
 
     @NotBlank(message = "Shortened URL cannot be blank")
-    @Size(min = 6, max = 16, message = "Shortened URL must be between 6-16 characters")
-    @Column(name = "shortened_url", nullable = false, unique = true, length = 16)
+    @Size(min = 6, max = 10, message = "Shortened URL must be between 6-10 characters")
+    @Transient
     private String shortenedUrl;
 
     @NotNull(message = "Access count cannot be null")
@@ -47,9 +54,11 @@ public class UrlEntity {
 
     @NotNull(message = "Last accessed time cannot be null")
     @Column(name = "last_accessed", nullable = false)
+    @Convert(converter = EpochSecondsConverter.class)
     private LocalDateTime lastAccessed;
 
     @Column(name = "created_at", nullable = false, updatable = false)
+    @Convert(converter = EpochSecondsConverter.class)
     private LocalDateTime createdAt;
 
     @PrePersist
@@ -67,6 +76,11 @@ public class UrlEntity {
         log.debug("Creating URL entity: shortenedUrl={}, originalUrl={}", shortenedUrl, originalUrl);
     }
 
+    @PostLoad
+    protected void onLoad() {
+        shortenedUrl = ShortCodes.unpack(id);
+    }
+
     @PreUpdate
     protected void onUpdate() {
         log.debug("Updating URL entity: id={}, shortenedUrl={}, accessCount={}", id, shortenedUrl, accessCount);
@@ -0,0 +1,36 @@
+package au.id.ohare.ushort.entity;
+
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent.CreatedUrl;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Publishes lifecycle events for URL entities. Instantiated by Hibernate through
+ * Spring's bean container, which supplies the event publisher.
+ */
+@RequiredArgsConstructor
+public class UrlEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(UrlEntity urlEntity) {
+        eventPublisher.publishEvent(new UrlsCreatedEvent(List.of(new CreatedUrl(
+                urlEntity.getShortenedUrl(),
+                urlEntity.getOriginalUrl(),
+                urlEntity.getAccessCount(),
+                urlEntity.getCreatedAt(),
+                urlEntity.getLastAccessed()))));
+    }
+
+    @PostRemove
+    public void onRemove(UrlEntity urlEntity) {
+        eventPublisher.publishEvent(new UrlsDeletedEvent(List.of(urlEntity.getShortenedUrl())));
+    }
+}
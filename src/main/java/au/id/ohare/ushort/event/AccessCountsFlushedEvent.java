@@ -0,0 +1,13 @@
+package au.id.ohare.ushort.event;
+
+import au.id.ohare.ushort.repository.UrlJdbcRepository.AccessDelta;
+
+import java.util.List;
+
+/**
+ * Published by the write-behind access counter after a batch of click deltas has been
+ * applied to the urls table.
+ * @param deltas the deltas that were applied
+ */
+public record AccessCountsFlushedEvent(List<AccessDelta> deltas) {
+}
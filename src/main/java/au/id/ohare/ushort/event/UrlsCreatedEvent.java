@@ -0,0 +1,28 @@
+package au.id.ohare.ushort.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published whenever rows are inserted into the urls table, whether through JPA or
+ * a batched JDBC path, so in-memory indexes of live shortcodes can follow along.
+ * @param urls the rows that were created
+ */
+public record UrlsCreatedEvent(List<CreatedUrl> urls) {
+
+    public List<String> shortenedCodes() {
+        return urls.stream().map(CreatedUrl::shortenedUrl).toList();
+    }
+
+    /**
+     * A newly inserted row
+     * @param shortenedUrl the shortened URL code
+     * @param originalUrl the original URL
+     * @param accessCount initial access count
+     * @param createdAt creation time
+     * @param lastAccessed initial last access time
+     */
+    public record CreatedUrl(String shortenedUrl, String originalUrl, long accessCount,
+                             LocalDateTime createdAt, LocalDateTime lastAccessed) {
+    }
+}
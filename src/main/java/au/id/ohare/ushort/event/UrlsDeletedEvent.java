@@ -0,0 +1,11 @@
+package au.id.ohare.ushort.event;
+
+import java.util.Collection;
+
+/**
+ * Published after rows are removed from the urls table in bulk, so caches and
+ * in-memory indexes can drop the codes.
+ * @param shortenedCodes the codes that were deleted
+ */
+public record UrlsDeletedEvent(Collection<String> shortenedCodes) {
+}
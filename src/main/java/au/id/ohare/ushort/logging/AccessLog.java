@@ -0,0 +1,301 @@
+package au.id.ohare.ushort.logging;
+
+import au.id.ohare.ushort.config.ThreadFactories;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log for redirects. Request threads claim a slot in a preallocated
+ * ring buffer with one CAS and copy a few references into it; a single background
+ * consumer formats the slots as compact JSON lines and hands each batch to the
+ * {@code ushort.access} logger, which logback writes to a rolling file. Events are
+ * sampled per outcome before a slot is claimed, and dropped and counted when the
+ * consumer falls a full ring behind, so logging never blocks a redirect.
+ */
+@Slf4j
+@Component
+public class AccessLog {
+
+    public static final String LOGGER_NAME = "ushort.access";
+
+    private static final int MAX_BATCH = 256;
+    // An idle consumer parks for doubling intervals between these, so a quiet server wakes it rarely
+    private static final long MIN_IDLE_PARK_NANOS = 1_000_000;
+    private static final long MAX_IDLE_PARK_NANOS = 64_000_000;
+
+    public enum Outcome {
+        REDIRECT, NOT_FOUND, EXPIRED
+    }
+
+    public enum Route {
+        FAST, API, WEB
+    }
+
+    private final Logger accessLogger;
+    private final Entry[] ring;
+    private final int mask;
+    private final Map<Outcome, Double> sampleRates = new EnumMap<>(Outcome.class);
+    private final AtomicLong claimed = new AtomicLong();
+    // Written only by the consumer; producers read it to tell whether the ring is full
+    private volatile long consumed;
+    private volatile boolean running = true;
+    // Set while the consumer is parked for longer than the minimum, so producers wake it
+    private volatile boolean sleeping;
+
+    private final Thread consumer;
+    private final Counter written;
+    private final Counter dropped;
+
+    public AccessLog(MeterRegistry meterRegistry,
+                     @Value("${app.access-log.buffer-size:8192}") int bufferSize,
+                     @Value("${app.access-log.sample-rate.redirect:1.0}") double redirectSampleRate,
+                     @Value("${app.access-log.sample-rate.not-found:1.0}") double notFoundSampleRate,
+                     @Value("${app.access-log.sample-rate.expired:1.0}") double expiredSampleRate,
+                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("Access log buffer size must be at least 2: " + bufferSize);
+        }
+        this.accessLogger = LoggerFactory.getLogger(LOGGER_NAME);
+        this.ring = new Entry[Integer.highestOneBit(bufferSize - 1) << 1];
+        this.mask = ring.length - 1;
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Entry();
+        }
+        sampleRates.put(Outcome.REDIRECT, redirectSampleRate);
+        sampleRates.put(Outcome.NOT_FOUND, notFoundSampleRate);
+        sampleRates.put(Outcome.EXPIRED, expiredSampleRate);
+
+        this.written = Counter.builder("ushort.access_log.written")
+                .description("Access log events written to the access log")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ushort.access_log.dropped")
+                .description("Access log events dropped because the ring buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("ushort.access_log.pending", this, AccessLog::pending)
+                .description("Access log events buffered but not yet written")
+                .register(meterRegistry);
+
+        this.consumer = ThreadFactories.named("access-log-writer", virtualThreads).newThread(this::consume);
+        consumer.start();
+        log.info("Access log started: bufferSize={}, sampleRates={}, virtualThreads={}",
+                ring.length, sampleRates, virtualThreads);
+    }
+
+    /**
+     * Record a redirect request. Only references are copied on the calling thread;
+     * the client address is worked out and the line formatted by the consumer.
+     * @param outcome what the request resolved to
+     * @param route which handler answered it
+     * @param shortenedCode the shortened URL code
+     * @param request the request, read for its client address and user agent
+     */
+    public void record(Outcome outcome, Route route, String shortenedCode, HttpServletRequest request) {
+        double sampleRate = sampleRates.get(outcome);
+        if (sampleRate < 1.0 && (sampleRate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= ring.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Entry entry = ring[(int) (sequence & mask)];
+        entry.timestamp = System.currentTimeMillis();
+        entry.outcome = outcome;
+        entry.route = route;
+        entry.sampleRate = sampleRate;
+        entry.shortenedCode = shortenedCode;
+        entry.forwardedFor = request.getHeader("X-Forwarded-For");
+        entry.realIp = request.getHeader("X-Real-IP");
+        entry.remoteAddr = request.getRemoteAddr();
+        entry.userAgent = request.getHeader("User-Agent");
+        // Publishing the sequence hands the slot to the consumer
+        entry.published = sequence;
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    public long pending() {
+        return claimed.get() - consumed;
+    }
+
+    // Only called once the consumer has stopped
+    private void drain() {
+        StringBuilder batch = new StringBuilder(MAX_BATCH * 160);
+        while (writeBatch(batch) > 0) {
+            // keep going until nothing is published
+        }
+    }
+
+    private void consume() {
+        StringBuilder batch = new StringBuilder(MAX_BATCH * 160);
+        long idleParkNanos = MIN_IDLE_PARK_NANOS;
+        while (running) {
+            try {
+                if (writeBatch(batch) > 0) {
+                    idleParkNanos = MIN_IDLE_PARK_NANOS;
+                } else {
+                    idle(idleParkNanos);
+                    idleParkNanos = Math.min(idleParkNanos * 2, MAX_IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Access log write failed: error={}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void idle(long parkNanos) {
+        if (parkNanos == MIN_IDLE_PARK_NANOS) {
+            LockSupport.parkNanos(parkNanos);
+            return;
+        }
+        // Announce the longer sleep, then look again: a producer that published before
+        // seeing the flag is caught by the re-check, and any later one unparks us
+        sleeping = true;
+        try {
+            if (ring[(int) (consumed & mask)].published != consumed && running) {
+                LockSupport.parkNanos(parkNanos);
+            }
+        } finally {
+            sleeping = false;
+        }
+    }
+
+    private int writeBatch(StringBuilder batch) {
+        batch.setLength(0);
+        long next = consumed;
+        int count = 0;
+        while (count < MAX_BATCH) {
+            Entry entry = ring[(int) (next & mask)];
+            if (entry.published != next) {
+                break;
+            }
+            if (count > 0) {
+                batch.append('\n');
+            }
+            entry.appendJson(batch);
+            entry.clear();
+            next++;
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        // Free the slots before the write so producers are not held up by the file
+        consumed = next;
+        accessLogger.info(batch.toString());
+        written.increment(count);
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!consumer.isAlive()) {
+            drain();
+        }
+        log.info("Access log stopped: written={}, dropped={}", (long) written.count(), (long) dropped.count());
+    }
+
+    private static final class Entry {
+
+        private volatile long published = -1;
+        private long timestamp;
+        private Outcome outcome;
+        private Route route;
+        private double sampleRate;
+        private String shortenedCode;
+        private String forwardedFor;
+        private String realIp;
+        private String remoteAddr;
+        private String userAgent;
+
+        void appendJson(StringBuilder out) {
+            out.append("{\"ts\":").append(timestamp)
+                    .append(",\"outcome\":\"").append(outcome.name())
+                    .append("\",\"route\":\"").append(route.name())
+                    .append("\",\"code\":");
+            appendString(out, shortenedCode);
+            out.append(",\"clientIp\":");
+            appendString(out, clientIp());
+            out.append(",\"userAgent\":");
+            appendString(out, userAgent);
+            if (sampleRate < 1.0) {
+                out.append(",\"sampleRate\":").append(sampleRate);
+            }
+            out.append('}');
+        }
+
+        // Same precedence as the controllers: first X-Forwarded-For hop, X-Real-IP, then the peer
+        private String clientIp() {
+            if (forwardedFor != null && !forwardedFor.isEmpty()) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim();
+            }
+            if (realIp != null && !realIp.isEmpty()) {
+                return realIp;
+            }
+            return remoteAddr;
+        }
+
+        void clear() {
+            shortenedCode = null;
+            forwardedFor = null;
+            realIp = null;
+            remoteAddr = null;
+            userAgent = null;
+        }
+
+        private static void appendString(StringBuilder out, String value) {
+            if (value == null) {
+                out.append("null");
+                return;
+            }
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package au.id.ohare.ushort.metrics;
+
+import au.id.ohare.ushort.logging.AccessLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms and outcome counters for the request paths. Every meter is
+ * registered up front, so recording is an array lookup and a timer update with no
+ * registry lookup or tag allocation per request.
+ */
+@Component
+public class UrlMetrics {
+
+    public enum ShortenRoute {
+        API, WEB, BATCH
+    }
+
+    private final Timer[][] redirectTimers;
+    private final Timer[][] shortenTimers;
+    private final Timer analyticsTimer;
+    private final Counter created;
+    private final Counter deduplicated;
+    private final Counter notFound;
+    private final Counter expired;
+    private final Counter collisions;
+
+    public UrlMetrics(MeterRegistry meterRegistry) {
+        AccessLog.Route[] routes = AccessLog.Route.values();
+        AccessLog.Outcome[] outcomes = AccessLog.Outcome.values();
+        redirectTimers = new Timer[routes.length][outcomes.length];
+        for (AccessLog.Route route : routes) {
+            for (AccessLog.Outcome outcome : outcomes) {
+                redirectTimers[route.ordinal()][outcome.ordinal()] = Timer.builder("ushort.redirect")
+                        .description("Time to answer a redirect request, from the handler that served it")
+                        .tag("route", tagValue(route))
+                        .tag("outcome", tagValue(outcome))
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(10_000))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(meterRegistry);
+            }
+        }
+
+        ShortenRoute[] shortenRoutes = ShortenRoute.values();
+        shortenTimers = new Timer[shortenRoutes.length][2];
+        for (ShortenRoute route : shortenRoutes) {
+            for (boolean success : new boolean[] {true, false}) {
+                shortenTimers[route.ordinal()][success ? 1 : 0] = Timer.builder("ushort.shorten")
+                        .description("Time to handle a shorten request")
+                        .tag("route", tagValue(route))
+                        .tag("outcome", success ? "success" : "error")
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry);
+            }
+        }
+
+        analyticsTimer = Timer.builder("ushort.admin.analytics")
+                .description("Time to build one page of admin URL statistics, for the analytics view or the API")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+
+        // created and deduplicated count shortened URLs; not_found and expired count lookups
+        created = outcomeCounter(meterRegistry, "created");
+        deduplicated = outcomeCounter(meterRegistry, "deduplicated");
+        notFound = outcomeCounter(meterRegistry, "not_found");
+        expired = outcomeCounter(meterRegistry, "expired");
+
+        collisions = Counter.builder("ushort.shortcode.collisions")
+                .description("Candidate shortcodes skipped because a different URL already owns them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the request reached the handler
+     */
+    public void recordRedirect(AccessLog.Route route, AccessLog.Outcome outcome, long startNanos) {
+        redirectTimers[route.ordinal()][outcome.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the request reached the handler
+     * @return the elapsed time in milliseconds, for log lines
+     */
+    public long recordShorten(ShortenRoute route, boolean success, long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        shortenTimers[route.ordinal()][success ? 1 : 0].record(elapsedNanos, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the request reached the handler
+     * @return the elapsed time in milliseconds, for log lines
+     */
+    public long recordAnalytics(long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        analyticsTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public void created(long count) {
+        created.increment(count);
+    }
+
+    public void deduplicated(long count) {
+        deduplicated.increment(count);
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+
+    public void expired() {
+        expired.increment();
+    }
+
+    public void collisions(long count) {
+        collisions.increment(count);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ushort.urls.outcomes")
+                .description("Shortened URLs created or deduplicated, and lookups that found no live URL")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
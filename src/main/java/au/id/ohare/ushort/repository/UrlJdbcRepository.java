@@ -0,0 +1,365 @@
+package au.id.ohare.ushort.repository;
+
+import au.id.ohare.ushort.entity.EpochSecondsConverter;
+import au.id.ohare.ushort.service.ShortCodes;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the urls table for set-based and batched operations that
+ * would be wasteful through the JPA entity lifecycle. Rows are keyed by the packed
+ * shortcode and times are epoch seconds, as mapped by {@code UrlEntity}; this class
+ * converts at the boundary so callers keep working with codes and date-times.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UrlJdbcRepository {
+
+    private static final String APPLY_ACCESS_DELTA_SQL =
+            "UPDATE urls SET access_count = access_count + ?, last_accessed = GREATEST(last_accessed, ?) " +
+            "WHERE id = ?";
+
+    private static final String SELECT_REDIRECT_TARGET_SQL = "SELECT original_url, last_accessed FROM urls WHERE id = ?";
+
+    private static final String SELECT_IDS_SQL = "SELECT id FROM urls";
+
+    private static final String SELECT_LAST_ACCESSED_SQL = "SELECT id, last_accessed FROM urls";
+
+    private static final String SELECT_URL_ROWS_SQL =
+            "SELECT id, original_url, access_count, created_at, last_accessed FROM urls";
+
+    private static final String INSERT_URL_SQL =
+            "INSERT INTO urls (id, original_url, access_count, last_accessed, created_at) VALUES (?, ?, 0, ?, ?)";
+
+    private static final String INSERT_URLS_PREFIX =
+            "INSERT INTO urls (id, original_url, access_count, last_accessed, created_at) VALUES ";
+
+    private static final String INSERT_URLS_ROW = "(?, ?, 0, ?, ?)";
+
+    private static final String RESTORE_URL_SQL =
+            "INSERT INTO urls (id, original_url, access_count, last_accessed, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_EXPIRED_SQL =
+            "SELECT id FROM urls WHERE last_accessed < ? ORDER BY last_accessed FETCH FIRST ? ROWS ONLY";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    // Codes per IN query, well under what databases accept as bind parameters
+    private static final int IN_QUERY_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Look up what a redirect needs for one shortcode with a single-row read by primary
+     * key. Not {@code @Transactional}: it runs as an autocommit read, and builds no
+     * entity, persistence context or dirty-checking snapshot.
+     * @param shortenedUrl the shortened URL code
+     * @return the redirect target, or empty if the code is not stored
+     */
+    public Optional<RedirectTarget> findRedirectTarget(String shortenedUrl) {
+        long id = ShortCodes.pack(shortenedUrl);
+        if (id == ShortCodes.NOT_PACKABLE) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_REDIRECT_TARGET_SQL,
+                (ResultSetExtractor<Optional<RedirectTarget>>) resultSet -> resultSet.next()
+                        ? Optional.of(new RedirectTarget(
+                                resultSet.getString(1),
+                                EpochSecondsConverter.toLocalDateTime(resultSet.getLong(2))))
+                        : Optional.empty(),
+                id);
+    }
+
+    /**
+     * Stream every shortcode in the table through a forward-only cursor
+     * @param action receives each shortcode
+     */
+    public void forEachShortenedUrl(Consumer<String> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_IDS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(ShortCodes.unpack(resultSet.getLong(1))));
+    }
+
+    /**
+     * Stream every shortcode with its last access time through a forward-only cursor
+     * @param action receives each shortcode and last access time
+     */
+    public void forEachLastAccessed(BiConsumer<String, LocalDateTime> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_LAST_ACCESSED_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(
+                ShortCodes.unpack(resultSet.getLong(1)),
+                EpochSecondsConverter.toLocalDateTime(resultSet.getLong(2))));
+    }
+
+    /**
+     * Stream every row of the table through a forward-only, read-only cursor. Runs as a
+     * single autocommit read outside any transaction, so it holds no locks that would
+     * block concurrent redirects or access-count flushes.
+     * @param action receives each row; rows are not retained after the call
+     */
+    public void forEachUrl(Consumer<UrlRow> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_URL_ROWS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(new UrlRow(
+                resultSet.getLong(1),
+                resultSet.getString(2),
+                ShortCodes.unpack(resultSet.getLong(1)),
+                resultSet.getLong(3),
+                EpochSecondsConverter.toLocalDateTime(resultSet.getLong(4)),
+                EpochSecondsConverter.toLocalDateTime(resultSet.getLong(5)))));
+    }
+
+    /**
+     * Look up the original URLs of many shortcodes with IN queries of up to
+     * {@value #IN_QUERY_CHUNK} codes each
+     * @param shortenedUrls the shortened URL codes
+     * @return original URL keyed by shortcode, for the codes that exist
+     */
+    public Map<String, String> findOriginalUrlsByShortenedUrls(Collection<String> shortenedUrls) {
+        List<Long> ids = storableIds(shortenedUrls);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> originalUrls = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += IN_QUERY_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_QUERY_CHUNK));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT id, original_url FROM urls WHERE id IN (" + placeholders + ")",
+                    (RowCallbackHandler) resultSet ->
+                            originalUrls.put(ShortCodes.unpack(resultSet.getLong(1)), resultSet.getString(2)),
+                    chunk.toArray());
+        }
+        return originalUrls;
+    }
+
+    /**
+     * Insert new rows as one JDBC batch in a single transaction
+     * @param newUrls the rows to insert
+     */
+    @Transactional
+    public void insertAll(List<NewUrl> newUrls) {
+        if (newUrls.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_URL_SQL, newUrls, newUrls.size(), (ps, newUrl) -> {
+            long createdAt = EpochSecondsConverter.toEpochSecond(newUrl.createdAt());
+            ps.setLong(1, idOf(newUrl.shortenedUrl()));
+            ps.setString(2, newUrl.originalUrl());
+            ps.setLong(3, createdAt);
+            ps.setLong(4, createdAt);
+        });
+    }
+
+    /**
+     * Insert new rows with one multi-row INSERT statement in a single transaction, so
+     * the database parses, logs and commits them as one unit. A duplicate shortcode
+     * fails the whole statement.
+     * @param newUrls the rows to insert
+     */
+    @Transactional
+    public void insertMultiRow(List<NewUrl> newUrls) {
+        if (newUrls.isEmpty()) {
+            return;
+        }
+        String sql = INSERT_URLS_PREFIX + String.join(", ", Collections.nCopies(newUrls.size(), INSERT_URLS_ROW));
+        jdbcTemplate.update(sql, ps -> {
+            int parameter = 1;
+            for (NewUrl newUrl : newUrls) {
+                long createdAt = EpochSecondsConverter.toEpochSecond(newUrl.createdAt());
+                ps.setLong(parameter++, idOf(newUrl.shortenedUrl()));
+                ps.setString(parameter++, newUrl.originalUrl());
+                ps.setLong(parameter++, createdAt);
+                ps.setLong(parameter++, createdAt);
+            }
+        });
+    }
+
+    /**
+     * Insert previously persisted rows, counts and times included, as one JDBC batch.
+     * Ids are derived from the codes; the rows' own ids are ignored.
+     * @param rows the rows to restore
+     */
+    @Transactional
+    public void restoreAll(List<UrlRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RESTORE_URL_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, idOf(row.shortenedUrl()));
+            ps.setString(2, row.originalUrl());
+            ps.setLong(3, row.accessCount());
+            ps.setLong(4, EpochSecondsConverter.toEpochSecond(row.lastAccessed()));
+            ps.setLong(5, EpochSecondsConverter.toEpochSecond(row.createdAt()));
+        });
+    }
+
+    /**
+     * Apply aggregated access counts in a single batched transaction
+     * @param deltas the per-shortcode click deltas to apply
+     * @return number of updated rows per delta
+     */
+    @Transactional
+    public int[] applyAccessDeltas(List<AccessDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(APPLY_ACCESS_DELTA_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.clicks());
+            ps.setLong(2, EpochSecondsConverter.toEpochSecond(delta.lastAccessed()));
+            ps.setLong(3, ShortCodes.pack(delta.shortenedUrl()));
+        })[0];
+    }
+
+    /**
+     * Delete up to {@code limit} rows last accessed before the cutoff, oldest first, as
+     * one short transaction. The delete re-checks the cutoff, so a row accessed after it
+     * was selected survives.
+     * @param cutoff rows last accessed strictly before this are expired
+     * @param limit maximum number of rows to delete
+     * @return how many rows were selected and which were deleted
+     */
+    @Transactional
+    public ExpiredChunk deleteExpired(LocalDateTime cutoff, int limit) {
+        List<String> shortenedUrls = jdbcTemplate.queryForList(
+                        SELECT_EXPIRED_SQL, Long.class, EpochSecondsConverter.toEpochSecond(cutoff), limit)
+                .stream()
+                .map(ShortCodes::unpack)
+                .toList();
+        return deleteExpiredCodes(shortenedUrls, cutoff);
+    }
+
+    /**
+     * Delete the given codes in one statement, skipping any accessed since the cutoff
+     * @param shortenedUrls the codes believed to be expired
+     * @param cutoff rows last accessed strictly before this are expired
+     * @return which of the codes are no longer in the table
+     */
+    @Transactional
+    public ExpiredChunk deleteExpired(Collection<String> shortenedUrls, LocalDateTime cutoff) {
+        return deleteExpiredCodes(shortenedUrls, cutoff);
+    }
+
+    private ExpiredChunk deleteExpiredCodes(Collection<String> shortenedUrls, LocalDateTime cutoff) {
+        if (shortenedUrls.isEmpty()) {
+            return new ExpiredChunk(0, 0, List.of());
+        }
+
+        List<Long> ids = storableIds(shortenedUrls);
+        if (ids.isEmpty()) {
+            return new ExpiredChunk(shortenedUrls.size(), 0, List.copyOf(shortenedUrls));
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(EpochSecondsConverter.toEpochSecond(cutoff));
+        args.addAll(ids);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM urls WHERE last_accessed < ? AND id IN (" + placeholders + ")", args.toArray());
+        if (deleted == shortenedUrls.size()) {
+            return new ExpiredChunk(shortenedUrls.size(), deleted, List.copyOf(shortenedUrls));
+        }
+
+        // Some rows were accessed meanwhile or were already gone; report only codes no longer present
+        Set<String> survivors = new HashSet<>();
+        jdbcTemplate.query("SELECT id FROM urls WHERE id IN (" + placeholders + ")",
+                (RowCallbackHandler) resultSet -> survivors.add(ShortCodes.unpack(resultSet.getLong(1))),
+                ids.toArray());
+        List<String> gone = shortenedUrls.stream().filter(code -> !survivors.contains(code)).toList();
+        return new ExpiredChunk(shortenedUrls.size(), deleted, gone);
+    }
+
+    // Codes that cannot be packed were never stored, so lookups simply leave them out
+    private static List<Long> storableIds(Collection<String> shortenedUrls) {
+        return shortenedUrls.stream()
+                .map(ShortCodes::pack)
+                .filter(id -> id != ShortCodes.NOT_PACKABLE)
+                .distinct()
+                .toList();
+    }
+
+    private static long idOf(String shortenedUrl) {
+        long id = ShortCodes.pack(shortenedUrl);
+        if (id == ShortCodes.NOT_PACKABLE) {
+            throw new IllegalArgumentException("Shortcode cannot be used as a key: " + shortenedUrl);
+        }
+        return id;
+    }
+
+    /**
+     * A full row of the urls table
+     * @param id the primary key, the packed shortcode
+     * @param originalUrl the original URL
+     * @param shortenedUrl the shortened URL code
+     * @param accessCount clicks recorded so far
+     * @param createdAt creation time
+     * @param lastAccessed most recent access time
+     */
+    public record UrlRow(long id, String originalUrl, String shortenedUrl, long accessCount,
+                         LocalDateTime createdAt, LocalDateTime lastAccessed) {
+    }
+
+    /**
+     * The columns a redirect reads
+     * @param originalUrl the original URL
+     * @param lastAccessed most recent access time, for the expiry check
+     */
+    public record RedirectTarget(String originalUrl, LocalDateTime lastAccessed) {
+    }
+
+    /**
+     * Outcome of deleting one chunk of expired rows
+     * @param selected number of codes considered for deletion
+     * @param deleted number of rows deleted, fewer than selected if some were accessed meanwhile
+     * @param goneUrls codes no longer in the table, including any that were already missing
+     */
+    public record ExpiredChunk(int selected, int deleted, List<String> goneUrls) {
+    }
+
+    /**
+     * A row to insert with a zero access count
+     * @param originalUrl the original URL
+     * @param shortenedUrl the shortened URL code
+     * @param createdAt creation time, also used as the initial last access time
+     */
+    public record NewUrl(String originalUrl, String shortenedUrl, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Aggregated clicks for one shortcode since the last flush
+     * @param shortenedUrl the shortened URL code
+     * @param clicks number of clicks to add
+     * @param lastAccessed most recent access time among those clicks
+     */
+    public record AccessDelta(String shortenedUrl, long clicks, LocalDateTime lastAccessed) {
+    }
+}
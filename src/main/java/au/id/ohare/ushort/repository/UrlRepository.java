@@ -1,6 +1,9 @@
 package au.id.ohare.ushort.repository;
 
+import au.id.ohare.ushort.dto.UrlStatistic;
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.service.ShortCodes;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,15 +14,23 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * JPA access to the urls table. Rows are keyed by the packed shortcode, so queries by
+ * code pack it with {@link ShortCodes#pack} and look up the primary key; a code that
+ * cannot be packed matches nothing.
+ */
 @Repository
 public interface UrlRepository extends JpaRepository<UrlEntity, Long> {
 
+    String PACKED_CODE = "#{T(au.id.ohare.ushort.service.ShortCodes).pack(#shortenedUrl)}";
+
     /**
      * Find URL entity by shortened URL code
      * @param shortenedUrl the shortened URL code
      * @return Optional URL entity
      */
-    Optional<UrlEntity> findByShortenedUrl(String shortenedUrl);
+    @Query("SELECT u FROM UrlEntity u WHERE u.id = :" + PACKED_CODE)
+    Optional<UrlEntity> findByShortenedUrl(@Param("shortenedUrl") String shortenedUrl);
 
     /**
      * Find URLs that were last accessed before the given date (for expiry cleanup)
@@ -33,7 +44,8 @@ public interface UrlRepository extends JpaRepository<UrlEntity, Long> {
      * @param shortenedUrl the shortened URL code
      * @return true if exists, false otherwise
      */
-    boolean existsByShortenedUrl(String shortenedUrl);
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM UrlEntity u WHERE u.id = :" + PACKED_CODE)
+    boolean existsByShortenedUrl(@Param("shortenedUrl") String shortenedUrl);
 
     /**
      * Atomically increment access count and update last accessed time
@@ -42,6 +54,37 @@ public interface UrlRepository extends JpaRepository<UrlEntity, Long> {
      * @return number of updated rows
      */
     @Modifying
-    @Query("UPDATE UrlEntity u SET u.accessCount = u.accessCount + 1, u.lastAccessed = :lastAccessed WHERE u.shortenedUrl = :shortenedUrl")
+    @Query("UPDATE UrlEntity u SET u.accessCount = u.accessCount + 1, u.lastAccessed = :lastAccessed WHERE u.id = :" + PACKED_CODE)
     int incrementAccessCount(@Param("shortenedUrl") String shortenedUrl, @Param("lastAccessed") LocalDateTime lastAccessed);
-}
\ No newline at end of file
+
+    /**
+     * First page of URL statistics ordered by access count descending
+     * @param pageable page size; only the first page is used
+     * @return statistics without loading managed entities
+     */
+    @Query("SELECT new au.id.ohare.ushort.dto.UrlStatistic(u.id, u.originalUrl, u.accessCount, u.createdAt, u.lastAccessed) " +
+           "FROM UrlEntity u ORDER BY u.accessCount DESC, u.id DESC")
+    List<UrlStatistic> findStatistics(Pageable pageable);
+
+    /**
+     * Page of URL statistics following the keyset (accessCount, id) of the previous page's last row.
+     * The redundant {@code accessCount <= :accessCount} bound lets the database start a range scan
+     * of idx_access_count at the cursor, so a deep page costs the same as the first.
+     * @param accessCount access count of the last row already returned
+     * @param id id of the last row already returned
+     * @param pageable page size; only the first page is used
+     * @return statistics without loading managed entities
+     */
+    @Query("SELECT new au.id.ohare.ushort.dto.UrlStatistic(u.id, u.originalUrl, u.accessCount, u.createdAt, u.lastAccessed) " +
+           "FROM UrlEntity u WHERE u.accessCount <= :accessCount " +
+           "AND (u.accessCount < :accessCount OR (u.accessCount = :accessCount AND u.id < :id)) " +
+           "ORDER BY u.accessCount DESC, u.id DESC")
+    List<UrlStatistic> findStatisticsAfter(@Param("accessCount") int accessCount, @Param("id") long id, Pageable pageable);
+
+    /**
+     * Sum of access counts across all URLs
+     * @return total access count
+     */
+    @Query("SELECT COALESCE(SUM(u.accessCount), 0L) FROM UrlEntity u")
+    long sumAccessCount();
+}
@@ -0,0 +1,223 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.config.ThreadFactories;
+import au.id.ohare.ushort.event.AccessCountsFlushedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.AccessDelta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind aggregation of redirect clicks. The request thread only bumps an
+ * in-memory striped counter; a background flusher applies the accumulated deltas
+ * and the latest access time to the urls table in batched updates, either every
+ * {@code app.access-count.flush-interval-ms} or once
+ * {@code app.access-count.flush-threshold} clicks are pending. Each applied batch is
+ * published as an {@link AccessCountsFlushedEvent}.
+ */
+@Slf4j
+@Service
+public class AccessCountAggregator {
+
+    private final ConcurrentHashMap<String, PendingAccess> pending = new ConcurrentHashMap<>();
+    private final LongAdder unflushedClicks = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService flusher;
+    private final long flushThreshold;
+    private final Counter flushedClicks;
+    private final Timer flushTimer;
+
+    public AccessCountAggregator(UrlJdbcRepository urlJdbcRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.access-count.flush-interval-ms:1000}") long flushIntervalMs,
+                                 @Value("${app.access-count.flush-threshold:10000}") long flushThreshold,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.flushThreshold = flushThreshold;
+
+        this.flushedClicks = Counter.builder("ushort.clicks.flushed")
+                .description("Clicks written to the urls table by the write-behind flusher")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ushort.clicks.flush")
+                .description("Duration of a write-behind access count flush")
+                .register(meterRegistry);
+        Gauge.builder("ushort.clicks.pending", unflushedClicks, LongAdder::sum)
+                .description("Clicks recorded but not yet flushed")
+                .register(meterRegistry);
+        Gauge.builder("ushort.clicks.flush.lag", this, AccessCountAggregator::flushLagMillis)
+                .description("Milliseconds since the last flush while clicks are pending")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactories.named("access-count-flusher", virtualThreads));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Access count aggregator started: flushIntervalMs={}, flushThreshold={}, virtualThreads={}",
+                flushIntervalMs, flushThreshold, virtualThreads);
+    }
+
+    /**
+     * Record a click against a shortcode without touching the database
+     * @param shortenedCode the shortened URL code
+     * @param accessedAt the time of the click
+     */
+    public void recordAccess(String shortenedCode, LocalDateTime accessedAt) {
+        record(shortenedCode, 1, toEpochMillis(accessedAt));
+
+        unflushedClicks.increment();
+        if (unflushedClicks.sum() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final flush in shutdown() picks these up
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Flush all pending clicks to the database. Safe to call from any thread.
+     * @return number of clicks flushed
+     */
+    public long flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<AccessDelta> deltas = drain();
+            if (deltas.isEmpty()) {
+                lastFlushMillis.set(System.currentTimeMillis());
+                return 0;
+            }
+
+            long clicks = deltas.stream().mapToLong(AccessDelta::clicks).sum();
+            try {
+                flushTimer.record(() -> urlJdbcRepository.applyAccessDeltas(deltas));
+            } catch (RuntimeException e) {
+                // Put the deltas back so the next flush retries them
+                deltas.forEach(delta -> record(delta.shortenedUrl(), delta.clicks(), toEpochMillis(delta.lastAccessed())));
+                throw e;
+            }
+
+            eventPublisher.publishEvent(new AccessCountsFlushedEvent(deltas));
+            unflushedClicks.add(-clicks);
+            flushedClicks.increment(clicks);
+            lastFlushMillis.set(System.currentTimeMillis());
+            log.debug("Flushed access counts: shortCodes={}, clicks={}", deltas.size(), clicks);
+            return clicks;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public long getPendingClicks() {
+        return unflushedClicks.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long clicks = flush();
+        log.info("Access count aggregator stopped: finalFlushClicks={}", clicks);
+    }
+
+    private void record(String shortenedCode, long clicks, long accessedAtMillis) {
+        PendingAccess entry = pending.computeIfAbsent(shortenedCode, code -> new PendingAccess());
+        entry.add(clicks, accessedAtMillis);
+
+        // The flusher retired this entry while we held it; move anything it did not collect
+        if (entry.retired) {
+            long stranded = entry.clicks.sumThenReset();
+            if (stranded > 0) {
+                record(shortenedCode, stranded, entry.lastAccessedMillis.get());
+            }
+        }
+    }
+
+    private List<AccessDelta> drain() {
+        List<AccessDelta> deltas = new ArrayList<>();
+        for (Map.Entry<String, PendingAccess> mapEntry : pending.entrySet()) {
+            String shortenedCode = mapEntry.getKey();
+            PendingAccess entry = mapEntry.getValue();
+
+            long clicks = entry.clicks.sumThenReset();
+            if (clicks == 0 && pending.remove(shortenedCode, entry)) {
+                // Idle since the last flush: retire it, then collect any click that raced the removal
+                entry.retired = true;
+                clicks = entry.clicks.sumThenReset();
+            }
+            if (clicks > 0) {
+                deltas.add(new AccessDelta(shortenedCode, clicks, toLocalDateTime(entry.lastAccessedMillis.get())));
+            }
+        }
+        return deltas;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush access counts: pendingClicks={}, error={}", getPendingClicks(), e.getMessage(), e);
+        }
+    }
+
+    private double flushLagMillis() {
+        return unflushedClicks.sum() > 0 ? System.currentTimeMillis() - lastFlushMillis.get() : 0;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static final class PendingAccess {
+
+        private final LongAdder clicks = new LongAdder();
+        private final AtomicLong lastAccessedMillis = new AtomicLong();
+        private volatile boolean retired;
+
+        void add(long count, long accessedAtMillis) {
+            lastAccessedMillis.accumulateAndGet(accessedAtMillis, Math::max);
+            clicks.add(count);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent.CreatedUrl;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Shortens many URLs at once: validation and hashing run in parallel, code owners come
+ * from the off-heap index or chunked IN queries, and new rows go in as a single JDBC batch.
+ * URLs whose code belongs to a different URL probe onwards in further rounds. Failures
+ * are reported per item and never fail the rest of the batch.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchShorteningService {
+
+    private static final int MAX_URL_LENGTH = 2048;
+
+    private final UrlService urlService;
+    private final UrlShortenerService urlShortenerService;
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final OffHeapUrlIndex offHeapUrlIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UrlMetrics urlMetrics;
+
+    @Value("${app.shortcode.max-probes:16}")
+    private int maxProbes;
+
+    /**
+     * Shorten a batch of URLs
+     * @param originalUrls the URLs to shorten
+     * @return one result per input URL, in input order
+     */
+    public List<ItemResult> shortenAll(List<String> originalUrls) {
+        long startTime = System.currentTimeMillis();
+        ItemResult[] results = new ItemResult[originalUrls.size()];
+        String[] codes = new String[originalUrls.size()];
+        long[] fingerprints = new long[originalUrls.size()];
+
+        IntStream.range(0, originalUrls.size()).parallel().forEach(i -> {
+            String originalUrl = originalUrls.get(i);
+            if (!urlService.isValidUrl(originalUrl)) {
+                results[i] = ItemResult.failed(originalUrl, "URL must start with http:// or https://");
+                return;
+            }
+            if (originalUrl.length() > MAX_URL_LENGTH) {
+                results[i] = ItemResult.failed(originalUrl, "URL cannot exceed " + MAX_URL_LENGTH + " characters");
+                return;
+            }
+            try {
+                codes[i] = urlShortenerService.generateShortenedCode(originalUrl);
+                fingerprints[i] = OffHeapUrlIndex.fingerprint(originalUrl);
+            } catch (RuntimeException e) {
+                results[i] = ItemResult.failed(originalUrl, e.getMessage());
+            }
+        });
+
+        // Each round settles what it can; URLs whose code another URL owns move to their next probe
+        int[] probes = new int[originalUrls.size()];
+        List<Integer> pending = IntStream.range(0, codes.length).filter(i -> codes[i] != null).boxed().toList();
+        boolean checkDatabase = false;
+        long collisions = 0;
+        while (!pending.isEmpty()) {
+            Round round = allocate(pending, originalUrls, codes, probes, fingerprints, checkDatabase);
+            List<Integer> next = new ArrayList<>();
+            round.existing.forEach(i -> results[i] = new ItemResult(originalUrls.get(i), codes[i], false, null));
+
+            if (!round.unconfirmed.isEmpty()) {
+                // The index held codes for these URLs that their rows do not; probe again from the database
+                checkDatabase = true;
+                for (int i : round.unconfirmed) {
+                    probes[i] = 0;
+                    codes[i] = urlShortenerService.generateShortenedCode(originalUrls.get(i));
+                    next.add(i);
+                }
+            }
+
+            if (insert(round.claims, originalUrls)) {
+                round.claims.values().forEach(i -> {
+                    results[i] = new ItemResult(originalUrls.get(i), codes[i], true, null);
+                    if (probes[i] > 0) {
+                        offHeapUrlIndex.markCollided(fingerprints[i]);
+                    }
+                });
+                round.sharers.forEach(i -> results[i] = new ItemResult(originalUrls.get(i), codes[i], false, null));
+            } else {
+                // A concurrent create took some of the codes; settle them again from the database
+                checkDatabase = true;
+                next.addAll(round.claims.values());
+                next.addAll(round.sharers);
+            }
+
+            collisions += round.collided.size();
+            for (int i : round.collided) {
+                if (++probes[i] == maxProbes) {
+                    results[i] = ItemResult.failed(originalUrls.get(i), "No free shortcode after " + maxProbes + " probes");
+                    continue;
+                }
+                try {
+                    codes[i] = urlShortenerService.generateShortenedCode(originalUrls.get(i), probes[i]);
+                    next.add(i);
+                } catch (RuntimeException e) {
+                    results[i] = ItemResult.failed(originalUrls.get(i), e.getMessage());
+                }
+            }
+            next.sort(null);
+            pending = next;
+        }
+
+        List<ItemResult> resultList = Arrays.asList(results);
+        long created = resultList.stream().filter(ItemResult::created).count();
+        long failed = resultList.stream().filter(result -> result.error() != null).count();
+        urlMetrics.created(created);
+        urlMetrics.deduplicated(originalUrls.size() - created - failed);
+        urlMetrics.collisions(collisions);
+        log.info("Batch shortened: urls={}, created={}, failed={}, collisions={}, duration={}ms",
+                originalUrls.size(), created, failed, collisions, System.currentTimeMillis() - startTime);
+        return resultList;
+    }
+
+    /**
+     * Decide, in input order, what happens to each pending URL's current candidate code.
+     * Owners come from the off-heap index when it can answer, otherwise from chunked IN
+     * queries; the first URL in the batch to find a code free claims it, unless the index
+     * knows the URL collided before and it already holds one of its later probes.
+     */
+    private Round allocate(List<Integer> pending, List<String> originalUrls, String[] codes, int[] probes,
+                           long[] fingerprints, boolean checkDatabase) {
+        boolean useIndex = offHeapUrlIndex.answersOwnership() && !checkDatabase;
+        Map<String, String> storedUrls = useIndex
+                ? Map.of()
+                : urlJdbcRepository.findOriginalUrlsByShortenedUrls(
+                        pending.stream().map(i -> codes[i]).distinct().toList());
+
+        Round round = new Round();
+        for (int i : pending) {
+            String code = codes[i];
+            Integer claimant = round.claims.get(code);
+            if (claimant != null) {
+                if (OffHeapUrlIndex.sameUrl(originalUrls.get(claimant), originalUrls.get(i))) {
+                    round.sharers.add(i);
+                } else {
+                    round.collided.add(i);
+                }
+                continue;
+            }
+
+            OffHeapUrlIndex.Owner owner;
+            if (useIndex) {
+                owner = offHeapUrlIndex.ownerOf(code, fingerprints[i]);
+            } else {
+                String storedUrl = storedUrls.get(code);
+                owner = storedUrl == null ? OffHeapUrlIndex.Owner.FREE
+                        : OffHeapUrlIndex.sameUrl(storedUrl, originalUrls.get(i)) ? OffHeapUrlIndex.Owner.SAME
+                        : OffHeapUrlIndex.Owner.OTHER;
+            }
+            switch (owner) {
+                case FREE -> round.claims.put(code, i);
+                case SAME -> round.existing.add(i);
+                case OTHER -> round.collided.add(i);
+                case UNKNOWN -> throw new IllegalStateException("Off-heap index cannot answer for " + code);
+            }
+        }
+        if (useIndex) {
+            findAtLaterProbes(round, originalUrls, codes, probes, fingerprints);
+            confirmExisting(round, originalUrls, codes);
+        }
+        return round;
+    }
+
+    /**
+     * Check the codes the index matched by fingerprint against the stored rows, as a
+     * single create does, so a fingerprint collision or a stale entry never hands a URL
+     * another URL's code. URLs whose row is not there are left for the database to settle.
+     */
+    private void confirmExisting(Round round, List<String> originalUrls, String[] codes) {
+        if (round.existing.isEmpty()) {
+            return;
+        }
+        Map<String, String> storedUrls = urlJdbcRepository.findOriginalUrlsByShortenedUrls(
+                round.existing.stream().map(i -> codes[i]).distinct().toList());
+        round.existing.removeIf(i -> {
+            String storedUrl = storedUrls.get(codes[i]);
+            return (storedUrl == null || !OffHeapUrlIndex.sameUrl(storedUrl, originalUrls.get(i)))
+                    && round.unconfirmed.add(i);
+        });
+    }
+
+    /**
+     * Move claiming URLs that already hold a later probe over to that code. A URL that
+     * collided when it was created sits at a later probe, and the code it collided
+     * with frees up once its owner is deleted; claiming that code would give the URL
+     * a second row. Only URLs the index knows collided are checked.
+     */
+    private void findAtLaterProbes(Round round, List<String> originalUrls, String[] codes, int[] probes,
+                                   long[] fingerprints) {
+        List<Integer> collided = round.claims.values().stream()
+                .filter(i -> offHeapUrlIndex.hasCollided(fingerprints[i]))
+                .toList();
+        for (int i : collided) {
+            for (int probe = probes[i] + 1; probe < maxProbes; probe++) {
+                String code;
+                try {
+                    code = urlShortenerService.generateShortenedCode(originalUrls.get(i), probe);
+                } catch (RuntimeException e) {
+                    // A probe that yields no code was never held
+                    continue;
+                }
+                if (offHeapUrlIndex.ownerOf(code, fingerprints[i]) == OffHeapUrlIndex.Owner.SAME) {
+                    moveToExisting(round, i, code, probe, codes, probes);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Drop a claim in favour of a code the URL already holds, taking its repeats along
+    private static void moveToExisting(Round round, int claimer, String heldCode, int heldProbe,
+                                       String[] codes, int[] probes) {
+        String claimedCode = codes[claimer];
+        round.claims.remove(claimedCode);
+        List<Integer> moved = new ArrayList<>();
+        moved.add(claimer);
+        round.sharers.removeIf(i -> codes[i].equals(claimedCode) && moved.add(i));
+        for (int i : moved) {
+            codes[i] = heldCode;
+            probes[i] = heldProbe;
+            round.existing.add(i);
+        }
+    }
+
+    /**
+     * Insert the claimed codes as one batch
+     * @return false if a concurrent create inserted one of them first, in which case nothing was inserted
+     */
+    private boolean insert(Map<String, Integer> claims, List<String> originalUrls) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NewUrl> newUrls = new ArrayList<>(claims.size());
+        claims.forEach((code, i) -> newUrls.add(new NewUrl(originalUrls.get(i), code, now)));
+
+        try {
+            urlJdbcRepository.insertAll(newUrls);
+        } catch (DuplicateKeyException e) {
+            log.debug("Batch insert raced a concurrent create, retrying: codes={}", newUrls.size());
+            return false;
+        }
+
+        if (!newUrls.isEmpty()) {
+            eventPublisher.publishEvent(new UrlsCreatedEvent(newUrls.stream()
+                    .map(newUrl -> new CreatedUrl(newUrl.shortenedUrl(), newUrl.originalUrl(), 0,
+                            newUrl.createdAt(), newUrl.createdAt()))
+                    .toList()));
+        }
+        return true;
+    }
+
+    // Indexes into the batch, by what one allocation round decided for them
+    private static final class Round {
+
+        // Code to the first URL that found it free
+        private final Map<String, Integer> claims = new LinkedHashMap<>();
+        // Repeats of a claiming URL within the batch
+        private final List<Integer> sharers = new ArrayList<>();
+        // URLs whose code already holds them
+        private final List<Integer> existing = new ArrayList<>();
+        // URLs whose code a different URL owns
+        private final List<Integer> collided = new ArrayList<>();
+        // URLs the index matched to a code whose row does not hold them
+        private final List<Integer> unconfirmed = new ArrayList<>();
+    }
+
+    /**
+     * Outcome for one URL of a batch
+     * @param originalUrl the URL as submitted
+     * @param shortenedCode the code, or null if the item failed
+     * @param created true if this batch inserted the code
+     * @param error the failure reason, or null on success
+     */
+    public record ItemResult(String originalUrl, String shortenedCode, boolean created, String error) {
+
+        static ItemResult failed(String originalUrl, String error) {
+            return new ItemResult(originalUrl, null, false, error);
+        }
+    }
+}
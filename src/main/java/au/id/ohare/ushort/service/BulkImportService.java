@@ -0,0 +1,264 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.config.ThreadFactories;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams URLs from NDJSON or CSV input into the urls table. Lines are parsed
+ * incrementally into chunks that a writer thread shortens through
+ * {@link BatchShorteningService}; the bounded hand-off queue makes the reader wait
+ * whenever the writer falls behind, so memory stays at a few chunks regardless of
+ * input size.
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final int MAX_ERROR_SAMPLES = 20;
+    private static final List<String> END_OF_INPUT = List.of();
+
+    private final BatchShorteningService batchShorteningService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final long progressInterval;
+    private final boolean virtualThreads;
+
+    public BulkImportService(BatchShorteningService batchShorteningService,
+                             ObjectMapper objectMapper,
+                             @Value("${app.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.import.queue-capacity:4}") int queueCapacity,
+                             @Value("${app.import.progress-interval:100000}") long progressInterval,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.batchShorteningService = batchShorteningService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.progressInterval = progressInterval;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * Pick a format from a content type or file name, defaulting to NDJSON
+         */
+        public static Format detect(String contentTypeOrFileName) {
+            if (contentTypeOrFileName != null && contentTypeOrFileName.toLowerCase().contains("csv")) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+
+    /**
+     * Import every URL from the input
+     * @param reader the input, read line by line and never buffered whole
+     * @param format NDJSON objects with a "url" field, or CSV with the URL in the first column
+     * @return counts and throughput for the import
+     */
+    public ImportReport importUrls(Reader reader, Format format) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Progress progress = new Progress();
+        BlockingQueue<List<String>> chunks = new ArrayBlockingQueue<>(queueCapacity);
+
+        ExecutorService writer = Executors.newSingleThreadExecutor(
+                ThreadFactories.named("bulk-import-writer", virtualThreads));
+        Future<?> writerResult = writer.submit(() -> writeChunks(chunks, progress, startTime));
+
+        try (BufferedReader lines = new BufferedReader(reader)) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String url = parseLine(line, lineNumber, format, progress);
+                if (url == null) {
+                    continue;
+                }
+                chunk.add(url);
+                if (chunk.size() == chunkSize) {
+                    handOff(chunks, chunk, writerResult);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                handOff(chunks, chunk, writerResult);
+            }
+            handOff(chunks, END_OF_INPUT, writerResult);
+            writerResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerResult.cancel(true);
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            writer.shutdownNow();
+        }
+
+        ImportReport report = progress.toReport(System.currentTimeMillis() - startTime);
+        log.info("Bulk import complete: read={}, created={}, existing={}, failed={}, duration={}ms, rate={}/s",
+                report.read(), report.created(), report.existing(), report.failed(), report.durationMs(),
+                report.urlsPerSecond());
+        return report;
+    }
+
+    private String parseLine(String line, long lineNumber, Format format, Progress progress) {
+        try {
+            String url;
+            if (format == Format.CSV) {
+                url = firstCsvColumn(line);
+                if (lineNumber == 1 && "url".equalsIgnoreCase(url)) {
+                    return null;
+                }
+            } else {
+                JsonNode node = objectMapper.readTree(line);
+                url = node.path("url").asText(null);
+            }
+            if (url == null || url.isBlank()) {
+                progress.fail(lineNumber, "missing url");
+                return null;
+            }
+            progress.read.incrementAndGet();
+            return url;
+        } catch (IOException e) {
+            progress.fail(lineNumber, "unparseable line");
+            return null;
+        }
+    }
+
+    private static String firstCsvColumn(String line) {
+        if (!line.startsWith("\"")) {
+            int comma = line.indexOf(',');
+            return (comma >= 0 ? line.substring(0, comma) : line).trim();
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+
+    private void handOff(BlockingQueue<List<String>> chunks, List<String> chunk, Future<?> writerResult)
+            throws InterruptedException, ExecutionException {
+        // Blocks while the queue is full; bail out if the writer died rather than waiting forever
+        while (!chunks.offer(chunk, 1, TimeUnit.SECONDS)) {
+            if (writerResult.isDone()) {
+                writerResult.get();
+                throw new IllegalStateException("Import writer stopped unexpectedly");
+            }
+        }
+    }
+
+    private void writeChunks(BlockingQueue<List<String>> chunks, Progress progress, long startTime) {
+        try {
+            long nextProgressLog = progressInterval;
+            while (true) {
+                List<String> chunk = chunks.take();
+                if (chunk == END_OF_INPUT) {
+                    return;
+                }
+                for (BatchShorteningService.ItemResult result : batchShorteningService.shortenAll(chunk)) {
+                    if (result.error() != null) {
+                        progress.fail(-1, result.originalUrl() + ": " + result.error());
+                    } else if (result.created()) {
+                        progress.created.incrementAndGet();
+                    } else {
+                        progress.existing.incrementAndGet();
+                    }
+                }
+                long written = progress.created.get() + progress.existing.get();
+                if (written >= nextProgressLog) {
+                    long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                    log.info("Bulk import progress: written={}, failed={}, rate={}/s",
+                            written, progress.failed.get(), written * 1000 / elapsed);
+                    nextProgressLog += progressInterval;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Progress {
+
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong existing = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<String> errorSamples = new ArrayList<>();
+        // A lock rather than synchronized, which would pin a virtual thread to its carrier
+        private final ReentrantLock errorSamplesLock = new ReentrantLock();
+
+        void fail(long lineNumber, String reason) {
+            failed.incrementAndGet();
+            errorSamplesLock.lock();
+            try {
+                if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                    errorSamples.add(lineNumber > 0 ? "line " + lineNumber + ": " + reason : reason);
+                }
+            } finally {
+                errorSamplesLock.unlock();
+            }
+        }
+
+        ImportReport toReport(long durationMs) {
+            long written = created.get() + existing.get();
+            errorSamplesLock.lock();
+            try {
+                return new ImportReport(read.get(), created.get(), existing.get(), failed.get(), durationMs,
+                        written * 1000 / Math.max(1, durationMs), List.copyOf(errorSamples));
+            } finally {
+                errorSamplesLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Outcome of an import
+     * @param read URLs parsed from the input
+     * @param created rows inserted
+     * @param existing URLs that were already shortened
+     * @param failed lines or URLs that could not be imported
+     * @param durationMs wall-clock duration
+     * @param urlsPerSecond throughput over the whole import
+     * @param errorSamples the first few failure reasons
+     */
+    public record ImportReport(long read, long created, long existing, long failed, long durationMs,
+                               long urlsPerSecond, List<String> errorSamples) {
+    }
+}
@@ -0,0 +1,147 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.ExpiredChunk;
+import au.id.ohare.ushort.service.ExpiryTimingWheel.ExpiredCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background deletion of URLs not accessed within the TTL. Each run deletes expired
+ * rows in bounded chunks, each its own short transaction, and pauses between chunks
+ * so redirects and access-count flushes are never stuck behind one large delete.
+ * Expired codes come from the {@link ExpiryTimingWheel} once it is built, and from a
+ * last_accessed range query until then. A sweep that leaves the
+ * {@link ShortCodeBloomFilter} holding too many deleted codes rebuilds it.
+ */
+@Slf4j
+@Component
+public class ExpirySweeper {
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final AccessCountAggregator accessCountAggregator;
+    private final ExpiryTimingWheel expiryTimingWheel;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int ttlDays;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    private final Counter deletedRows;
+    private final Timer sweepTimer;
+
+    public ExpirySweeper(UrlJdbcRepository urlJdbcRepository,
+                         AccessCountAggregator accessCountAggregator,
+                         ExpiryTimingWheel expiryTimingWheel,
+                         ShortCodeBloomFilter shortCodeBloomFilter,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.ttl-days:90}") int ttlDays,
+                         @Value("${app.expiry.chunk-size:1000}") int chunkSize,
+                         @Value("${app.expiry.chunk-pause-ms:20}") long chunkPauseMs) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.accessCountAggregator = accessCountAggregator;
+        this.expiryTimingWheel = expiryTimingWheel;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.eventPublisher = eventPublisher;
+        this.ttlDays = ttlDays;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+
+        this.deletedRows = Counter.builder("ushort.expiry.deleted")
+                .description("Expired URLs deleted by the background sweeper")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("ushort.expiry.sweep")
+                .description("Duration of a full expiry sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.expiry.sweep-interval-ms:3600000}",
+               fixedDelayString = "${app.expiry.sweep-interval-ms:3600000}")
+    public void scheduledSweep() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Expiry sweep failed: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete every URL last accessed more than the TTL ago
+     * @return number of rows deleted
+     */
+    public long sweep() {
+        long startTime = System.nanoTime();
+        // Apply pending clicks first so recently used URLs are not judged by a stale last_accessed
+        accessCountAggregator.flush();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ttlDays);
+
+        long deleted = 0;
+        int chunks = 0;
+        boolean fromWheel = expiryTimingWheel.isReady();
+        try {
+            while (true) {
+                ExpiredChunk chunk;
+                if (fromWheel) {
+                    ExpiredCodes expired = expiryTimingWheel.takeExpired(cutoff, chunkSize);
+                    try {
+                        chunk = urlJdbcRepository.deleteExpired(expired.codes(), cutoff);
+                    } catch (RuntimeException e) {
+                        // The rows are still there, so the wheel must keep them for the next sweep
+                        expiryTimingWheel.putBack(expired);
+                        throw e;
+                    }
+                } else {
+                    chunk = urlJdbcRepository.deleteExpired(cutoff, chunkSize);
+                }
+                if (chunk.selected() == 0) {
+                    break;
+                }
+
+                if (!chunk.goneUrls().isEmpty()) {
+                    eventPublisher.publishEvent(new UrlsDeletedEvent(chunk.goneUrls()));
+                }
+                deletedRows.increment(chunk.deleted());
+                deleted += chunk.deleted();
+                chunks++;
+                if (chunk.selected() < chunkSize || !pauseBetweenChunks()) {
+                    break;
+                }
+            }
+        } finally {
+            sweepTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+
+        if (deleted > 0) {
+            log.info("Expiry sweep complete: deleted={}, chunks={}, cutoff={}, fromWheel={}, duration={}ms",
+                    deleted, chunks, cutoff, fromWheel, (System.nanoTime() - startTime) / 1_000_000);
+        } else {
+            log.debug("Expiry sweep found no expired URLs: cutoff={}", cutoff);
+        }
+        shortCodeBloomFilter.rebuildIfStale();
+        return deleted;
+    }
+
+    private boolean pauseBetweenChunks() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("Expiry sweep interrupted between chunks");
+            return false;
+        }
+    }
+}
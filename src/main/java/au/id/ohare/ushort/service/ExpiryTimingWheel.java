@@ -0,0 +1,402 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.AccessCountsFlushedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Timing wheel of every live shortcode, bucketed by the day it was last accessed, so
+ * expiry can take whole days of codes at once instead of range-scanning
+ * last_accessed. The wheel is a ring of ttl-days + 2 day buckets: last access never
+ * lies in the future and anything older than the TTL is due, so a single level covers
+ * every live code and no coarser levels are needed. Codes older than the day now
+ * occupying their slot sit on an overdue list that the next drain empties first.
+ * <p>
+ * Codes are kept as packed longs in an open-addressing table whose entries are
+ * threaded onto their bucket with intrusive index links, so moving a code between
+ * days is O(1) and costs about 20 bytes per table slot (roughly 40 MB at one million
+ * codes). The wheel is fed from flushed access counts rather than the redirect path,
+ * rebuilt from the urls table once the application is ready, and codes too long to
+ * pack fall back to a small map.
+ */
+@Slf4j
+@Component
+public class ExpiryTimingWheel {
+
+    private static final int NIL = -1;
+    private static final int BYTES_PER_SLOT = Long.BYTES + 3 * Integer.BYTES;
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int slotCount;
+    private final int overdueList;
+
+    // Heads of the day bucket lists, plus the overdue list at index slotCount
+    private final int[] heads;
+    private final int[] bucketDays;
+    private final Map<String, Integer> overflow = new HashMap<>();
+
+    private long[] keys;
+    private int[] days;
+    private int[] next;
+    // Previous entry, or headMarker(list) for the first entry of a list
+    private int[] prev;
+    private int mask;
+    private int size;
+    private int used;
+    // Codes deleted while a rebuild is loading, so the load does not bring them back
+    private Set<String> deletedDuringRebuild;
+    private volatile boolean ready;
+
+    public ExpiryTimingWheel(UrlJdbcRepository urlJdbcRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.ttl-days:90}") int ttlDays,
+                             @Value("${app.expiry.wheel.initial-capacity:65536}") int initialCapacity) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.slotCount = ttlDays + 2;
+        this.overdueList = slotCount;
+        this.heads = new int[slotCount + 1];
+        this.bucketDays = new int[slotCount];
+        allocate(PackedCodeTables.capacityFor(initialCapacity));
+
+        Gauge.builder("ushort.expiry.wheel.codes", this, ExpiryTimingWheel::size)
+                .description("Shortcodes tracked by the expiry timing wheel")
+                .register(meterRegistry);
+        Gauge.builder("ushort.expiry.wheel.memory", this, wheel -> wheel.memoryBytes())
+                .description("Memory held by the expiry timing wheel's table")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record that a code was accessed. A code only ever moves to a later day.
+     * @param shortenedCode the shortened URL code
+     * @param lastAccessed the access time
+     */
+    public void touch(String shortenedCode, LocalDateTime lastAccessed) {
+        touch(shortenedCode, toDay(lastAccessed), false);
+    }
+
+    public void remove(String shortenedCode) {
+        long packed = ShortCodes.pack(shortenedCode);
+        lock.lock();
+        try {
+            if (deletedDuringRebuild != null) {
+                deletedDuringRebuild.add(shortenedCode);
+            }
+            if (packed == ShortCodes.NOT_PACKABLE) {
+                overflow.remove(shortenedCode);
+                return;
+            }
+            int index = find(packed);
+            if (index != NIL) {
+                removeAt(index);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove and return codes from every day bucket that lies entirely before the cutoff
+     * @param cutoff codes last accessed before this are expired
+     * @param limit maximum number of codes to take
+     * @return the expired codes, now no longer tracked, with the day each was taken from
+     */
+    public ExpiredCodes takeExpired(LocalDateTime cutoff, int limit) {
+        int cutoffDay = toDay(cutoff);
+        int capacity = Math.min(limit, 1024);
+        ExpiredCodes expired = new ExpiredCodes(new ArrayList<>(capacity), new ArrayList<>(capacity));
+        lock.lock();
+        try {
+            drainList(overdueList, cutoffDay, limit, expired);
+            for (int slot = 0; slot < slotCount && expired.size() < limit; slot++) {
+                if (heads[slot] != NIL && bucketDays[slot] < cutoffDay) {
+                    drainList(slot, cutoffDay, limit, expired);
+                }
+            }
+            Iterator<Map.Entry<String, Integer>> overflowEntries = overflow.entrySet().iterator();
+            while (overflowEntries.hasNext() && expired.size() < limit) {
+                Map.Entry<String, Integer> entry = overflowEntries.next();
+                if (entry.getValue() < cutoffDay) {
+                    expired.add(entry.getKey(), entry.getValue());
+                    overflowEntries.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * Track taken codes again under the day they were taken from, for when deleting them
+     * failed. A code accessed since keeps its later day.
+     * @param expired codes returned by {@link #takeExpired}
+     */
+    public void putBack(ExpiredCodes expired) {
+        for (int i = 0; i < expired.size(); i++) {
+            touch(expired.codes().get(i), expired.days().get(i), false);
+        }
+    }
+
+    /**
+     * Repopulate the wheel from the urls table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        lock.lock();
+        try {
+            allocate(keys.length);
+            overflow.clear();
+            deletedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            urlJdbcRepository.forEachLastAccessed(
+                    (shortenedCode, lastAccessed) -> touch(shortenedCode, toDay(lastAccessed), true));
+        } finally {
+            lock.lock();
+            try {
+                deletedDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        ready = true;
+        log.info("Expiry timing wheel rebuilt: codes={}, memoryBytes={}, duration={}ms",
+                size(), memoryBytes(), System.currentTimeMillis() - startTime);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsCreated(UrlsCreatedEvent event) {
+        event.urls().forEach(url -> touch(url.shortenedUrl(), url.lastAccessed()));
+    }
+
+    @EventListener
+    public void onAccessCountsFlushed(AccessCountsFlushedEvent event) {
+        event.deltas().forEach(delta -> touch(delta.shortenedUrl(), delta.lastAccessed()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsDeleted(UrlsDeletedEvent event) {
+        event.shortenedCodes().forEach(this::remove);
+    }
+
+    /**
+     * @return true once the startup rebuild has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size + overflow.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long memoryBytes() {
+        lock.lock();
+        try {
+            return (long) keys.length * BYTES_PER_SLOT;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void touch(String shortenedCode, int day, boolean loading) {
+        long packed = ShortCodes.pack(shortenedCode);
+        lock.lock();
+        try {
+            if (loading && deletedDuringRebuild != null && deletedDuringRebuild.contains(shortenedCode)) {
+                return;
+            }
+            if (packed == ShortCodes.NOT_PACKABLE) {
+                overflow.merge(shortenedCode, day, Math::max);
+                return;
+            }
+            int index = find(packed);
+            if (index == NIL) {
+                insert(packed, day);
+            } else if (days[index] < day) {
+                unlink(index);
+                days[index] = day;
+                link(index);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainList(int list, int cutoffDay, int limit, ExpiredCodes expired) {
+        int index = heads[list];
+        while (index != NIL && expired.size() < limit) {
+            int following = next[index];
+            if (days[index] < cutoffDay) {
+                expired.add(ShortCodes.unpack(keys[index]), days[index]);
+                removeAt(index);
+            }
+            index = following;
+        }
+    }
+
+    private int find(long packed) {
+        for (int index = PackedCodeTables.slotFor(packed, mask); ; index = (index + 1) & mask) {
+            long key = keys[index];
+            if (key == packed) {
+                return index;
+            }
+            if (key == PackedCodeTables.EMPTY) {
+                return NIL;
+            }
+        }
+    }
+
+    private void insert(long packed, int day) {
+        if (PackedCodeTables.needsResize(used, keys.length)) {
+            resize();
+        }
+        int index = PackedCodeTables.slotFor(packed, mask);
+        while (keys[index] != PackedCodeTables.EMPTY && keys[index] != PackedCodeTables.DELETED) {
+            index = (index + 1) & mask;
+        }
+        if (keys[index] == PackedCodeTables.EMPTY) {
+            used++;
+        }
+        keys[index] = packed;
+        days[index] = day;
+        size++;
+        link(index);
+    }
+
+    private void removeAt(int index) {
+        unlink(index);
+        keys[index] = PackedCodeTables.DELETED;
+        size--;
+    }
+
+    private void link(int index) {
+        pushFront(index, listFor(days[index]));
+    }
+
+    private int listFor(int day) {
+        int slot = Math.floorMod(day, slotCount);
+        if (heads[slot] == NIL || bucketDays[slot] == day) {
+            bucketDays[slot] = day;
+            return slot;
+        }
+        if (bucketDays[slot] > day) {
+            // A whole ring older than the day in its slot, so long expired
+            return overdueList;
+        }
+        // The slot still holds a day the ring has come round past; those codes are overdue
+        while (heads[slot] != NIL) {
+            int stale = heads[slot];
+            unlink(stale);
+            pushFront(stale, overdueList);
+        }
+        bucketDays[slot] = day;
+        return slot;
+    }
+
+    private void pushFront(int index, int list) {
+        int head = heads[list];
+        next[index] = head;
+        prev[index] = headMarker(list);
+        if (head != NIL) {
+            prev[head] = index;
+        }
+        heads[list] = index;
+    }
+
+    private void unlink(int index) {
+        int before = prev[index];
+        int after = next[index];
+        if (before >= 0) {
+            next[before] = after;
+        } else {
+            heads[-2 - before] = after;
+        }
+        if (after != NIL) {
+            prev[after] = before;
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldDays = days;
+        allocate(PackedCodeTables.resizedCapacity(size, oldKeys.length));
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != PackedCodeTables.EMPTY && oldKeys[i] != PackedCodeTables.DELETED) {
+                insert(oldKeys[i], oldDays[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        days = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        used = 0;
+        Arrays.fill(heads, NIL);
+    }
+
+    private static int headMarker(int list) {
+        return -2 - list;
+    }
+
+    private static int toDay(LocalDateTime dateTime) {
+        return (int) dateTime.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Codes taken from the wheel, each with the day bucket it was taken from
+     * @param codes the expired codes
+     * @param days the last access day of each code, by position
+     */
+    public record ExpiredCodes(List<String> codes, List<Integer> days) {
+
+        private void add(String code, int day) {
+            codes.add(code);
+            days.add(day);
+        }
+
+        public int size() {
+            return codes.size();
+        }
+
+        public boolean isEmpty() {
+            return codes.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.config.ThreadFactories;
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent.CreatedUrl;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single creates. Requests queue their row and wait; one writer
+ * thread takes whatever has queued, keeps collecting for up to a commit window or
+ * until the batch is full, and writes the lot as one multi-row INSERT in one
+ * transaction. Every waiting request completes once its batch has committed and the
+ * create event has reached the in-memory indexes, so under concurrency many creates
+ * share one statement and one commit instead of a JPA transaction each.
+ */
+@Slf4j
+@Component
+public class GroupCommitWriter {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<PendingInsert> queue;
+    private final Thread writer;
+    private final DistributionSummary batchSizes;
+    private final Timer commitTimer;
+    private volatile boolean running;
+
+    public GroupCommitWriter(UrlJdbcRepository urlJdbcRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.group-commit.enabled:true}") boolean enabled,
+                             @Value("${app.group-commit.max-batch-size:256}") int maxBatchSize,
+                             @Value("${app.group-commit.window-micros:200}") long windowMicros,
+                             @Value("${app.group-commit.queue-capacity:4096}") int queueCapacity,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Group commit batch size must be at least 1: " + maxBatchSize);
+        }
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        this.batchSizes = DistributionSummary.builder("ushort.group_commit.batch_size")
+                .description("Rows written per group commit")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("ushort.group_commit.commit")
+                .description("Time to insert and commit one group of rows")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+        Gauge.builder("ushort.group_commit.queued", queue, BlockingQueue::size)
+                .description("Creates waiting for the next group commit")
+                .register(meterRegistry);
+
+        this.writer = ThreadFactories.named("group-commit-writer", virtualThreads).newThread(this::write);
+        if (enabled) {
+            running = true;
+            writer.start();
+            log.info("Group commit writer started: maxBatchSize={}, windowMicros={}, queueCapacity={}",
+                    maxBatchSize, windowMicros, queueCapacity);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a row and wait until the group it joins has committed. Waits for queue
+     * space when the writer is behind.
+     * @throws DataIntegrityViolationException if the shortcode already exists
+     */
+    public void insert(NewUrl newUrl) {
+        if (!running) {
+            throw new IllegalStateException("Group commit writer is not running");
+        }
+        PendingInsert pending = new PendingInsert(newUrl, new CompletableFuture<>());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing insert", e);
+        }
+        // Queued after the writer exited and shutdown drained the queue: nobody would complete it.
+        // If the remove misses, the writer or the drain already has the row and will complete it
+        if (!running && queue.remove(pending)) {
+            throw new IllegalStateException("Group commit writer is not running");
+        }
+
+        try {
+            pending.committed().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void write() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        int previousSize = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // A lone client would only wait out the window; under load rows pile up during each commit anyway
+                long deadline = System.nanoTime() + (previousSize > 1 ? windowNanos : 0);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingInsert next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                previousSize = batch.size();
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingInsert> batch) {
+        long startNanos = System.nanoTime();
+        try {
+            urlJdbcRepository.insertMultiRow(batch.stream().map(PendingInsert::newUrl).toList());
+            committed(batch);
+        } catch (DataIntegrityViolationException e) {
+            // One duplicate fails the whole statement; retry row by row so only its own request fails
+            log.debug("Group commit hit a duplicate shortcode, retrying row by row: rows={}", batch.size());
+            for (PendingInsert pending : batch) {
+                try {
+                    urlJdbcRepository.insertMultiRow(List.of(pending.newUrl()));
+                    committed(List.of(pending));
+                } catch (RuntimeException rowFailure) {
+                    pending.committed().completeExceptionally(rowFailure);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Group commit failed: rows={}, error={}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.committed().completeExceptionally(e));
+        }
+        commitTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+    }
+
+    private void committed(List<PendingInsert> batch) {
+        try {
+            // No transaction is active here, so index listeners run before anyone is released
+            eventPublisher.publishEvent(new UrlsCreatedEvent(batch.stream()
+                    .map(pending -> new CreatedUrl(pending.newUrl().shortenedUrl(), pending.newUrl().originalUrl(), 0,
+                            pending.newUrl().createdAt(), pending.newUrl().createdAt()))
+                    .toList()));
+        } catch (RuntimeException e) {
+            log.warn("Publishing created URLs failed: rows={}, error={}", batch.size(), e.getMessage(), e);
+        } finally {
+            batch.forEach(pending -> pending.committed().complete(null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Fail whatever the writer left behind, or everything if it is still stuck in a commit
+        PendingInsert pending;
+        while ((pending = queue.poll()) != null) {
+            pending.committed().completeExceptionally(new IllegalStateException("Group commit writer stopped"));
+        }
+        log.info("Group commit writer stopped: commits={}, rows={}",
+                batchSizes.count(), (long) batchSizes.totalAmount());
+    }
+
+    private record PendingInsert(NewUrl newUrl, CompletableFuture<Void> committed) {
+    }
+}
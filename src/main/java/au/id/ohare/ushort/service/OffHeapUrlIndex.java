@@ -0,0 +1,612 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.AccessCountsFlushedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.AccessDelta;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Index of every live URL held outside the Java heap, so the redirect path can
+ * resolve a code without Hibernate, String keys or boxed fields. An open-addressing
+ * table in a direct buffer maps each packed shortcode to its URL's bytes in an
+ * append-only arena, alongside the access count and last access time as primitives.
+ * {@link #resolve} allocates nothing; only decoding the URL it points at does.
+ * <pre>
+ * slot (40 bytes): long packed code, int arena offset, int url length,
+ *                  long access count, long last accessed epoch millis,
+ *                  long url fingerprint
+ * </pre>
+ * The fingerprint also lets shortening ask {@link #ownerOf} whether a candidate code
+ * is free, already this URL's, or a collision with another URL, without a query.
+ * Fingerprints of URLs stored past their first probe are also kept, so that only
+ * those URLs need their later probes checked when an earlier code frees up.
+ * <p>
+ * The index is rebuilt from the urls table once the application is ready, then kept
+ * current from committed creates, deletes and flushed access counts. Arena space
+ * left by deleted URLs is reclaimed by compacting once it outweighs live data.
+ */
+@Slf4j
+@Component
+public class OffHeapUrlIndex {
+
+    /**
+     * The code is not in the index, and so does not exist
+     */
+    public static final long MISSING = -1L;
+
+    /**
+     * The code exists but has not been accessed within the TTL
+     */
+    public static final long EXPIRED = -2L;
+
+    /**
+     * The index cannot answer for this code; look it up in the database
+     */
+    public static final long NOT_INDEXED = -3L;
+
+    public enum Owner {
+        /** No URL holds the code */
+        FREE,
+        /** The code belongs to the same URL */
+        SAME,
+        /** The code belongs to a different URL */
+        OTHER,
+        /** The index cannot answer; check the database */
+        UNKNOWN
+    }
+
+    private static final int SLOT_BYTES = 40;
+    private static final int KEY = 0;
+    private static final int URL_OFFSET = 8;
+    private static final int URL_LENGTH = 12;
+    private static final int ACCESS_COUNT = 16;
+    private static final int LAST_ACCESSED = 24;
+    private static final int FINGERPRINT = 32;
+    // URL length recorded for codes whose URL is too long to keep in the arena
+    private static final int NOT_STORED = -1;
+    private static final int MAX_URL_BYTES = 0xFFFF;
+    private static final int GENERATION_MASK = 0x7FFF;
+    private static final int MIN_ARENA_BYTES = 1 << 16;
+    private static final int MAX_BUFFER_BYTES = Integer.MAX_VALUE - 8;
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final UrlShortenerService urlShortenerService;
+    private final boolean enabled;
+    private final boolean ownershipEnabled;
+    private final long ttlMillis;
+    private final int initialCapacity;
+    private final StampedLock lock = new StampedLock();
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+    private int used;
+    private ByteBuffer arena;
+    private int arenaUsed;
+    private long garbageBytes;
+    // Bumped by every arena compaction, invalidating references handed out before it
+    private int generation;
+    // Codes deleted while a rebuild is loading, so the load does not bring them back
+    private Set<Long> deletedDuringRebuild;
+    // Fingerprints of URLs stored at a probe past 0; kept after deletes, which only costs a later check
+    private Set<Long> collidedUrls = new HashSet<>();
+    private volatile boolean ready;
+
+    public OffHeapUrlIndex(UrlJdbcRepository urlJdbcRepository,
+                           UrlShortenerService urlShortenerService,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.index.enabled:true}") boolean enabled,
+                           @Value("${app.ownership-index.enabled:true}") boolean ownershipEnabled,
+                           @Value("${app.ttl-days:90}") int ttlDays,
+                           @Value("${app.index.initial-capacity:65536}") int initialCapacity) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.urlShortenerService = urlShortenerService;
+        this.enabled = enabled;
+        this.ownershipEnabled = ownershipEnabled;
+        this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+        this.initialCapacity = initialCapacity;
+        allocate(PackedCodeTables.capacityFor(initialCapacity));
+        this.arena = ByteBuffer.allocateDirect(MIN_ARENA_BYTES);
+
+        Gauge.builder("ushort.index.urls", this, OffHeapUrlIndex::size)
+                .description("URLs held by the off-heap redirect index")
+                .register(meterRegistry);
+        Gauge.builder("ushort.index.memory", this, index -> index.memoryBytes())
+                .description("Off-heap memory reserved by the redirect index's table and URL arena")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resolve a code without allocating
+     * @param shortenedCode the shortened URL code
+     * @param nowMillis the current epoch millis, for the TTL check
+     * @return a reference to pass to {@link #originalUrl}, or {@link #MISSING},
+     *         {@link #EXPIRED} or {@link #NOT_INDEXED}
+     */
+    public long resolve(CharSequence shortenedCode, long nowMillis) {
+        long packed = ShortCodes.pack(shortenedCode);
+        if (packed == ShortCodes.NOT_PACKABLE) {
+            return NOT_INDEXED;
+        }
+        long stamp = lock.readLock();
+        try {
+            int slot = find(packed);
+            if (slot < 0) {
+                return MISSING;
+            }
+            int base = slot * SLOT_BYTES;
+            int length = table.getInt(base + URL_LENGTH);
+            if (length == NOT_STORED) {
+                return NOT_INDEXED;
+            }
+            if (nowMillis - table.getLong(base + LAST_ACCESSED) > ttlMillis) {
+                return EXPIRED;
+            }
+            return ((long) generation << 48) | ((long) length << 32) | table.getInt(base + URL_OFFSET);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Fingerprint of a URL as shortcodes are generated from it: trimmed, then hashed
+     * to 64 bits (FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mix)
+     */
+    public static long fingerprint(String originalUrl) {
+        String trimmed = originalUrl.trim();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < trimmed.length(); i++) {
+            hash ^= trimmed.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb34fe1a85ec9L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * @return true if both URLs shorten to the same code by construction
+     */
+    public static boolean sameUrl(String storedUrl, String originalUrl) {
+        return storedUrl.trim().equals(originalUrl.trim());
+    }
+
+    /**
+     * Who holds a candidate code, so shortening can tell a repeat of the same URL from
+     * a different URL whose hash landed on the same code. Expired codes still count as
+     * held until their rows are deleted.
+     * @param shortenedCode a candidate code
+     * @param fingerprint {@link #fingerprint} of the URL being shortened
+     * @return {@link Owner#UNKNOWN} until the index is built, or when ownership answers
+     *         are disabled
+     */
+    public Owner ownerOf(CharSequence shortenedCode, long fingerprint) {
+        long packed = ShortCodes.pack(shortenedCode);
+        if (!ownershipEnabled || !ready || packed == ShortCodes.NOT_PACKABLE) {
+            return Owner.UNKNOWN;
+        }
+        long stamp = lock.readLock();
+        try {
+            int slot = find(packed);
+            if (slot < 0) {
+                return Owner.FREE;
+            }
+            return table.getLong(slot * SLOT_BYTES + FINGERPRINT) == fingerprint ? Owner.SAME : Owner.OTHER;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Record that a URL was stored at a probe past 0 because an earlier code was taken
+     * @param fingerprint {@link #fingerprint} of the URL
+     */
+    public void markCollided(long fingerprint) {
+        if (!ownershipEnabled) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            collidedUrls.add(fingerprint);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param fingerprint {@link #fingerprint} of a URL
+     * @return true if the URL may hold a code past its first probe, so a free earlier
+     *         probe is not necessarily its code; false while ownership is not answered
+     */
+    public boolean hasCollided(long fingerprint) {
+        if (!answersOwnership()) {
+            return false;
+        }
+        long stamp = lock.readLock();
+        try {
+            return collidedUrls.contains(fingerprint);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return true once {@link #ownerOf} answers for every packable code
+     */
+    public boolean answersOwnership() {
+        return ownershipEnabled && ready;
+    }
+
+    /**
+     * Decode the URL a resolved reference points at
+     * @param reference a non-negative value returned by {@link #resolve}
+     * @return the original URL, or null if the arena was compacted since the reference
+     *         was taken and the code must be resolved again
+     */
+    public String originalUrl(long reference) {
+        long stamp = lock.readLock();
+        try {
+            if ((int) (reference >>> 48) != generation) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) (reference >>> 32) & MAX_URL_BYTES];
+            arena.get((int) reference, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param shortenedCode the shortened URL code
+     * @return the access count as of the last flush, or -1 if the code is not indexed
+     */
+    public long accessCount(CharSequence shortenedCode) {
+        long packed = ShortCodes.pack(shortenedCode);
+        if (packed == ShortCodes.NOT_PACKABLE) {
+            return -1;
+        }
+        long stamp = lock.readLock();
+        try {
+            int slot = find(packed);
+            return slot < 0 ? -1 : table.getLong(slot * SLOT_BYTES + ACCESS_COUNT);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Add or replace a URL
+     */
+    public void put(String shortenedCode, String originalUrl, long accessCount, LocalDateTime lastAccessed) {
+        long packed = ShortCodes.pack(shortenedCode);
+        if (packed == ShortCodes.NOT_PACKABLE) {
+            // resolve() sends unpackable codes to the database without a probe
+            return;
+        }
+        byte[] url = originalUrl.getBytes(StandardCharsets.UTF_8);
+        long lastAccessedMillis = toEpochMillis(lastAccessed);
+        long fingerprint = fingerprint(originalUrl);
+        long stamp = lock.writeLock();
+        try {
+            insert(packed, url, accessCount, lastAccessedMillis, fingerprint, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(String shortenedCode) {
+        long packed = ShortCodes.pack(shortenedCode);
+        if (packed == ShortCodes.NOT_PACKABLE) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (deletedDuringRebuild != null) {
+                deletedDuringRebuild.add(packed);
+            }
+            int slot = find(packed);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Repopulate the index from the urls table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            log.info("Off-heap URL index disabled; redirects resolve through the database");
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        long stamp = lock.writeLock();
+        try {
+            allocate(PackedCodeTables.capacityFor(initialCapacity));
+            arena = ByteBuffer.allocateDirect(MIN_ARENA_BYTES);
+            arenaUsed = 0;
+            garbageBytes = 0;
+            generation = (generation + 1) & GENERATION_MASK;
+            deletedDuringRebuild = new HashSet<>();
+            collidedUrls = new HashSet<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        try {
+            urlJdbcRepository.forEachUrl(row -> {
+                long packed = ShortCodes.pack(row.shortenedUrl());
+                if (packed == ShortCodes.NOT_PACKABLE) {
+                    return;
+                }
+                byte[] url = row.originalUrl().getBytes(StandardCharsets.UTF_8);
+                long lastAccessedMillis = toEpochMillis(row.lastAccessed());
+                long fingerprint = fingerprint(row.originalUrl());
+                boolean collided = ownershipEnabled && !isFirstProbe(row.originalUrl(), row.shortenedUrl());
+                long writeStamp = lock.writeLock();
+                try {
+                    insert(packed, url, row.accessCount(), lastAccessedMillis, fingerprint, true);
+                    if (collided) {
+                        collidedUrls.add(fingerprint);
+                    }
+                } finally {
+                    lock.unlockWrite(writeStamp);
+                }
+            });
+        } finally {
+            stamp = lock.writeLock();
+            try {
+                deletedDuringRebuild = null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        ready = true;
+        log.info("Off-heap URL index rebuilt: urls={}, memoryBytes={}, duration={}ms",
+                size(), memoryBytes(), System.currentTimeMillis() - startTime);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsCreated(UrlsCreatedEvent event) {
+        event.urls().forEach(url -> put(url.shortenedUrl(), url.originalUrl(), url.accessCount(), url.lastAccessed()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsDeleted(UrlsDeletedEvent event) {
+        event.shortenedCodes().forEach(this::remove);
+    }
+
+    @EventListener
+    public void onAccessCountsFlushed(AccessCountsFlushedEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            for (AccessDelta delta : event.deltas()) {
+                long packed = ShortCodes.pack(delta.shortenedUrl());
+                int slot = packed == ShortCodes.NOT_PACKABLE ? -1 : find(packed);
+                if (slot >= 0) {
+                    int base = slot * SLOT_BYTES;
+                    table.putLong(base + ACCESS_COUNT, table.getLong(base + ACCESS_COUNT) + delta.clicks());
+                    table.putLong(base + LAST_ACCESSED,
+                            Math.max(table.getLong(base + LAST_ACCESSED), toEpochMillis(delta.lastAccessed())));
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return true once the startup rebuild has completed, after which a
+     *         {@link #MISSING} answer is definitive
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) table.capacity() + arena.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // One hash per row at rebuild, so creates never need to hash past a free probe to find out
+    private boolean isFirstProbe(String originalUrl, String shortenedCode) {
+        try {
+            return shortenedCode.equals(urlShortenerService.generateShortenedCode(originalUrl, 0));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private int find(long packed) {
+        for (int slot = PackedCodeTables.slotFor(packed, mask); ; slot = (slot + 1) & mask) {
+            long key = table.getLong(slot * SLOT_BYTES + KEY);
+            if (key == packed) {
+                return slot;
+            }
+            if (key == PackedCodeTables.EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(long packed, byte[] url, long accessCount, long lastAccessedMillis, long fingerprint,
+                        boolean loading) {
+        if (loading && deletedDuringRebuild != null && deletedDuringRebuild.contains(packed)) {
+            return;
+        }
+        int existing = find(packed);
+        if (existing >= 0) {
+            // A create that committed during the rebuild is newer than the row the load read
+            if (loading) {
+                return;
+            }
+            removeAt(existing);
+        }
+        if (PackedCodeTables.needsResize(used, mask + 1)) {
+            resize();
+        }
+
+        int offset = 0;
+        int length = NOT_STORED;
+        if (url.length <= MAX_URL_BYTES) {
+            offset = appendToArena(url);
+            length = url.length;
+        }
+        int slot = PackedCodeTables.slotFor(packed, mask);
+        long key;
+        while ((key = table.getLong(slot * SLOT_BYTES + KEY)) != PackedCodeTables.EMPTY
+                && key != PackedCodeTables.DELETED) {
+            slot = (slot + 1) & mask;
+        }
+        if (key == PackedCodeTables.EMPTY) {
+            used++;
+        }
+        writeSlot(table, slot * SLOT_BYTES, packed, offset, length, accessCount, lastAccessedMillis, fingerprint);
+        size++;
+    }
+
+    private void removeAt(int slot) {
+        int base = slot * SLOT_BYTES;
+        int length = table.getInt(base + URL_LENGTH);
+        if (length != NOT_STORED) {
+            garbageBytes += length;
+        }
+        table.putLong(base + KEY, PackedCodeTables.DELETED);
+        size--;
+    }
+
+    private int appendToArena(byte[] url) {
+        if (arenaUsed + url.length > arena.capacity()) {
+            growArena(url.length);
+        }
+        int offset = arenaUsed;
+        arena.put(offset, url);
+        arenaUsed += url.length;
+        return offset;
+    }
+
+    private void growArena(int needed) {
+        long liveBytes = arenaUsed - garbageBytes;
+        long capacity = Math.max(MIN_ARENA_BYTES, arena.capacity());
+        while (capacity < liveBytes + needed || (garbageBytes < liveBytes && capacity < arenaUsed + needed)) {
+            capacity *= 2;
+        }
+        if (capacity > MAX_BUFFER_BYTES) {
+            throw new IllegalStateException("Off-heap URL arena cannot grow past " + MAX_BUFFER_BYTES + " bytes");
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        if (garbageBytes < liveBytes) {
+            // Offsets stay valid, so references already handed out keep working
+            grown.put(0, arena, 0, arenaUsed);
+            arena = grown;
+            return;
+        }
+
+        // Mostly garbage: copy only live URLs and renumber their offsets
+        int compacted = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            int base = slot * SLOT_BYTES;
+            long key = table.getLong(base + KEY);
+            int length = table.getInt(base + URL_LENGTH);
+            if (key != PackedCodeTables.EMPTY && key != PackedCodeTables.DELETED && length != NOT_STORED) {
+                grown.put(compacted, arena, table.getInt(base + URL_OFFSET), length);
+                table.putInt(base + URL_OFFSET, compacted);
+                compacted += length;
+            }
+        }
+        log.debug("Off-heap URL arena compacted: liveBytes={}, reclaimedBytes={}", compacted, garbageBytes);
+        arena = grown;
+        arenaUsed = compacted;
+        garbageBytes = 0;
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    private void resize() {
+        ByteBuffer oldTable = table;
+        int oldCapacity = mask + 1;
+        int capacity = PackedCodeTables.resizedCapacity(size, oldCapacity);
+        if ((long) capacity * SLOT_BYTES > MAX_BUFFER_BYTES) {
+            throw new IllegalStateException("Off-heap URL index cannot hold more than " + size + " URLs");
+        }
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            int oldBase = oldSlot * SLOT_BYTES;
+            long key = oldTable.getLong(oldBase + KEY);
+            if (key == PackedCodeTables.EMPTY || key == PackedCodeTables.DELETED) {
+                continue;
+            }
+            int slot = PackedCodeTables.slotFor(key, mask);
+            while (table.getLong(slot * SLOT_BYTES + KEY) != PackedCodeTables.EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            writeSlot(table, slot * SLOT_BYTES, key, oldTable.getInt(oldBase + URL_OFFSET),
+                    oldTable.getInt(oldBase + URL_LENGTH), oldTable.getLong(oldBase + ACCESS_COUNT),
+                    oldTable.getLong(oldBase + LAST_ACCESSED), oldTable.getLong(oldBase + FINGERPRINT));
+            size++;
+            used++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        // Direct buffers start zeroed, so every slot begins EMPTY
+        table = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        size = 0;
+        used = 0;
+    }
+
+    private static void writeSlot(ByteBuffer table, int base, long packed, int offset, int length,
+                                  long accessCount, long lastAccessedMillis, long fingerprint) {
+        table.putInt(base + URL_OFFSET, offset);
+        table.putInt(base + URL_LENGTH, length);
+        table.putLong(base + ACCESS_COUNT, accessCount);
+        table.putLong(base + LAST_ACCESSED, lastAccessedMillis);
+        table.putLong(base + FINGERPRINT, fingerprint);
+        table.putLong(base + KEY, packed);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
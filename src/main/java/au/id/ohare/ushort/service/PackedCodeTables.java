@@ -0,0 +1,57 @@
+package au.id.ohare.ushort.service;
+
+/**
+ * Sizing and hashing shared by the open-addressing tables keyed by packed shortcode
+ * ({@link OffHeapUrlIndex}, {@link ExpiryTimingWheel}). Keys are probed linearly from
+ * {@link #slotFor}; 0 marks an empty slot and {@link ShortCodes#NOT_PACKABLE} a
+ * deleted one, neither of which {@link ShortCodes#pack} ever returns for a code.
+ */
+final class PackedCodeTables {
+
+    static final long EMPTY = 0L;
+    static final long DELETED = ShortCodes.NOT_PACKABLE;
+    static final double MAX_LOAD = 0.7;
+
+    private PackedCodeTables() {
+    }
+
+    /**
+     * @param expectedCodes codes the table should hold without resizing
+     * @return a power-of-two slot count that keeps them under {@link #MAX_LOAD}
+     */
+    static int capacityFor(int expectedCodes) {
+        int capacity = Integer.highestOneBit((int) Math.max(16, expectedCodes / MAX_LOAD));
+        return capacity < expectedCodes / MAX_LOAD ? capacity << 1 : capacity;
+    }
+
+    /**
+     * @return true if one more slot would take live codes plus tombstones past {@link #MAX_LOAD}
+     */
+    static boolean needsResize(int used, int capacity) {
+        return used + 1 > capacity * MAX_LOAD;
+    }
+
+    /**
+     * Slot count to rehash into once {@link #needsResize} says so: double when live
+     * codes are the problem, otherwise keep the size and just clear out tombstones
+     * @param size live codes
+     * @param capacity current slot count
+     */
+    static int resizedCapacity(int size, int capacity) {
+        return size + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity;
+    }
+
+    /**
+     * First slot to probe for a code; packed codes are dense in their low bits, so they
+     * are mixed (the MurmurHash3 finaliser's first half) before masking
+     * @param packed a packed shortcode
+     * @param mask slot count minus one
+     */
+    static int slotFor(long packed, int mask) {
+        long hash = packed;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
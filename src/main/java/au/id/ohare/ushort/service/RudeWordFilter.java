@@ -0,0 +1,196 @@
+package au.id.ohare.ushort.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a rude-word list. The automaton is compiled once into a
+ * dense transition table, so checking a code is a single pass over its characters
+ * whose cost does not depend on how many words are in the list. Matching is
+ * case-insensitive, finds words anywhere in the code, and folds the leetspeak digits
+ * 0, 1 and 5 onto o, i and s.
+ */
+@Slf4j
+public final class RudeWordFilter {
+
+    private static final int ALPHABET_SIZE = 26;
+    private static final int ROOT = 0;
+    private static final int NO_LETTER = -1;
+
+    private final int[] transitions;
+    private final boolean[] matches;
+    private final int wordCount;
+
+    private RudeWordFilter(int[] transitions, boolean[] matches, int wordCount) {
+        this.transitions = transitions;
+        this.matches = matches;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * Compile a filter from a list of words
+     * @param words the words to reject; blank entries are ignored, and entries with a
+     *              character other than a letter or 0, 1 or 5 are skipped with a warning,
+     *              since a code could never contain them as written
+     * @return the compiled filter
+     */
+    public static RudeWordFilter of(Collection<String> words) {
+        List<int[]> gotoTable = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        gotoTable.add(newRow());
+        terminal.add(false);
+
+        int compiled = 0;
+        for (String word : words) {
+            if (!word.chars().allMatch(c -> letterIndex((char) c) != NO_LETTER)) {
+                log.warn("Skipping rude word with characters no code can match: word={}", word);
+                continue;
+            }
+            int state = ROOT;
+            int length = 0;
+            for (int i = 0; i < word.length(); i++) {
+                int letter = letterIndex(word.charAt(i));
+                int next = gotoTable.get(state)[letter];
+                if (next == NO_LETTER) {
+                    next = gotoTable.size();
+                    gotoTable.add(newRow());
+                    terminal.add(false);
+                    gotoTable.get(state)[letter] = next;
+                }
+                state = next;
+                length++;
+            }
+            if (length > 0) {
+                terminal.set(state, true);
+                compiled++;
+            }
+        }
+
+        int stateCount = gotoTable.size();
+        int[] transitions = new int[stateCount * ALPHABET_SIZE];
+        boolean[] matches = new boolean[stateCount];
+        int[] failure = new int[stateCount];
+
+        // Breadth-first over the trie, turning it into a complete DFA using failure links
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+            int child = gotoTable.get(ROOT)[letter];
+            if (child == NO_LETTER) {
+                transitions[letter] = ROOT;
+            } else {
+                transitions[letter] = child;
+                failure[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        matches[ROOT] = terminal.get(ROOT);
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matches[state] = terminal.get(state) || matches[failure[state]];
+            for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+                int child = gotoTable.get(state)[letter];
+                int fallback = transitions[failure[state] * ALPHABET_SIZE + letter];
+                if (child == NO_LETTER) {
+                    transitions[state * ALPHABET_SIZE + letter] = fallback;
+                } else {
+                    transitions[state * ALPHABET_SIZE + letter] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        log.debug("Compiled rude word filter: words={}, states={}", compiled, stateCount);
+        return new RudeWordFilter(transitions, matches, compiled);
+    }
+
+    /**
+     * Load and compile a word list with one word per line; '#' starts a comment
+     * @param resource the word list
+     * @return the compiled filter
+     */
+    public static RudeWordFilter load(Resource resource) {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String word = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read rude word list: " + resource.getDescription(), e);
+        }
+
+        RudeWordFilter filter = of(words);
+        log.info("Loaded rude word list: source={}, words={}", resource.getDescription(), filter.wordCount);
+        return filter;
+    }
+
+    /**
+     * Check whether any listed word appears anywhere in the code
+     * @param code the candidate code
+     * @return true if the code contains a rude word
+     */
+    public boolean matches(CharSequence code) {
+        int state = ROOT;
+        for (int i = 0; i < code.length(); i++) {
+            int letter = letterIndex(code.charAt(i));
+            if (letter == NO_LETTER) {
+                state = ROOT;
+                continue;
+            }
+            state = transitions[state * ALPHABET_SIZE + letter];
+            if (matches[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET_SIZE];
+        Arrays.fill(row, NO_LETTER);
+        return row;
+    }
+
+    private static int letterIndex(char c) {
+        switch (c) {
+            case '0':
+                return 'o' - 'a';
+            case '1':
+                return 'i' - 'a';
+            case '5':
+                return 's' - 'a';
+            default:
+                break;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return NO_LETTER;
+    }
+}
@@ -0,0 +1,100 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent.CreatedUrl;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.UrlRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies URLs out of a database on the earlier urls schema, which had an IDENTITY id,
+ * a unique shortened_url column and TIMESTAMP times, into the current table keyed by
+ * packed shortcode. Rows stream through a forward-only cursor and are restored in
+ * chunks, each published as created so the in-memory indexes and the segment log see
+ * them. Codes too long to pack are skipped and counted.
+ */
+@Slf4j
+@Service
+public class SchemaMigrationService {
+
+    static final String LEGACY_ROWS_SQL =
+            "SELECT original_url, shortened_url, access_count, created_at, last_accessed FROM urls ORDER BY id";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public SchemaMigrationService(UrlJdbcRepository urlJdbcRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${app.import.chunk-size:1000}") int chunkSize) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Copy every row of the legacy table into this application's urls table
+     * @param legacy the database holding the earlier schema; only read
+     * @return how many rows were copied and skipped
+     */
+    public MigrationReport migrateFrom(DataSource legacy) {
+        long startTime = System.currentTimeMillis();
+        JdbcTemplate legacyJdbcTemplate = new JdbcTemplate(legacy);
+        legacyJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+
+        List<UrlRow> chunk = new ArrayList<>(chunkSize);
+        long[] counts = new long[2];
+        legacyJdbcTemplate.query(LEGACY_ROWS_SQL, (RowCallbackHandler) resultSet -> {
+            String shortenedUrl = resultSet.getString(2);
+            if (ShortCodes.pack(shortenedUrl) == ShortCodes.NOT_PACKABLE) {
+                log.warn("Skipping shortcode that cannot be a key: shortCode={}", shortenedUrl);
+                counts[1]++;
+                return;
+            }
+            chunk.add(new UrlRow(0, resultSet.getString(1), shortenedUrl, resultSet.getLong(3),
+                    resultSet.getTimestamp(4).toLocalDateTime(), resultSet.getTimestamp(5).toLocalDateTime()));
+            if (chunk.size() == chunkSize) {
+                counts[0] += restore(chunk);
+                chunk.clear();
+            }
+        });
+        counts[0] += restore(chunk);
+
+        MigrationReport report = new MigrationReport(counts[0], counts[1], System.currentTimeMillis() - startTime);
+        log.info("Schema migration complete: migrated={}, skipped={}, duration={}ms",
+                report.migrated(), report.skipped(), report.durationMs());
+        return report;
+    }
+
+    private int restore(List<UrlRow> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        urlJdbcRepository.restoreAll(rows);
+        eventPublisher.publishEvent(new UrlsCreatedEvent(rows.stream()
+                .map(row -> new CreatedUrl(row.shortenedUrl(), row.originalUrl(), row.accessCount(),
+                        row.createdAt(), row.lastAccessed()))
+                .toList()));
+        return rows.size();
+    }
+
+    /**
+     * Outcome of a schema migration
+     * @param migrated rows copied into the current table
+     * @param skipped rows whose shortcode cannot be packed into a key
+     * @param durationMs wall-clock time taken
+     */
+    public record MigrationReport(long migrated, long skipped, long durationMs) {
+    }
+}
@@ -0,0 +1,246 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bloom filter over every live shortcode, used to answer definite misses without a
+ * database query. Rebuilt from the urls table once the application is ready and fed
+ * each committed insert. Deleted codes cannot be cleared from a Bloom filter, so they
+ * are counted instead: once they reach a set fraction of the codes inserted, the next
+ * expiry sweep rebuilds the filter from the table and they stop passing it.
+ */
+@Slf4j
+@Component
+public class ShortCodeBloomFilter {
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final long bitCount;
+    private final int hashCount;
+    private final double rebuildDeletedFraction;
+    private final Counter rejections;
+    private final Counter falsePositives;
+
+    // Held shared by adds and exclusively while switching to or from a rebuild
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile AtomicLongArray bits;
+    private volatile AtomicLongArray rebuilding;
+    private final AtomicLong insertions = new AtomicLong();
+    private final AtomicLong deletedSinceRebuild = new AtomicLong();
+    // Adds made while a rebuild scan runs, which the scan may not have read
+    private final AtomicLong addedDuringRebuild = new AtomicLong();
+    private volatile boolean ready;
+
+    public ShortCodeBloomFilter(UrlJdbcRepository urlJdbcRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.bloom.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${app.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${app.bloom.rebuild-deleted-fraction:0.1}") double rebuildDeletedFraction) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.rebuildDeletedFraction = rebuildDeletedFraction;
+        this.bitCount = optimalBitCount(expectedInsertions, falsePositiveRate);
+        this.hashCount = optimalHashCount(expectedInsertions, bitCount);
+        this.bits = newBitArray();
+
+        this.rejections = Counter.builder("ushort.bloom.rejections")
+                .description("Lookups answered as definite misses without a database query")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("ushort.bloom.false_positives")
+                .description("Lookups the filter let through that the database did not find")
+                .register(meterRegistry);
+        Gauge.builder("ushort.bloom.false_positive_rate", this, ShortCodeBloomFilter::expectedFalsePositiveRate)
+                .description("Expected false positive rate at the current number of insertions")
+                .register(meterRegistry);
+        Gauge.builder("ushort.bloom.memory", this, filter -> filter.memoryBytes())
+                .description("Memory held by the filter's bit array")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        log.info("Shortcode bloom filter configured: expectedInsertions={}, falsePositiveRate={}, bits={}, hashes={}",
+                expectedInsertions, falsePositiveRate, bitCount, hashCount);
+    }
+
+    /**
+     * Check whether a code may exist. Until the startup rebuild completes this always
+     * answers true, so nothing is rejected on an incomplete filter.
+     * @param shortenedCode the shortened URL code
+     * @return false only if the code definitely does not exist
+     */
+    public boolean mightContain(String shortenedCode) {
+        if (!ready) {
+            return true;
+        }
+
+        AtomicLongArray current = bits;
+        long hash = hash(shortenedCode);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((current.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                rejections.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record that a code the filter let through was not in the database
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public void add(String shortenedCode) {
+        swapLock.readLock().lock();
+        try {
+            AtomicLongArray next = rebuilding;
+            if (next != null) {
+                setBits(next, shortenedCode);
+                addedDuringRebuild.incrementAndGet();
+            }
+            setBits(bits, shortenedCode);
+            insertions.incrementAndGet();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsCreated(UrlsCreatedEvent event) {
+        event.shortenedCodes().forEach(this::add);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsDeleted(UrlsDeletedEvent event) {
+        deletedSinceRebuild.addAndGet(event.shortenedCodes().size());
+    }
+
+    /**
+     * Rebuild the filter if enough codes have been deleted since the last rebuild
+     * @return true if it was rebuilt
+     */
+    public boolean rebuildIfStale() {
+        long deleted = deletedSinceRebuild.get();
+        if (!ready || deleted == 0 || deleted < rebuildDeletedFraction * insertions.get()) {
+            return false;
+        }
+        log.info("Rebuilding shortcode bloom filter: deletedSinceRebuild={}, insertions={}", deleted, insertions.get());
+        rebuild();
+        return true;
+    }
+
+    /**
+     * Rebuild the filter from the urls table, dropping codes that no longer exist
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        AtomicLongArray next = newBitArray();
+
+        long deletedBefore;
+        swapLock.writeLock().lock();
+        try {
+            rebuilding = next;
+            addedDuringRebuild.set(0);
+            // Codes deleted from here on may already have been read by the scan, so stay counted
+            deletedBefore = deletedSinceRebuild.get();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        AtomicLong loaded = new AtomicLong();
+        boolean complete = false;
+        try {
+            urlJdbcRepository.forEachShortenedUrl(code -> {
+                setBits(next, code);
+                loaded.incrementAndGet();
+            });
+            complete = true;
+        } finally {
+            // A partial scan would produce false negatives, so only switch over on success
+            swapLock.writeLock().lock();
+            try {
+                if (complete) {
+                    bits = next;
+                    // A failed rebuild keeps the old counts, so the deletes that prompted it still count
+                    insertions.set(loaded.get() + addedDuringRebuild.get());
+                    deletedSinceRebuild.addAndGet(-deletedBefore);
+                }
+                rebuilding = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("Shortcode bloom filter rebuilt: codes={}, duration={}ms", loaded.get(), System.currentTimeMillis() - startTime);
+    }
+
+    public double expectedFalsePositiveRate() {
+        double n = insertions.get();
+        return Math.pow(1 - Math.exp(-hashCount * n / bitCount), hashCount);
+    }
+
+    public long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    private void setBits(AtomicLongArray target, String shortenedCode) {
+        long hash = hash(shortenedCode);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = target.get(word);
+            } while ((current & mask) == 0 && !target.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private AtomicLongArray newBitArray() {
+        return new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+    }
+
+    // 64-bit FNV-1a over the characters followed by a murmur3 finaliser
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long optimalBitCount(long expectedInsertions, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        return Math.max(64, bits);
+    }
+
+    private static int optimalHashCount(long expectedInsertions, long bitCount) {
+        return Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedInsertions) * Math.log(2)));
+    }
+}
@@ -0,0 +1,154 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded read-through cache of shortcode resolutions used by the redirect path.
+ * Entries hold only the original URL and the instant the code expires, and are
+ * evicted using Caffeine's W-TinyLFU admission policy. Sized by entry count, or by
+ * estimated bytes when {@code app.cache.max-bytes} is set.
+ * <p>
+ * With the off-heap index enabled this is only a startup fallback: redirects use it
+ * until the index has been built and never read or fill it afterwards, so it is
+ * capped at {@code app.cache.startup-max-entries} instead; max-entries or max-bytes
+ * set away from their defaults are ignored with a warning.
+ */
+@Slf4j
+@Component
+public class ShortCodeCache {
+
+    static final String CACHE_NAME = "shortcodes";
+
+    // Rough per-entry overhead of the key, value record and cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final long DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final Cache<String, CachedUrl> cache;
+    private final int ttlDays;
+
+    public ShortCodeCache(MeterRegistry meterRegistry,
+                          @Value("${app.cache.max-entries:100000}") long maxEntries,
+                          @Value("${app.cache.max-bytes:0}") long maxBytes,
+                          @Value("${app.cache.startup-max-entries:10000}") long startupMaxEntries,
+                          @Value("${app.index.enabled:true}") boolean indexEnabled,
+                          @Value("${app.ttl-days:90}") int ttlDays) {
+        this.ttlDays = ttlDays;
+
+        Caffeine<String, CachedUrl> builder = Caffeine.newBuilder()
+                .recordStats()
+                .expireAfter(new TtlExpiry());
+
+        if (indexEnabled) {
+            if (maxEntries != DEFAULT_MAX_ENTRIES || maxBytes > 0) {
+                log.warn("Shortcode cache sizing ignored while the off-heap index is enabled: "
+                                + "app.cache.max-entries={}, app.cache.max-bytes={}; "
+                                + "set app.cache.startup-max-entries, or app.index.enabled=false to use them",
+                        maxEntries, maxBytes);
+            }
+            builder.maximumSize(startupMaxEntries);
+            log.info("Shortcode cache configured as startup fallback: maxEntries={}, ttlDays={}",
+                    startupMaxEntries, ttlDays);
+        } else if (maxBytes > 0) {
+            builder.maximumWeight(maxBytes).weigher(ShortCodeCache::estimateBytes);
+            log.info("Shortcode cache configured: maxBytes={}, ttlDays={}", maxBytes, ttlDays);
+        } else {
+            builder.maximumSize(maxEntries);
+            log.info("Shortcode cache configured: maxEntries={}, ttlDays={}", maxEntries, ttlDays);
+        }
+
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Look up a cached resolution
+     * @param shortenedCode the shortened URL code
+     * @return the cached entry, or null if absent or expired
+     */
+    public CachedUrl get(String shortenedCode) {
+        return cache.getIfPresent(shortenedCode);
+    }
+
+    /**
+     * Cache a resolution, expiring it when the URL's TTL since last access runs out
+     * @param shortenedCode the shortened URL code
+     * @param originalUrl the original URL
+     * @param lastAccessed the last access time of the URL
+     */
+    public void put(String shortenedCode, String originalUrl, LocalDateTime lastAccessed) {
+        long expiresAt = lastAccessed.plusDays(ttlDays)
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+        cache.put(shortenedCode, new CachedUrl(originalUrl, expiresAt));
+    }
+
+    public void evict(String shortenedCode) {
+        cache.invalidate(shortenedCode);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsDeleted(UrlsDeletedEvent event) {
+        cache.invalidateAll(event.shortenedCodes());
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static int estimateBytes(String shortenedCode, CachedUrl cachedUrl) {
+        return ENTRY_OVERHEAD_BYTES + shortenedCode.length() + cachedUrl.originalUrl().length();
+    }
+
+    /**
+     * Cached resolution of a shortcode
+     * @param originalUrl the URL to redirect to
+     * @param expiresAtMillis epoch millis after which the URL is expired
+     */
+    public record CachedUrl(String originalUrl, long expiresAtMillis) {
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis > expiresAtMillis;
+        }
+    }
+
+    private static final class TtlExpiry implements Expiry<String, CachedUrl> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedUrl value, long currentTime) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedUrl value, long currentTime, long currentDuration) {
+            return remainingNanos(value);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedUrl value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long remainingNanos(CachedUrl value) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+    }
+}
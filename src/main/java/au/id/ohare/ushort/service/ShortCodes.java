@@ -0,0 +1,101 @@
+package au.id.ohare.ushort.service;
+
+/**
+ * Syntactic rules for shortcodes, checked before any lookup.
+ */
+public final class ShortCodes {
+
+    /**
+     * Longest code {@link #pack} can represent; 62^10 fits in the low 60 bits of a long
+     */
+    public static final int MAX_PACKED_LENGTH = 10;
+
+    public static final int MIN_LENGTH = 6;
+    // The urls table is keyed by the packed code, so no longer code can be stored
+    public static final int MAX_LENGTH = MAX_PACKED_LENGTH;
+
+    /**
+     * Returned by {@link #pack} for codes that do not fit; never a valid packed code
+     */
+    public static final long NOT_PACKABLE = -1L;
+
+    private static final String BASE62_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final int LENGTH_SHIFT = 60;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+
+    private ShortCodes() {
+    }
+
+    /**
+     * Check that a code could have been stored: Base62 characters only, within the
+     * length bounds of a packed primary key
+     * @param code the candidate code
+     * @return true if the code is well formed
+     */
+    public static boolean isWellFormed(CharSequence code) {
+        if (code == null || code.length() < MIN_LENGTH || code.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            boolean base62 = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!base62) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pack a Base62 code into a long: the digits as a base-62 number in the low 60 bits
+     * and the length in the top 4, so codes with leading zeros stay distinct. Packed
+     * values are never 0 or {@link #NOT_PACKABLE}, and serve as the urls primary key.
+     * @param code the code
+     * @return the packed code, or {@link #NOT_PACKABLE} if it is empty, longer than
+     *         {@value #MAX_PACKED_LENGTH} characters or not Base62
+     */
+    public static long pack(CharSequence code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return NOT_PACKABLE;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digitValue(code.charAt(i));
+            if (digit < 0) {
+                return NOT_PACKABLE;
+            }
+            value = value * 62 + digit;
+        }
+        return ((long) length << LENGTH_SHIFT) | value;
+    }
+
+    /**
+     * Reverse {@link #pack}
+     * @param packed a value returned by {@link #pack}
+     * @return the original code
+     */
+    public static String unpack(long packed) {
+        int length = (int) (packed >>> LENGTH_SHIFT);
+        long value = packed & VALUE_MASK;
+        char[] code = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            code[i] = BASE62_ALPHABET.charAt((int) (value % 62));
+            value /= 62;
+        }
+        return new String(code);
+    }
+
+    private static int digitValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 36;
+        }
+        return -1;
+    }
+}
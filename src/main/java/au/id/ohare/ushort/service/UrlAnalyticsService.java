@@ -0,0 +1,91 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.dto.UrlStatistic;
+import au.id.ohare.ushort.dto.UrlStatisticsPage;
+import au.id.ohare.ushort.repository.UrlRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated URL statistics for the admin views. Pages are ordered by access
+ * count descending with the id as tie-breaker, and the cursor of a page is the
+ * (accessCount, id) of its last row, so each page is an index range scan no matter
+ * how deep it is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UrlAnalyticsService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final char CURSOR_SEPARATOR = '.';
+
+    private final UrlRepository urlRepository;
+
+    /**
+     * The page size a requested limit is served with
+     * @param limit the requested page size
+     * @return the limit clamped to 1..{@value #MAX_PAGE_SIZE}
+     */
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Fetch one page of URL statistics
+     * @param after cursor from the previous page, or null for the first page
+     * @param limit page size, clamped to 1..{@value #MAX_PAGE_SIZE}
+     * @return the page and the cursor for the next one
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public UrlStatisticsPage getPage(String after, int limit) {
+        int pageSize = pageSize(limit);
+        // Fetch one extra row to learn whether another page follows
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+
+        List<UrlStatistic> rows;
+        if (after == null || after.isBlank()) {
+            rows = urlRepository.findStatistics(pageRequest);
+        } else {
+            int separator = after.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + after);
+            }
+            try {
+                int accessCount = Integer.parseInt(after.substring(0, separator));
+                long id = Long.parseLong(after.substring(separator + 1));
+                rows = urlRepository.findStatisticsAfter(accessCount, id, pageRequest);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed cursor: " + after, e);
+            }
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            UrlStatistic last = rows.get(pageSize - 1);
+            nextCursor = last.getAccessCount() + String.valueOf(CURSOR_SEPARATOR) + last.getId();
+        }
+
+        return UrlStatisticsPage.builder()
+                .items(List.copyOf(rows))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    public long getTotalUrlCount() {
+        return urlRepository.count();
+    }
+
+    public long getTotalAccessCount() {
+        return urlRepository.sumAccessCount();
+    }
+}
@@ -0,0 +1,131 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.UrlRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the whole urls table as CSV or NDJSON. Rows are read through a forward-only
+ * cursor and written straight to the output as they arrive, so memory use does not
+ * grow with the table. The output uses the same formats {@link BulkImportService}
+ * reads, with the original URL first, so an export can be re-imported as is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UrlExportService {
+
+    static final String CSV_HEADER = "url,shortcode,access_count,created_at,last_accessed";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write every URL to the output
+     * @param output the destination; flushed but not closed unless gzip is used
+     * @param format CSV with a header row, or one JSON object per line
+     * @param gzip compress the output
+     * @return number of rows written
+     */
+    public long exportUrls(OutputStream output, BulkImportService.Format format, boolean gzip) throws IOException {
+        long startTime = System.currentTimeMillis();
+        AtomicLong rows = new AtomicLong();
+
+        OutputStream target = gzip ? new GZIPOutputStream(output, WRITE_BUFFER_SIZE) : output;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        // Per-row flushes only move the generator's buffer into the writer, not onto the wire
+        json.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+        json.setRootValueSeparator(null);
+
+        try {
+            if (format == BulkImportService.Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            urlJdbcRepository.forEachUrl(row -> {
+                try {
+                    if (format == BulkImportService.Format.CSV) {
+                        writeCsvRow(writer, row);
+                    } else {
+                        writeJsonRow(json, writer, row);
+                    }
+                    rows.incrementAndGet();
+                } catch (IOException e) {
+                    // Typically the client went away; abandon the cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        json.flush();
+        writer.flush();
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+        output.flush();
+
+        log.info("URL export complete: format={}, gzip={}, rows={}, duration={}ms",
+                format, gzip, rows.get(), System.currentTimeMillis() - startTime);
+        return rows.get();
+    }
+
+    private static void writeCsvRow(Writer writer, UrlRow row) throws IOException {
+        writeCsvValue(writer, row.originalUrl());
+        writer.write(',');
+        writeCsvValue(writer, row.shortenedUrl());
+        writer.write(',');
+        writer.write(Long.toString(row.accessCount()));
+        writer.write(',');
+        writer.write(row.createdAt().toString());
+        writer.write(',');
+        writer.write(row.lastAccessed().toString());
+        writer.write('\n');
+    }
+
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJsonRow(JsonGenerator json, Writer writer, UrlRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("url", row.originalUrl());
+        json.writeStringField("shortcode", row.shortenedUrl());
+        json.writeNumberField("accessCount", row.accessCount());
+        json.writeStringField("createdAt", row.createdAt().toString());
+        json.writeStringField("lastAccessed", row.lastAccessed().toString());
+        json.writeEndObject();
+        json.flush();
+        writer.write('\n');
+    }
+}
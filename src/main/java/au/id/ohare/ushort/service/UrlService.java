@@ -1,15 +1,28 @@
 package au.id.ohare.ushort.service;
 
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.ExpiredChunk;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.RedirectTarget;
 import au.id.ohare.ushort.repository.UrlRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -19,7 +32,19 @@ public class UrlService {
     private static final String EXPIRED_URL_MARKER = "EXPIRED";
 
     private final UrlRepository urlRepository;
+    private final UrlJdbcRepository urlJdbcRepository;
     private final UrlShortenerService urlShortenerService;
+    private final ShortCodeCache shortCodeCache;
+    private final AccessCountAggregator accessCountAggregator;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final OffHeapUrlIndex offHeapUrlIndex;
+    private final GroupCommitWriter groupCommitWriter;
+    private final UrlMetrics urlMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Creates in progress keyed by trimmed URL, so concurrent requests for one URL share an insert
+    private final ConcurrentHashMap<String, CompletableFuture<UrlEntity>> inFlightCreates = new ConcurrentHashMap<>();
     
     @Value("${app.base-url:http://localhost}")
     private String baseUrl;
@@ -27,75 +52,276 @@ public class UrlService {
     @Value("${app.ttl-days:90}")
     private int ttlDays;
 
-    @Transactional
+    @Value("${app.shortcode.max-probes:16}")
+    private int maxProbes;
+
+    /**
+     * Shorten a URL, returning its existing row if it was shortened before. Concurrent
+     * calls for the same URL are coalesced: the first runs the create and the rest wait
+     * for its result, so a burst of identical requests costs one insert. Not
+     * {@code @Transactional}: the transaction covers only the create itself, and
+     * commits before waiting callers are handed the row. With group commit the insert
+     * instead joins the writer's next multi-row commit.
+     */
     public UrlEntity createShortenedUrl(String originalUrl) {
         log.info("Creating shortened URL for: {}", originalUrl);
+        if (originalUrl == null || originalUrl.isBlank()) {
+            throw new IllegalArgumentException("URL cannot be null or empty");
+        }
 
-        // Check if URL already exists
-        String shortenedCode = urlShortenerService.generateShortenedCode(originalUrl);
-        Optional<UrlEntity> existingUrl = urlRepository.findByShortenedUrl(shortenedCode);
-        
-        if (existingUrl.isPresent()) {
-            log.debug("URL already exists: {}", shortenedCode);
-            return existingUrl.get();
-        }
-
-        // Create new URL entity
-        UrlEntity urlEntity = UrlEntity.builder()
-                .originalUrl(originalUrl)
-                .shortenedUrl(shortenedCode)
-                .accessCount(0)
-                .lastAccessed(LocalDateTime.now())
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        UrlEntity savedEntity = urlRepository.save(urlEntity);
-        log.info("URL created: shortCode={}, originalUrl={}", shortenedCode, originalUrl);
-        
-        return savedEntity;
+        String key = originalUrl.trim();
+        CompletableFuture<UrlEntity> create = new CompletableFuture<>();
+        CompletableFuture<UrlEntity> inFlight = inFlightCreates.putIfAbsent(key, create);
+        if (inFlight != null) {
+            log.debug("Joining in-flight create: originalUrl={}", originalUrl);
+            UrlEntity urlEntity = join(inFlight);
+            urlMetrics.deduplicated(1);
+            return urlEntity;
+        }
+
+        try {
+            UrlEntity urlEntity = createOrFind(originalUrl);
+            create.complete(urlEntity);
+            return urlEntity;
+        } catch (RuntimeException e) {
+            create.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCreates.remove(key, create);
+        }
+    }
+
+    private UrlEntity createOrFind(String originalUrl) {
+        try {
+            return inTransaction(() -> allocate(originalUrl, false));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance, or a batch, inserted one of our codes after we found it free;
+            // the index may not have caught up yet, so settle it from the database
+            log.debug("Create raced a concurrent insert, re-reading: originalUrl={}", originalUrl);
+            return inTransaction(() -> allocate(originalUrl, true));
+        }
+    }
+
+    // Group commit holds no transaction while waiting on the writer: hundreds of waiting
+    // callers would otherwise pin every pooled connection the writer itself needs
+    private UrlEntity inTransaction(Supplier<UrlEntity> create) {
+        return groupCommitWriter.isEnabled() ? create.get() : transactionTemplate.execute(status -> create.get());
+    }
+
+    /**
+     * Find or insert the URL's row. A code held by a different URL is a hash collision:
+     * the next salted probe is tried until a free code or this URL's own code turns up.
+     * The off-heap index answers for most candidates, so only a code this URL may
+     * already own costs a database read.
+     * @param checkDatabase true to read every candidate from the database rather than trust the index
+     */
+    private UrlEntity allocate(String originalUrl, boolean checkDatabase) {
+        long fingerprint = OffHeapUrlIndex.fingerprint(originalUrl);
+        for (int probe = 0; probe < maxProbes; probe++) {
+            String shortenedCode = urlShortenerService.generateShortenedCode(originalUrl, probe);
+            OffHeapUrlIndex.Owner owner = checkDatabase
+                    ? OffHeapUrlIndex.Owner.UNKNOWN
+                    : offHeapUrlIndex.ownerOf(shortenedCode, fingerprint);
+            if (owner == OffHeapUrlIndex.Owner.OTHER) {
+                log.debug("Shortcode owned by another URL, probing: shortCode={}, probe={}", shortenedCode, probe);
+                urlMetrics.collisions(1);
+                continue;
+            }
+
+            // FREE needs no read; SAME is confirmed against the row, which is also what we return
+            Optional<UrlEntity> existingUrl = owner == OffHeapUrlIndex.Owner.FREE
+                    ? Optional.empty()
+                    : urlRepository.findByShortenedUrl(shortenedCode);
+            if (existingUrl.isPresent()) {
+                if (OffHeapUrlIndex.sameUrl(existingUrl.get().getOriginalUrl(), originalUrl)) {
+                    log.debug("URL already exists: {}", shortenedCode);
+                    urlMetrics.deduplicated(1);
+                    return existingUrl.get();
+                }
+                log.debug("Shortcode owned by another URL, probing: shortCode={}, probe={}", shortenedCode, probe);
+                urlMetrics.collisions(1);
+                continue;
+            }
+
+            // Only a URL stored past its first probe can hold a code after this free one
+            Optional<UrlEntity> laterUrl = !checkDatabase && offHeapUrlIndex.hasCollided(fingerprint)
+                    ? findAtLaterProbe(originalUrl, fingerprint, probe)
+                    : Optional.empty();
+            if (laterUrl.isPresent()) {
+                log.debug("URL already exists past a freed probe: shortCode={}, freeProbe={}",
+                        laterUrl.get().getShortenedUrl(), probe);
+                urlMetrics.deduplicated(1);
+                return laterUrl.get();
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            UrlEntity urlEntity = UrlEntity.builder()
+                    .originalUrl(originalUrl)
+                    .shortenedUrl(shortenedCode)
+                    .accessCount(0)
+                    .lastAccessed(now)
+                    .createdAt(now)
+                    .build();
+
+            UrlEntity savedEntity;
+            if (groupCommitWriter.isEnabled()) {
+                // The row goes in through JDBC, so the returned entity carries no id
+                groupCommitWriter.insert(new NewUrl(originalUrl, shortenedCode, now));
+                savedEntity = urlEntity;
+            } else {
+                // Flush so a duplicate code fails here rather than at commit, after it was counted
+                savedEntity = urlRepository.saveAndFlush(urlEntity);
+            }
+            if (probe > 0) {
+                offHeapUrlIndex.markCollided(fingerprint);
+            }
+            urlMetrics.created(1);
+            log.info("URL created: shortCode={}, originalUrl={}, probe={}", shortenedCode, originalUrl, probe);
+            return savedEntity;
+        }
+
+        log.error("No free shortcode after probing: originalUrl={}, probes={}", originalUrl, maxProbes);
+        throw new IllegalStateException("Unable to allocate a shortcode after " + maxProbes + " probes");
     }
 
-    @Transactional
+    /**
+     * Look past a free probe for a later one the URL already holds. A URL that collided
+     * when it was created sits at a later probe, and the code it collided with frees up
+     * once its owner is deleted; claiming that code would give the URL a second row.
+     * Only called for URLs the index knows collided, and answered from the index.
+     * @param freeProbe the probe found free
+     * @return the URL's existing row at a later probe, if any
+     */
+    private Optional<UrlEntity> findAtLaterProbe(String originalUrl, long fingerprint, int freeProbe) {
+        for (int probe = freeProbe + 1; probe < maxProbes; probe++) {
+            String code;
+            try {
+                code = urlShortenerService.generateShortenedCode(originalUrl, probe);
+            } catch (RuntimeException e) {
+                // A probe that yields no code was never held
+                continue;
+            }
+            if (offHeapUrlIndex.ownerOf(code, fingerprint) == OffHeapUrlIndex.Owner.SAME) {
+                return urlRepository.findByShortenedUrl(code)
+                        .filter(urlEntity -> OffHeapUrlIndex.sameUrl(urlEntity.getOriginalUrl(), originalUrl));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static UrlEntity join(CompletableFuture<UrlEntity> create) {
+        try {
+            return create.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Deliberately not @Transactional: a redirect served from the index must not take a
+    // pooled connection, and the database reads below are autocommit JDBC calls
     public Optional<String> getOriginalUrl(String shortenedCode, String clientIp) {
         log.debug("Looking up shortened URL: {}", shortenedCode);
-        
-        Optional<UrlEntity> urlEntityOpt = urlRepository.findByShortenedUrl(shortenedCode);
-        
-        if (urlEntityOpt.isEmpty()) {
-            log.warn("Shortened URL not found: {}", shortenedCode);
+
+        // Definite misses (malformed paths, unknown codes) never reach the database
+        if (!ShortCodes.isWellFormed(shortenedCode) || !shortCodeBloomFilter.mightContain(shortenedCode)) {
+            log.debug("Shortened URL rejected without lookup: {}", shortenedCode);
+            urlMetrics.notFound();
             return Optional.empty();
         }
 
-        UrlEntity urlEntity = urlEntityOpt.get();
+        String originalUrl = null;
+        boolean indexReady = offHeapUrlIndex.isReady();
+        if (indexReady) {
+            long reference = offHeapUrlIndex.resolve(shortenedCode, System.currentTimeMillis());
+            if (reference == OffHeapUrlIndex.MISSING) {
+                log.debug("Shortened URL not in index: {}", shortenedCode);
+                shortCodeBloomFilter.recordFalsePositive();
+                urlMetrics.notFound();
+                return Optional.empty();
+            }
+            // Expired and unindexed codes, and references outdated by arena compaction, go to the database
+            originalUrl = reference >= 0 ? offHeapUrlIndex.originalUrl(reference) : null;
+        }
+
+        // The cache only stands in for the index until it is built; after that misses go to the database
+        ShortCodeCache.CachedUrl cachedUrl = originalUrl == null && !indexReady ? shortCodeCache.get(shortenedCode) : null;
+        if (originalUrl != null) {
+            log.debug("Shortened URL resolved from off-heap index: {}", shortenedCode);
+        } else if (cachedUrl != null && !cachedUrl.isExpired(System.currentTimeMillis())) {
+            log.debug("Shortened URL resolved from cache: {}", shortenedCode);
+            originalUrl = cachedUrl.originalUrl();
+        } else {
+            // A plain JDBC read of the two columns needed: no entity, persistence context or transaction
+            Optional<RedirectTarget> target = urlJdbcRepository.findRedirectTarget(shortenedCode);
+
+            if (target.isEmpty()) {
+                log.debug("Shortened URL not found: {}", shortenedCode);
+                shortCodeBloomFilter.recordFalsePositive();
+                shortCodeCache.evict(shortenedCode);
+                urlMetrics.notFound();
+                return Optional.empty();
+            }
+
+            // Check if URL has expired
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(ttlDays);
+            if (target.get().lastAccessed().isBefore(cutoff)) {
+                log.warn("URL expired: shortCode={}, lastAccessed={}", shortenedCode, target.get().lastAccessed());
+
+                // Delete expired URL; the delete re-checks the cutoff, so a concurrent click keeps the row
+                ExpiredChunk chunk = urlJdbcRepository.deleteExpired(List.of(shortenedCode), cutoff);
+                if (!chunk.goneUrls().isEmpty()) {
+                    eventPublisher.publishEvent(new UrlsDeletedEvent(chunk.goneUrls()));
+                }
+                shortCodeCache.evict(shortenedCode);
+                log.info("Deleted expired URL: {}", shortenedCode);
+                urlMetrics.expired();
 
-        // Check if URL has expired
-        LocalDateTime expiryDate = urlEntity.getLastAccessed().plusDays(ttlDays);
-        if (LocalDateTime.now().isAfter(expiryDate)) {
-            log.warn("URL expired: shortCode={}, lastAccessed={}", shortenedCode, urlEntity.getLastAccessed());
-            
-            // Delete expired URL
-            urlRepository.delete(urlEntity);
-            log.info("Deleted expired URL: {}", shortenedCode);
-            
-            return Optional.of(EXPIRED_URL_MARKER);
+                return Optional.of(EXPIRED_URL_MARKER);
+            }
+
+            originalUrl = target.get().originalUrl();
         }
 
-        // Update access information atomically
+        // Record the click in memory; the aggregator writes it behind
         LocalDateTime now = LocalDateTime.now();
-        int updatedRows = urlRepository.incrementAccessCount(shortenedCode, now);
-        
-        if (updatedRows > 0) {
-            // Reload the entity to get the updated access count for logging
-            Optional<UrlEntity> updatedEntity = urlRepository.findByShortenedUrl(shortenedCode);
-            int newAccessCount = updatedEntity.map(UrlEntity::getAccessCount).orElse(-1);
-            
-            log.info("URL accessed: shortCode={}, clientIp={}, newAccessCount={}", 
-                    shortenedCode, clientIp, newAccessCount);
+        accessCountAggregator.recordAccess(shortenedCode, now);
+        if (!indexReady) {
+            shortCodeCache.put(shortenedCode, originalUrl, now);
+        }
+
+        return Optional.of(originalUrl);
+    }
+
+    /**
+     * Resolve a code for the redirect fast path, answering only from memory and never
+     * deleting anything, so callers can fall back to {@link #getOriginalUrl} on null
+     * @param shortenedCode the shortened URL code
+     * @return the original URL with the click recorded, or null if the code is unknown,
+     *         expired or needs the database
+     */
+    public String resolveRedirect(String shortenedCode) {
+        if (!ShortCodes.isWellFormed(shortenedCode)) {
+            return null;
+        }
+
+        String originalUrl;
+        if (offHeapUrlIndex.isReady()) {
+            long reference = offHeapUrlIndex.resolve(shortenedCode, System.currentTimeMillis());
+            originalUrl = reference >= 0 ? offHeapUrlIndex.originalUrl(reference) : null;
         } else {
-            log.warn("Failed to update access count for: {}", shortenedCode);
+            ShortCodeCache.CachedUrl cachedUrl = shortCodeCache.get(shortenedCode);
+            originalUrl = cachedUrl != null && !cachedUrl.isExpired(System.currentTimeMillis())
+                    ? cachedUrl.originalUrl()
+                    : null;
         }
-        
-        return Optional.of(urlEntity.getOriginalUrl());
+
+        if (originalUrl != null) {
+            accessCountAggregator.recordAccess(shortenedCode, LocalDateTime.now());
+        }
+        return originalUrl;
     }
 
     public String buildFullShortenedUrl(String shortenedCode, String serverUrl) {
@@ -123,18 +349,4 @@ public class UrlService {
     public long getTotalUrlCount() {
         return urlRepository.count();
     }
-
-    @Transactional
-    public void cleanupExpiredUrls() {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(ttlDays);
-        var expiredUrls = urlRepository.findByLastAccessedBefore(cutoffDate);
-        
-        if (!expiredUrls.isEmpty()) {
-            log.info("Cleaning up {} expired URLs", expiredUrls.size());
-            urlRepository.deleteAll(expiredUrls);
-            log.info("Cleanup complete: {} URLs deleted", expiredUrls.size());
-        } else {
-            log.debug("No expired URLs found");
-        }
-    }
 }
\ No newline at end of file
@@ -1,52 +1,131 @@
 package au.id.ohare.ushort.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Set;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 public class UrlShortenerService {
 
-    private static final String BASE62_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final int HASH_BYTES_LENGTH = 6;
+    private static final char[] BASE62_ALPHABET =
+            "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    static final int HASH_BYTES_LENGTH = 6;
+    // 62^9 exceeds 2^48, so a 6-byte hash never needs more than 9 digits
+    static final int MAX_ENCODED_DIGITS = 9;
     private static final int MIN_CODE_LENGTH = 6;
     private static final int MAX_CODE_LENGTH = 8;
     private static final int MAX_RUDE_WORD_ATTEMPTS = 100;
+    // Joins a collision probe number to the URL; NUL never appears in a valid URL
+    private static final char PROBE_SEPARATOR = '\u0000';
     
-    // Basic set of rude words to filter out
-    private static final Set<String> RUDE_WORDS = Set.of(
-            "damn", "shit", "hell", "fuck", "ass", "piss", "crap", "bitch",
-            "bastard", "turd", "puke", "fart", "butt", "sex", "porn", "xxx"
-    );
+    static final String DEFAULT_RUDE_WORDS = "rude-words.txt";
+
+    // Digest and scratch buffers are reused so hashing allocates only the result. Platform
+    // threads keep their own; virtual threads live for one request, so they borrow from a pool
+    private static final ThreadLocal<HashState> HASH_STATE = ThreadLocal.withInitial(HashState::new);
+    private static final BlockingQueue<HashState> POOLED_HASH_STATES =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final RudeWordFilter rudeWordFilter;
+    private final int hashBits;
+    private final Timer generateTimer;
+    private final Counter rudeWordRetries;
+
+    public UrlShortenerService() {
+        this(RudeWordFilter.load(new ClassPathResource(DEFAULT_RUDE_WORDS)), Metrics.globalRegistry);
+    }
+
+    /**
+     * @param hashBits bits of the hash kept in the code, at most 48; lowering it only
+     *                 serves to force collisions in tests
+     */
+    @Autowired
+    public UrlShortenerService(@Value("${app.rude-words.location:classpath:rude-words.txt}") Resource rudeWordsLocation,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.shortcode.hash-bits:48}") int hashBits) {
+        this(RudeWordFilter.load(rudeWordsLocation), meterRegistry, hashBits);
+    }
+
+    UrlShortenerService(RudeWordFilter rudeWordFilter, MeterRegistry meterRegistry) {
+        this(rudeWordFilter, meterRegistry, HASH_BYTES_LENGTH * 8);
+    }
+
+    UrlShortenerService(RudeWordFilter rudeWordFilter, MeterRegistry meterRegistry, int hashBits) {
+        if (hashBits < 1 || hashBits > HASH_BYTES_LENGTH * 8) {
+            throw new IllegalArgumentException("Hash bits must be between 1 and " + HASH_BYTES_LENGTH * 8 + ": " + hashBits);
+        }
+        this.rudeWordFilter = rudeWordFilter;
+        this.hashBits = hashBits;
+        this.generateTimer = Timer.builder("ushort.shortcode.generate")
+                .description("Time to hash a URL into a clean shortcode, rude-word retries included")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(meterRegistry);
+        this.rudeWordRetries = Counter.builder("ushort.shortcode.rude_word_retries")
+                .description("Extra hashes needed because a generated code contained a rude word")
+                .register(meterRegistry);
+    }
 
     public String generateShortenedCode(String originalUrl) {
+        return generateShortenedCode(originalUrl, 0);
+    }
+
+    /**
+     * Generate the code for one collision probe of a URL. Probe 0 is the URL's own code;
+     * later probes hash the URL salted with the probe number, so every node and every
+     * retry walks the same sequence of alternatives.
+     * @param originalUrl the URL to shorten
+     * @param probe 0 for the first choice, then 1, 2, ... while earlier codes are taken
+     */
+    public String generateShortenedCode(String originalUrl, int probe) {
         if (originalUrl == null || originalUrl.trim().isEmpty()) {
             throw new IllegalArgumentException("URL cannot be null or empty");
         }
 
+        long startNanos = System.nanoTime();
         String trimmedUrl = originalUrl.trim();
-        log.debug("Generating shortened code for URL: {}", trimmedUrl);
+        String probeInput = probe > 0 ? trimmedUrl + PROBE_SEPARATOR + probe : trimmedUrl;
+        log.debug("Generating shortened code for URL: {}, probe={}", trimmedUrl, probe);
         
         String hashedCode;
+        boolean rude;
         int attempt = 0;
         
         do {
             // Generate SHA-256 hash with attempt counter to avoid rude words
-            String input = trimmedUrl + (attempt > 0 ? "_" + attempt : "");
+            String input = attempt > 0 ? probeInput + "_" + attempt : probeInput;
             hashedCode = generateHashedCode(input);
             attempt++;
+            rude = containsRudeWords(hashedCode);
             
-            if (containsRudeWords(hashedCode)) {
+            if (rude) {
                 log.debug("Generated code '{}' contains rude words, attempting again (attempt {})", hashedCode, attempt);
             }
-        } while (containsRudeWords(hashedCode) && attempt < MAX_RUDE_WORD_ATTEMPTS);
-        
-        if (containsRudeWords(hashedCode)) {
+        } while (rude && attempt < MAX_RUDE_WORD_ATTEMPTS);
+
+        if (attempt > 1) {
+            rudeWordRetries.increment(attempt - 1);
+        }
+        generateTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (rude) {
             log.error("Unable to generate clean shortened code for URL '{}' after {} attempts", trimmedUrl, MAX_RUDE_WORD_ATTEMPTS);
             throw new RuntimeException("Unable to generate clean shortened code after multiple attempts");
         }
@@ -56,45 +135,57 @@ public class UrlShortenerService {
     }
 
     private String generateHashedCode(String input) {
+        boolean pooled = Thread.currentThread().isVirtual();
+        HashState state = pooled ? borrowHashState() : HASH_STATE.get();
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            
+            state.digest.update(input.getBytes(StandardCharsets.UTF_8));
+            state.digest.digest(state.hash, 0, state.hash.length);
+
             // Take first bytes (will give us 6-8 character Base62 string)
-            byte[] truncatedHash = new byte[HASH_BYTES_LENGTH];
-            System.arraycopy(hashBytes, 0, truncatedHash, 0, HASH_BYTES_LENGTH);
-            
-            return encodeBase62(truncatedHash);
-        } catch (NoSuchAlgorithmException e) {
-            log.error("SHA-256 algorithm not available", e);
-            throw new RuntimeException("SHA-256 algorithm not available", e);
+            long value = 0;
+            for (int i = 0; i < HASH_BYTES_LENGTH; i++) {
+                value = (value << 8) | (state.hash[i] & 0xFF);
+            }
+            value >>>= HASH_BYTES_LENGTH * 8 - hashBits;
+
+            return encodeBase62(value, state.code);
+        } catch (DigestException e) {
+            log.error("SHA-256 digest failed", e);
+            throw new RuntimeException("SHA-256 digest failed", e);
+        } finally {
+            if (pooled) {
+                state.digest.reset();
+                POOLED_HASH_STATES.offer(state);
+            }
         }
     }
 
-    private String encodeBase62(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        
-        // Convert bytes to a large integer and encode using Base62
-        java.math.BigInteger bigInteger = new java.math.BigInteger(1, bytes);
-        java.math.BigInteger base = java.math.BigInteger.valueOf(62);
-        
-        while (bigInteger.compareTo(java.math.BigInteger.ZERO) > 0) {
-            java.math.BigInteger remainder = bigInteger.remainder(base);
-            result.insert(0, BASE62_ALPHABET.charAt(remainder.intValue()));
-            bigInteger = bigInteger.divide(base);
+    private static HashState borrowHashState() {
+        HashState state = POOLED_HASH_STATES.poll();
+        return state != null ? state : new HashState();
+    }
+
+    /**
+     * Encode an unsigned value of at most 48 bits as Base62, most significant digit
+     * first, left-padded to the minimum length and truncated to the maximum length.
+     * The buffer must hold at least {@link #MAX_ENCODED_DIGITS} characters.
+     */
+    static String encodeBase62(long value, char[] buffer) {
+        int pos = buffer.length;
+
+        while (value > 0) {
+            buffer[--pos] = BASE62_ALPHABET[(int) (value % 62)];
+            value /= 62;
         }
         
         // Ensure minimum length by padding with first character of alphabet
-        while (result.length() < MIN_CODE_LENGTH) {
-            result.insert(0, BASE62_ALPHABET.charAt(0));
+        while (buffer.length - pos < MIN_CODE_LENGTH) {
+            buffer[--pos] = BASE62_ALPHABET[0];
         }
         
-        // Limit to maximum length
-        if (result.length() > MAX_CODE_LENGTH) {
-            result = new StringBuilder(result.substring(0, MAX_CODE_LENGTH));
-        }
-        
-        return result.toString();
+        // Limit to maximum length, keeping the most significant digits
+        int length = Math.min(buffer.length - pos, MAX_CODE_LENGTH);
+        return new String(buffer, pos, length);
     }
 
     public boolean containsRudeWords(String code) {
@@ -102,17 +193,23 @@ public class UrlShortenerService {
             return false;
         }
         
-        String lowerCode = code.toLowerCase();
-        
-        for (String rudeWord : RUDE_WORDS) {
-            // Check if the rude word appears as a whole word (not just substring)
-            if (lowerCode.equals(rudeWord.toLowerCase()) || 
-                lowerCode.startsWith(rudeWord.toLowerCase()) ||
-                lowerCode.endsWith(rudeWord.toLowerCase())) {
-                return true;
+        return rudeWordFilter.matches(code);
+    }
+
+    private static final class HashState {
+
+        private final MessageDigest digest;
+        private final byte[] hash;
+        private final char[] code = new char[MAX_ENCODED_DIGITS];
+
+        private HashState() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                log.error("SHA-256 algorithm not available", e);
+                throw new RuntimeException("SHA-256 algorithm not available", e);
             }
+            hash = new byte[digest.getDigestLength()];
         }
-        
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+package au.id.ohare.ushort.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of creates, deletes and access-count deltas for the urls table,
+ * split into numbered segment files; the write-ahead log between snapshots. Every
+ * record carries a CRC32, so a torn write from a crash is detected on replay and cut
+ * off rather than applied. Each process appends to a fresh segment, rolling to the
+ * next once it reaches the size limit or a snapshot seals it.
+ */
+@Slf4j
+public final class SegmentLog implements Closeable {
+
+    static final int MAGIC = 0x55534C47;
+    // 2: times are epoch millis of the local date-time at UTC rather than the host zone
+    static final byte VERSION = 2;
+    static final int HEADER_BYTES = Integer.BYTES + 2;
+    static final byte CREATE = 1;
+    static final byte DELETE = 2;
+    static final byte ACCESS = 3;
+
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private SegmentWriter writer;
+    private long currentSequence;
+
+    private SegmentLog(Path directory, long segmentBytes, long firstSequence) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.currentSequence = firstSequence;
+        this.writer = new SegmentWriter(segmentPath(firstSequence), (byte) 0);
+    }
+
+    /**
+     * Open the log in a directory, starting a new segment after any existing ones
+     * @param directory where segment files live; created if missing
+     * @param segmentBytes size at which to roll to a new segment
+     * @return the open log
+     */
+    public static SegmentLog open(Path directory, long segmentBytes) throws IOException {
+        return open(directory, segmentBytes, 0);
+    }
+
+    /**
+     * Open the log, never reusing a sequence at or below one a snapshot already covers
+     * @param snapshotSequence last sequence covered by a snapshot, or 0
+     */
+    public static SegmentLog open(Path directory, long segmentBytes, long snapshotSequence) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments(directory);
+        long next = existing.isEmpty() ? 1 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        return new SegmentLog(directory, segmentBytes, Math.max(next, snapshotSequence + 1));
+    }
+
+    public void appendCreate(String shortenedUrl, String originalUrl, long accessCount,
+                             long createdAtMillis, long lastAccessedMillis) throws IOException {
+        lock.lock();
+        try {
+            writer.writeCreate(shortenedUrl, originalUrl, accessCount, createdAtMillis, lastAccessedMillis);
+            rollIfFull();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void appendDelete(String shortenedUrl) throws IOException {
+        lock.lock();
+        try {
+            writer.writeDelete(shortenedUrl);
+            rollIfFull();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void appendAccess(String shortenedUrl, long clicks, long lastAccessedMillis) throws IOException {
+        lock.lock();
+        try {
+            writer.writeAccess(shortenedUrl, clicks, lastAccessedMillis);
+            rollIfFull();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand appended records to the operating system so they survive the process dying
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            writer.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Force appended records to the storage device
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            writer.sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return every sealed segment, oldest first; on startup, everything earlier runs wrote
+     */
+    public List<Path> sealedSegments() throws IOException {
+        long current = currentSequence();
+        return listSegments(directory).stream().filter(path -> sequenceOf(path) < current).toList();
+    }
+
+    /**
+     * @return total size of all segment files
+     */
+    public long totalBytes() throws IOException {
+        long total = 0;
+        for (Path segment : listSegments(directory)) {
+            total += Files.size(segment);
+        }
+        return total;
+    }
+
+    /**
+     * Seal the current segment and start appending to a new one
+     * @return sequence of the segment just sealed
+     */
+    public long roll() throws IOException {
+        lock.lock();
+        try {
+            long sealed = currentSequence;
+            rollLocked();
+            return sealed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param sequence a segment sequence, typically the one a snapshot covers
+     * @return sealed segments after it, oldest first
+     */
+    public List<Path> sealedSegmentsAfter(long sequence) throws IOException {
+        return sealedSegments().stream().filter(path -> sequenceOf(path) > sequence).toList();
+    }
+
+    /**
+     * Delete sealed segments up to and including a sequence, once a snapshot covers them
+     * @param sequence the last sequence to delete
+     */
+    public void deleteSegmentsThrough(long sequence) throws IOException {
+        for (Path segment : sealedSegments()) {
+            if (sequenceOf(segment) <= sequence) {
+                Files.delete(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read segments in order, passing every intact record to the visitor. A segment
+     * ending in a torn or corrupt record is truncated to its last good record.
+     * @param segments segment files, oldest first
+     * @param visitor receives the records
+     */
+    public static void replay(List<Path> segments, Visitor visitor) throws IOException {
+        for (Path segment : segments) {
+            long validBytes = replaySegment(segment, visitor);
+            if (validBytes < Files.size(segment)) {
+                log.warn("Truncating torn segment log tail: segment={}, validBytes={}, fileBytes={}",
+                        segment.getFileName(), validBytes, Files.size(segment));
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                }
+            }
+        }
+    }
+
+    private static long replaySegment(Path segment, Visitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024))) {
+            if (Files.size(segment) < HEADER_BYTES) {
+                return 0;
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a segment log file: " + segment);
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported segment log version " + version + ": " + segment);
+            }
+            in.readByte();
+
+            long validBytes = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        return validBytes;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    return validBytes;
+                }
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return validBytes;
+                }
+                dispatch(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), visitor);
+                validBytes += Integer.BYTES * 2 + length;
+            }
+        }
+    }
+
+    private static void dispatch(DataInputStream record, Visitor visitor) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case CREATE -> visitor.onCreate(record.readUTF(), record.readUTF(), record.readLong(),
+                    record.readLong(), record.readLong());
+            case DELETE -> visitor.onDelete(record.readUTF());
+            case ACCESS -> visitor.onAccess(record.readUTF(), record.readLong(), record.readLong());
+            default -> throw new IOException("Unknown segment log record type: " + type);
+        }
+    }
+
+    private long currentSequence() {
+        lock.lock();
+        try {
+            return currentSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollIfFull() throws IOException {
+        if (writer.bytes() >= segmentBytes) {
+            rollLocked();
+        }
+    }
+
+    private void rollLocked() throws IOException {
+        writer.close();
+        currentSequence++;
+        writer = new SegmentWriter(segmentPath(currentSequence), (byte) 0);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Receives replayed records
+     */
+    public interface Visitor {
+
+        void onCreate(String shortenedUrl, String originalUrl, long accessCount, long createdAtMillis, long lastAccessedMillis);
+
+        void onDelete(String shortenedUrl);
+
+        void onAccess(String shortenedUrl, long clicks, long lastAccessedMillis);
+    }
+}
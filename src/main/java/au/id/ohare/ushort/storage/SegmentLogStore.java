@@ -0,0 +1,313 @@
+package au.id.ohare.ushort.storage;
+
+import au.id.ohare.ushort.event.AccessCountsFlushedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.UrlRow;
+import au.id.ohare.ushort.service.AccessCountAggregator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot plus write-ahead log persistence for the urls table, enabled with
+ * {@code app.storage.engine=log}. H2 stays the in-memory index that serves queries;
+ * every committed create, delete and access-count flush is appended to a
+ * {@link SegmentLog}, and every {@code app.storage.snapshot.interval-ms} the log is
+ * folded into a compact {@link SnapshotFile} and the covered segments deleted. On
+ * startup the newest snapshot is streamed from a memory-mapped file through the
+ * changes logged since and restored into H2 before the web server starts.
+ * <p>
+ * Appends reach the operating system as soon as they are made, so a kill -9 loses at
+ * most the clicks still pending in the write-behind counter; the log is forced to
+ * disk every {@code app.storage.log.sync-interval-ms} against power loss.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "log")
+public class SegmentLogStore implements SmartInitializingSingleton {
+
+    private static final int RESTORE_BATCH_SIZE = 1000;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final UrlJdbcRepository urlJdbcRepository;
+    private final AccessCountAggregator accessCountAggregator;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long snapshotMinLogBytes;
+    private final Counter appendFailures;
+    private final Timer snapshotTimer;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile SegmentLog segmentLog;
+
+    public SegmentLogStore(UrlJdbcRepository urlJdbcRepository,
+                           AccessCountAggregator accessCountAggregator,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.storage.log.directory:data/log}") Path directory,
+                           @Value("${app.storage.log.segment-bytes:67108864}") long segmentBytes,
+                           @Value("${app.storage.snapshot.min-log-bytes:1048576}") long snapshotMinLogBytes) {
+        this.urlJdbcRepository = urlJdbcRepository;
+        this.accessCountAggregator = accessCountAggregator;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.snapshotMinLogBytes = snapshotMinLogBytes;
+
+        this.appendFailures = Counter.builder("ushort.storage.log.append.failures")
+                .description("Changes that could not be appended to the segment log")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("ushort.storage.snapshot")
+                .description("Duration of writing a snapshot and trimming the segment log")
+                .register(meterRegistry);
+        Gauge.builder("ushort.storage.log.size", this, SegmentLogStore::totalBytesQuietly)
+                .description("Size of all segment log files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Restore the newest snapshot and the log written since into the urls table, once
+     * every bean, the schema included, exists and before the web server takes requests
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            Path snapshot = latestSnapshot();
+            long snapshotSequence = snapshot != null ? snapshotSequenceOf(snapshot) : 0;
+            segmentLog = SegmentLog.open(directory, segmentBytes, snapshotSequence);
+            // Finish the cleanup of a snapshot the last run wrote but did not get to trim after
+            removeSupersededFiles();
+
+            WalOverlay overlay = new WalOverlay();
+            List<Path> segments = segmentLog.sealedSegmentsAfter(snapshotSequence);
+            SegmentLog.replay(segments, overlay);
+            int loggedChanges = overlay.size();
+
+            long[] restored = new long[1];
+            List<UrlRow> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+            overlay.merge(snapshotSource(snapshot), url -> {
+                batch.add(toUrlRow(url));
+                restored[0]++;
+                if (batch.size() == RESTORE_BATCH_SIZE) {
+                    urlJdbcRepository.restoreAll(batch);
+                    batch.clear();
+                }
+            });
+            urlJdbcRepository.restoreAll(batch);
+
+            log.info("URLs restored: directory={}, snapshot={}, segments={}, loggedChanges={}, urls={}, duration={}ms",
+                    directory.toAbsolutePath(), snapshot != null ? snapshot.getFileName() : "none", segments.size(),
+                    loggedChanges, restored[0], System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to restore URLs from " + directory.toAbsolutePath(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsCreated(UrlsCreatedEvent event) {
+        try {
+            for (UrlsCreatedEvent.CreatedUrl url : event.urls()) {
+                segmentLog.appendCreate(url.shortenedUrl(), url.originalUrl(), url.accessCount(),
+                        toEpochMillis(url.createdAt()), toEpochMillis(url.lastAccessed()));
+            }
+            segmentLog.flush();
+        } catch (IOException e) {
+            appendFailed("create", event.urls().size(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUrlsDeleted(UrlsDeletedEvent event) {
+        try {
+            for (String shortenedUrl : event.shortenedCodes()) {
+                segmentLog.appendDelete(shortenedUrl);
+            }
+            segmentLog.flush();
+        } catch (IOException e) {
+            appendFailed("delete", event.shortenedCodes().size(), e);
+        }
+    }
+
+    @EventListener
+    public void onAccessCountsFlushed(AccessCountsFlushedEvent event) {
+        try {
+            for (UrlJdbcRepository.AccessDelta delta : event.deltas()) {
+                segmentLog.appendAccess(delta.shortenedUrl(), delta.clicks(), toEpochMillis(delta.lastAccessed()));
+            }
+            segmentLog.flush();
+        } catch (IOException e) {
+            appendFailed("access", event.deltas().size(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.log.sync-interval-ms:1000}")
+    public void sync() {
+        try {
+            segmentLog.sync();
+        } catch (IOException e) {
+            log.error("Failed to sync segment log: directory={}, error={}", directory, e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.storage.snapshot.interval-ms:300000}",
+               fixedDelayString = "${app.storage.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        try {
+            if (segmentLog.totalBytes() >= snapshotMinLogBytes) {
+                snapshot();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot failed: directory={}, error={}", directory, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fold the previous snapshot and every sealed segment into a new snapshot, then
+     * delete what it supersedes. Appends continue into a fresh segment meanwhile.
+     * @return number of URLs in the snapshot
+     */
+    public long snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long startTime = System.nanoTime();
+            long through = segmentLog.roll();
+            Path previous = latestSnapshot();
+            long previousSequence = previous != null ? snapshotSequenceOf(previous) : 0;
+
+            WalOverlay overlay = new WalOverlay();
+            SegmentLog.replay(segmentLog.sealedSegmentsAfter(previousSequence), overlay);
+            long urls = SnapshotFile.write(snapshotPath(through), through,
+                    sink -> overlay.merge(snapshotSource(previous), sink));
+            removeSupersededFiles();
+
+            long elapsed = System.nanoTime() - startTime;
+            snapshotTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Snapshot written: snapshot={}, urls={}, duration={}ms",
+                    snapshotPath(through).getFileName(), urls, elapsed / 1_000_000);
+            return urls;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        // Runs before the aggregator is destroyed, so its last clicks still reach the log
+        accessCountAggregator.flush();
+        try {
+            // Leave a snapshot so the next start has no log to replay
+            if (segmentLog.totalBytes() > SegmentLog.HEADER_BYTES) {
+                snapshot();
+            }
+        } finally {
+            segmentLog.close();
+        }
+        log.info("Segment log closed: directory={}", directory);
+    }
+
+    /**
+     * Delete snapshots older than the newest and segments it covers
+     * @return the newest snapshot, or null if there is none
+     */
+    private Path removeSupersededFiles() throws IOException {
+        Path latest = latestSnapshot();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                boolean staleSnapshot = name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                        && !file.equals(latest);
+                // A .tmp file is a snapshot that was never completed
+                if (staleSnapshot || (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(".tmp"))) {
+                    Files.delete(file);
+                }
+            }
+        }
+        if (latest != null) {
+            segmentLog.deleteSegmentsThrough(snapshotSequenceOf(latest));
+        }
+        return latest;
+    }
+
+    private Path latestSnapshot() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .max(Comparator.comparingLong(SegmentLogStore::snapshotSequenceOf))
+                    .orElse(null);
+        }
+    }
+
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    private static long snapshotSequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static SnapshotFile.SnapshotSource snapshotSource(Path snapshot) {
+        return sink -> {
+            if (snapshot != null) {
+                SnapshotFile.read(snapshot, sink);
+            }
+        };
+    }
+
+    private static UrlRow toUrlRow(StoredUrl url) {
+        return new UrlRow(0, url.originalUrl(), url.shortenedUrl(), url.accessCount(),
+                toLocalDateTime(url.createdAtMillis()), toLocalDateTime(url.lastAccessedMillis()));
+    }
+
+    private void appendFailed(String operation, int records, IOException e) {
+        appendFailures.increment(records);
+        log.error("Failed to append to segment log: operation={}, records={}, error={}",
+                operation, records, e.getMessage(), e);
+    }
+
+    private double totalBytesQuietly() {
+        try {
+            return segmentLog != null ? segmentLog.totalBytes() : 0;
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    // At UTC, like EpochSecondsConverter, so files restore unchanged under any host zone
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,112 @@
+package au.id.ohare.ushort.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes one segment file: a header followed by length-prefixed, CRC32-checked
+ * records. Not thread-safe; {@link SegmentLog} serialises access.
+ */
+final class SegmentWriter implements Closeable {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+    private long bytes;
+
+    SegmentWriter(Path path, byte flags) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE));
+        out.writeInt(SegmentLog.MAGIC);
+        out.writeByte(SegmentLog.VERSION);
+        out.writeByte(flags);
+        bytes = SegmentLog.HEADER_BYTES;
+    }
+
+    void writeCreate(String shortenedUrl, String originalUrl, long accessCount,
+                     long createdAtMillis, long lastAccessedMillis) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(SegmentLog.CREATE);
+        record.writeUTF(shortenedUrl);
+        record.writeUTF(originalUrl);
+        record.writeLong(accessCount);
+        record.writeLong(createdAtMillis);
+        record.writeLong(lastAccessedMillis);
+        writeRecord();
+    }
+
+    void writeDelete(String shortenedUrl) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(SegmentLog.DELETE);
+        record.writeUTF(shortenedUrl);
+        writeRecord();
+    }
+
+    void writeAccess(String shortenedUrl, long clicks, long lastAccessedMillis) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(SegmentLog.ACCESS);
+        record.writeUTF(shortenedUrl);
+        record.writeLong(clicks);
+        record.writeLong(lastAccessedMillis);
+        writeRecord();
+    }
+
+    /**
+     * Hand buffered records to the operating system, which keeps them across a process kill
+     */
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flush and force the records to the storage device
+     */
+    void sync() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        out.close();
+    }
+
+    private void writeRecord() throws IOException {
+        int length = recordBuffer.size();
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, length);
+        out.writeInt(length);
+        out.writeInt((int) crc.getValue());
+        out.write(recordBuffer.array(), 0, length);
+        bytes += Integer.BYTES * 2 + length;
+    }
+
+    // Exposes the backing array so records are checksummed and written without a copy
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package au.id.ohare.ushort.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot of every live URL. The header records the last segment log
+ * sequence the snapshot covers; the body is a run of fixed-layout records and the
+ * trailer a CRC32 of the body. Snapshots are read through a memory-mapped buffer, so
+ * restoring decodes straight from the page cache without copying through streams.
+ * <pre>
+ * header:  int magic, byte version, long throughSequence, long count
+ * record:  byte codeLength, code (ASCII), short urlLength, url (UTF-8),
+ *          long accessCount, long createdAtMillis, long lastAccessedMillis
+ * trailer: int crc32 of all records
+ * </pre>
+ */
+public final class SnapshotFile {
+
+    static final int MAGIC = 0x5553534E;
+    // 2: times are epoch millis of the local date-time at UTC rather than the host zone
+    static final byte VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES * 2;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Write a snapshot to a temporary file and atomically move it into place
+     * @param target the snapshot path
+     * @param throughSequence last segment log sequence included
+     * @param writer called with a sink that accepts every URL to include
+     * @return number of URLs written
+     */
+    public static long write(Path target, long throughSequence, SnapshotSource writer) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long count;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeLong(throughSequence);
+            header.writeLong(0);
+
+            CRC32 crc = new CRC32();
+            DataOutputStream body = new DataOutputStream(new CheckedOutputStream(file, crc));
+            long[] written = new long[1];
+            writer.writeTo(url -> {
+                try {
+                    writeRecord(body, url);
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            body.flush();
+            header.writeInt((int) crc.getValue());
+            header.flush();
+            count = written[0];
+
+            // Fill in the record count now that it is known
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, count), Integer.BYTES + 1 + Long.BYTES);
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Read every URL in a snapshot through a memory-mapped buffer
+     * @param path the snapshot
+     * @param action receives each URL in file order
+     * @return the segment log sequence the snapshot covers
+     * @throws IOException if the file is not a snapshot or fails its checksum
+     */
+    public static long read(Path path, Consumer<StoredUrl> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path + " (" + size + " bytes)");
+            }
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            long throughSequence = buffer.getLong();
+            long count = buffer.getLong();
+
+            int bodyEnd = (int) size - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, bodyEnd - HEADER_BYTES));
+            if ((int) crc.getValue() != buffer.getInt(bodyEnd)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+
+            byte[] scratch = new byte[256];
+            for (long i = 0; i < count; i++) {
+                int codeLength = buffer.get() & 0xFF;
+                scratch = ensureCapacity(scratch, codeLength);
+                buffer.get(scratch, 0, codeLength);
+                String shortenedUrl = new String(scratch, 0, codeLength, StandardCharsets.ISO_8859_1);
+
+                int urlLength = buffer.getShort() & 0xFFFF;
+                scratch = ensureCapacity(scratch, urlLength);
+                buffer.get(scratch, 0, urlLength);
+                String originalUrl = new String(scratch, 0, urlLength, StandardCharsets.UTF_8);
+
+                action.accept(new StoredUrl(shortenedUrl, originalUrl, buffer.getLong(), buffer.getLong(), buffer.getLong()));
+            }
+            return throughSequence;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, StoredUrl url) throws IOException {
+        byte[] code = url.shortenedUrl().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] originalUrl = url.originalUrl().getBytes(StandardCharsets.UTF_8);
+        out.writeByte(code.length);
+        out.write(code);
+        out.writeShort(originalUrl.length);
+        out.write(originalUrl);
+        out.writeLong(url.accessCount());
+        out.writeLong(url.createdAtMillis());
+        out.writeLong(url.lastAccessedMillis());
+    }
+
+    private static byte[] ensureCapacity(byte[] scratch, int length) {
+        return scratch.length >= length ? scratch : new byte[Math.max(length, scratch.length * 2)];
+    }
+
+    /**
+     * Supplies the URLs for a snapshot
+     */
+    @FunctionalInterface
+    public interface SnapshotSource {
+
+        void writeTo(Consumer<StoredUrl> sink) throws IOException;
+    }
+}
@@ -0,0 +1,13 @@
+package au.id.ohare.ushort.storage;
+
+/**
+ * A URL as persisted in snapshots and the segment log, with times as epoch millis
+ * @param shortenedUrl the shortened URL code
+ * @param originalUrl the original URL
+ * @param accessCount clicks recorded so far
+ * @param createdAtMillis creation time
+ * @param lastAccessedMillis most recent access time
+ */
+public record StoredUrl(String shortenedUrl, String originalUrl, long accessCount,
+                        long createdAtMillis, long lastAccessedMillis) {
+}
@@ -0,0 +1,89 @@
+package au.id.ohare.ushort.storage;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Folds segment log records written since a snapshot into per-code changes, then
+ * applies them while the snapshot streams past. Memory is proportional to the codes
+ * changed since the snapshot, not to the table.
+ */
+final class WalOverlay implements SegmentLog.Visitor {
+
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+
+    @Override
+    public void onCreate(String shortenedUrl, String originalUrl, long accessCount,
+                         long createdAtMillis, long lastAccessedMillis) {
+        // Clicks can be logged ahead of their create: the flusher and the committing thread
+        // append independently, so keep any folded so far rather than replacing them
+        Change change = changes.computeIfAbsent(shortenedUrl, code -> new Change());
+        change.created = new StoredUrl(shortenedUrl, originalUrl, accessCount, createdAtMillis, lastAccessedMillis);
+        change.deleted = false;
+    }
+
+    @Override
+    public void onDelete(String shortenedUrl) {
+        Change change = new Change();
+        change.deleted = true;
+        changes.put(shortenedUrl, change);
+    }
+
+    @Override
+    public void onAccess(String shortenedUrl, long clicks, long lastAccessedMillis) {
+        Change change = changes.computeIfAbsent(shortenedUrl, code -> new Change());
+        if (!change.deleted) {
+            change.clicks += clicks;
+            change.lastAccessedMillis = Math.max(change.lastAccessedMillis, lastAccessedMillis);
+        }
+    }
+
+    int size() {
+        return changes.size();
+    }
+
+    /**
+     * Pass every URL of the snapshot through the changes, then emit URLs created since
+     * @param snapshot supplies the snapshot's URLs, or nothing if there is no snapshot
+     * @param sink receives the resulting live URLs
+     */
+    void merge(SnapshotFile.SnapshotSource snapshot, Consumer<StoredUrl> sink) throws IOException {
+        snapshot.writeTo(url -> {
+            Change change = changes.remove(url.shortenedUrl());
+            StoredUrl merged = change == null ? url : change.applyTo(url);
+            if (merged != null) {
+                sink.accept(merged);
+            }
+        });
+        for (Change change : changes.values()) {
+            // Clicks on codes that exist in neither the snapshot nor a create are dropped
+            StoredUrl created = change.applyTo(null);
+            if (created != null) {
+                sink.accept(created);
+            }
+        }
+        changes.clear();
+    }
+
+    private static final class Change {
+
+        private StoredUrl created;
+        private boolean deleted;
+        private long clicks;
+        private long lastAccessedMillis;
+
+        StoredUrl applyTo(StoredUrl base) {
+            StoredUrl url = created != null ? created : base;
+            if (deleted || url == null) {
+                return null;
+            }
+            if (clicks == 0) {
+                return url;
+            }
+            return new StoredUrl(url.shortenedUrl(), url.originalUrl(), url.accessCount() + clicks,
+                    url.createdAtMillis(), Math.max(url.lastAccessedMillis(), lastAccessedMillis));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package au.id.ohare.ushort.web;
+
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.ShortCodes;
+import au.id.ohare.ushort.service.UrlService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Answers GET /{code} and GET /api/{code} with a 302 before Spring Security, the
+ * DispatcherServlet and view resolution run. Only codes resolved from memory are
+ * served here; misses, expired codes, URLs that are not plain ASCII and every other
+ * path continue down the chain to the controllers, which keep the full behaviour.
+ */
+@RequiredArgsConstructor
+public class RedirectFastPathFilter implements Filter {
+
+    private static final String API_PREFIX = "/api/";
+
+    // Well-formed paths that belong to the application, never to a shortcode
+    private static final Set<String> RESERVED = Set.of("actuator", "logout", "shorten");
+
+    private final UrlService urlService;
+    private final AccessLog accessLog;
+    private final UrlMetrics urlMetrics;
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        long startNanos = System.nanoTime();
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        String code = shortCodeOf(request);
+        String originalUrl = code != null ? urlService.resolveRedirect(code) : null;
+        if (originalUrl == null || !isAscii(originalUrl)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader("Location", originalUrl);
+        response.setContentLength(0);
+        accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.FAST, code, request);
+        urlMetrics.recordRedirect(AccessLog.Route.FAST, AccessLog.Outcome.REDIRECT, startNanos);
+    }
+
+    private static String shortCodeOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+        return shortCodeOf(request.getRequestURI(), request.getContextPath().length());
+    }
+
+    /**
+     * @return the code in /{code} or /api/{code}, or null for any other path
+     */
+    static String shortCodeOf(String requestUri, int contextPathLength) {
+        int start = contextPathLength + 1;
+        if (requestUri.startsWith(API_PREFIX, contextPathLength)) {
+            start = contextPathLength + API_PREFIX.length();
+        } else if (requestUri.length() <= contextPathLength || requestUri.charAt(contextPathLength) != '/') {
+            return null;
+        }
+        int length = requestUri.length() - start;
+        if (length < ShortCodes.MIN_LENGTH || length > ShortCodes.MAX_LENGTH) {
+            return null;
+        }
+        String code = requestUri.substring(start);
+        return ShortCodes.isWellFormed(code) && !RESERVED.contains(code) ? code : null;
+    }
+
+    // Anything else is left to the controllers, which encode it for the Location header
+    private static boolean isAscii(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c < 0x21 || c > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
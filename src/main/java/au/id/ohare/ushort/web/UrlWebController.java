@@ -2,6 +2,8 @@ package au.id.ohare.ushort.web;
 
 import au.id.ohare.ushort.dto.ShortenUrlRequest;
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
 import au.id.ohare.ushort.service.UrlService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -26,6 +28,8 @@ public class UrlWebController {
     private static final String X_REAL_IP_HEADER = "X-Real-IP";
 
     private final UrlService urlService;
+    private final AccessLog accessLog;
+    private final UrlMetrics urlMetrics;
 
     @GetMapping("/")
     public String showHomePage(Model model) {
@@ -57,6 +61,7 @@ public class UrlWebController {
             return "index";
         }
 
+        long startNanos = System.nanoTime();
         try {
             UrlEntity urlEntity = urlService.createShortenedUrl(originalUrl);
             
@@ -66,12 +71,14 @@ public class UrlWebController {
             model.addAttribute("originalUrl", originalUrl);
             model.addAttribute("shortenedUrl", fullShortenedUrl);
 
+            urlMetrics.recordShorten(UrlMetrics.ShortenRoute.WEB, true, startNanos);
             log.info("URL shortened successfully via web interface: originalUrl={}, shortenedUrl={}, clientIp={}", 
                     originalUrl, fullShortenedUrl, clientIp);
 
             return "success";
 
         } catch (Exception e) {
+            urlMetrics.recordShorten(UrlMetrics.ShortenRoute.WEB, false, startNanos);
             log.error("Failed to shorten URL via web interface: originalUrl={}, clientIp={}, error={}", 
                     originalUrl, clientIp, e.getMessage(), e);
             model.addAttribute("errorMessage", "An error occurred while shortening the URL. Please try again.");
@@ -84,14 +91,17 @@ public class UrlWebController {
             @PathVariable String shortenedCode,
             Model model,
             HttpServletRequest request) {
-        
+
+        long startNanos = System.nanoTime();
         String clientIp = getClientIp(request);
         log.debug("Processing redirection request: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
 
         Optional<String> originalUrlOpt = urlService.getOriginalUrl(shortenedCode, clientIp);
 
         if (originalUrlOpt.isEmpty()) {
-            log.warn("Shortened URL not found via web interface: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            log.debug("Shortened URL not found via web interface: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            accessLog.record(AccessLog.Outcome.NOT_FOUND, AccessLog.Route.WEB, shortenedCode, request);
+            urlMetrics.recordRedirect(AccessLog.Route.WEB, AccessLog.Outcome.NOT_FOUND, startNanos);
             model.addAttribute("errorMessage", "The shortened URL you requested was not found.");
             model.addAttribute("isNotFound", true);
             return "error";
@@ -100,15 +110,17 @@ public class UrlWebController {
         String originalUrl = originalUrlOpt.get();
 
         if (EXPIRED_URL_MARKER.equals(originalUrl)) {
-            log.warn("Shortened URL expired via web interface: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            log.debug("Shortened URL expired via web interface: shortenedCode={}, clientIp={}", shortenedCode, clientIp);
+            accessLog.record(AccessLog.Outcome.EXPIRED, AccessLog.Route.WEB, shortenedCode, request);
+            urlMetrics.recordRedirect(AccessLog.Route.WEB, AccessLog.Outcome.EXPIRED, startNanos);
             model.addAttribute("errorMessage", "The shortened URL you requested has expired.");
             model.addAttribute("isExpired", true);
             return "error";
         }
 
-        log.info("Redirecting via web interface: shortenedCode={}, originalUrl={}, clientIp={}", 
-                shortenedCode, originalUrl, clientIp);
-        
+        accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.WEB, shortenedCode, request);
+        urlMetrics.recordRedirect(AccessLog.Route.WEB, AccessLog.Outcome.REDIRECT, startNanos);
+
         return "redirect:" + originalUrl;
     }
 
@@ -125,6 +125,85 @@ class AdminAnalyticsIntegrationTest {
         assertTrue(body.contains("https://google.com"));
     }
 
+    @Test
+    @DisplayName("Should page through URL statistics by access count with a cursor")
+    void shouldPageThroughUrlStatistics() throws Exception {
+        // Given - Five URLs, two sharing an access count
+        urlRepository.save(createTestUrl("https://a.example.com", "aaa111", 50));
+        urlRepository.save(createTestUrl("https://b.example.com", "bbb222", 40));
+        urlRepository.save(createTestUrl("https://c.example.com", "ccc333", 40));
+        urlRepository.save(createTestUrl("https://d.example.com", "ddd444", 10));
+        urlRepository.save(createTestUrl("https://e.example.com", "eee555", 0));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", adminCredentials);
+        HttpEntity<String> request = new HttpEntity<>(headers);
+
+        // When - Walk the pages two at a time
+        StringBuilder codes = new StringBuilder();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = baseUrl + "/api/admin/urls?limit=2" + (cursor != null ? "&after=" + cursor : "");
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+
+            JsonNode page = objectMapper.readTree(response.getBody());
+            for (JsonNode item : page.get("items")) {
+                codes.append(item.get("shortenedUrl").asText()).append(' ');
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        // Then - Every URL appears once, highest access count first, ties by descending packed shortcode
+        assertEquals("aaa111 ccc333 bbb222 ddd444 eee555 ", codes.toString());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    @DisplayName("Should keep the requested page size in the analytics page links")
+    void shouldKeepPageSizeInPageLinks() {
+        // Given - More URLs than fit on one page of two
+        urlRepository.save(createTestUrl("https://a.example.com", "aaa111", 30));
+        urlRepository.save(createTestUrl("https://b.example.com", "bbb222", 20));
+        urlRepository.save(createTestUrl("https://c.example.com", "ccc333", 10));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", adminCredentials);
+
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + "/admin/analytics?limit=2",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        );
+
+        // Then - The next page link asks for two rows again
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertTrue(response.getBody().matches("(?s).*href=\"/admin/analytics\\?after=[^\"]+&amp;limit=2\".*"),
+                "Next page link should carry the page size");
+        assertFalse(response.getBody().contains("ccc333"));
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed statistics cursor")
+    void shouldRejectMalformedCursor() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", adminCredentials);
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + "/api/admin/urls?after=not-a-cursor",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     private UrlEntity createTestUrl(String originalUrl, String shortenedUrl, int accessCount) {
         return UrlEntity.builder()
                 .originalUrl(originalUrl)
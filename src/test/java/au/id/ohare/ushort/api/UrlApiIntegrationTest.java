@@ -2,6 +2,7 @@ package au.id.ohare.ushort.api;
 
 import au.id.ohare.ushort.entity.UrlEntity;
 import au.id.ohare.ushort.repository.UrlRepository;
+import au.id.ohare.ushort.service.AccessCountAggregator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +19,8 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -36,6 +39,9 @@ class UrlApiIntegrationTest {
     @Autowired
     private UrlRepository urlRepository;
 
+    @Autowired
+    private AccessCountAggregator accessCountAggregator;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -228,7 +234,8 @@ class UrlApiIntegrationTest {
         assertEquals(HttpStatus.FOUND, response.getStatusCode());
         assertEquals(originalUrl, response.getHeaders().getLocation().toString());
 
-        // Verify access count was incremented
+        // Verify access count was incremented once the write-behind flush runs
+        accessCountAggregator.flush();
         Optional<UrlEntity> updatedEntity = urlRepository.findByShortenedUrl(shortenedCode);
         assertTrue(updatedEntity.isPresent());
         assertEquals(1, updatedEntity.get().getAccessCount());
@@ -276,6 +283,31 @@ class UrlApiIntegrationTest {
         assertFalse(deletedEntity.isPresent(), "Expired URL should be deleted from database");
     }
 
+    @Test
+    @DisplayName("Should return 404 once an expired URL has been deleted by a redirect")
+    void shouldForgetExpiredUrlAfterRedirect() {
+        // Given - An expired URL, removed by the first redirect
+        String shortenedCode = "gone123456";
+        urlRepository.save(UrlEntity.builder()
+                .originalUrl("https://www.gone-test.com")
+                .shortenedUrl(shortenedCode)
+                .accessCount(0)
+                .lastAccessed(LocalDateTime.now().minusDays(91))
+                .createdAt(LocalDateTime.now().minusDays(100))
+                .build());
+        assertEquals(HttpStatus.GONE,
+                restTemplate.getForEntity(baseUrl + "/api/" + shortenedCode, String.class).getStatusCode());
+
+        // When - Access it again
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                baseUrl + "/api/" + shortenedCode,
+                String.class
+        );
+
+        // Then - The deletion reached the in-memory indexes as well as the table
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
     @Test
     @DisplayName("Should update last accessed time on successful redirect")
     void shouldUpdateLastAccessedTime() throws InterruptedException {
@@ -304,7 +336,8 @@ class UrlApiIntegrationTest {
         // Then
         assertEquals(HttpStatus.FOUND, response.getStatusCode());
 
-        // Verify last accessed time was updated
+        // Verify last accessed time was updated once the write-behind flush runs
+        accessCountAggregator.flush();
         Optional<UrlEntity> updatedEntity = urlRepository.findByShortenedUrl(shortenedCode);
         assertTrue(updatedEntity.isPresent());
         assertTrue(updatedEntity.get().getLastAccessed().isAfter(initialTime), 
@@ -345,6 +378,7 @@ class UrlApiIntegrationTest {
         }
 
         // Then - Verify access count was incremented correctly
+        accessCountAggregator.flush();
         Optional<UrlEntity> updatedEntity = urlRepository.findByShortenedUrl(shortenedCode);
         assertTrue(updatedEntity.isPresent());
         assertEquals(5, updatedEntity.get().getAccessCount());
@@ -369,4 +403,90 @@ class UrlApiIntegrationTest {
         assertTrue(response.getHeaders().getContentType().includes(MediaType.APPLICATION_JSON),
                 "Content-Type should be application/json");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should shorten a batch preserving input order and reporting per-item errors")
+    void shouldShortenBatchPreservingOrder() throws Exception {
+        // Given - one URL already shortened, one invalid, one duplicated within the batch
+        restTemplate.postForEntity(baseUrl + "/api/shorten", Map.of("url", "https://www.existing.com"), String.class);
+        Map<String, Object> request = Map.of("urls", List.of(
+                "https://www.batch-one.com",
+                "not-a-valid-url",
+                "https://www.existing.com",
+                "https://www.batch-one.com"
+        ));
+
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                baseUrl + "/api/shorten/batch",
+                request,
+                String.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode json = objectMapper.readTree(response.getBody());
+        JsonNode results = json.get("results");
+        assertEquals(4, results.size());
+        assertEquals(1, json.get("created").asInt(), "Only the first new URL should be inserted");
+        assertEquals(1, json.get("failed").asInt());
+
+        assertEquals("https://www.batch-one.com", results.get(0).get("originalUrl").asText());
+        assertTrue(results.get(0).get("created").asBoolean());
+        assertTrue(results.get(1).hasNonNull("error"), "Invalid URL should carry an error");
+        assertFalse(results.get(2).get("created").asBoolean(), "Existing URL should not be re-created");
+        assertEquals(results.get(0).get("shortenedUrl").asText(), results.get(3).get("shortenedUrl").asText());
+
+        assertEquals(2, urlRepository.count());
+        String code = results.get(0).get("shortenedUrl").asText();
+        code = code.substring(code.lastIndexOf("/") + 1);
+        assertEquals(HttpStatus.FOUND, restTemplate.getForEntity(baseUrl + "/api/" + code, String.class).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an empty batch")
+    void shouldReturn400ForEmptyBatch() {
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                baseUrl + "/api/shorten/batch",
+                Map.of("urls", List.of()),
+                String.class
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should expose latency histograms and outcome counters on the Prometheus endpoint")
+    void shouldExposePrometheusMetrics() {
+        ResponseEntity<String> created = restTemplate.postForEntity(
+                baseUrl + "/api/shorten", Map.of("url", "https://www.metrics.example.com"), String.class);
+        assertEquals(HttpStatus.OK, created.getStatusCode());
+        String code = urlRepository.findAll().get(0).getShortenedUrl();
+        assertEquals(HttpStatus.FOUND, restTemplate.getForEntity(baseUrl + "/api/" + code, String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(baseUrl + "/api/zzzzzz9", String.class).getStatusCode());
+
+        ResponseEntity<String> unauthenticated = restTemplate.getForEntity(baseUrl + "/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, unauthenticated.getStatusCode());
+
+        ResponseEntity<String> response = restTemplate.withBasicAuth("admin", "admin123")
+                .getForEntity(baseUrl + "/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String body = response.getBody();
+        assertTrue(hasSample(body, "ushort_redirect_seconds_bucket", "route=\"fast\"", "outcome=\"redirect\""));
+        assertTrue(hasSample(body, "ushort_redirect_seconds_bucket", "route=\"api\"", "outcome=\"not_found\""));
+        assertTrue(hasSample(body, "ushort_shorten_seconds_bucket", "route=\"api\"", "outcome=\"success\""));
+        assertTrue(hasSample(body, "ushort_shortcode_generate_seconds_bucket"));
+        assertTrue(hasSample(body, "ushort_urls_outcomes_total", "outcome=\"created\""));
+        assertTrue(hasSample(body, "ushort_urls_outcomes_total", "outcome=\"not_found\""));
+        assertTrue(hasSample(body, "spring_data_repository_invocations_seconds_bucket", "repository=\"UrlJdbcRepository\""));
+        assertTrue(hasSample(body, "spring_data_repository_invocations_seconds_bucket", "repository=\"UrlRepository\""));
+    }
+
+    // True if some sample of the metric carries all the labels and a non-zero value
+    private static boolean hasSample(String exposition, String metric, String... labels) {
+        return exposition.lines()
+                .filter(line -> line.startsWith(metric + "{"))
+                .filter(line -> Arrays.stream(labels).allMatch(line::contains))
+                .anyMatch(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)) > 0);
+    }
+}
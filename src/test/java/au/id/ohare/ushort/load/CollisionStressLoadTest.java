@@ -0,0 +1,107 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.UshortApplication;
+import au.id.ohare.ushort.service.BatchShorteningService;
+import au.id.ohare.ushort.service.UrlService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Create throughput as collisions become the norm. Truncating the hash to 15 bits
+ * leaves 32,768 codes for 24,000 URLs, so late creates probe several codes each. With
+ * ownership answered from the off-heap index those probes stay in memory; without it each one is a query.
+ * Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class CollisionStressLoadTest {
+
+    private static final int SINGLE_CREATES = 12_000;
+    private static final int BATCH_CREATES = 12_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Test
+    @DisplayName("Should allocate distinct codes under heavy collisions, probing in memory")
+    void shouldAllocateUnderHeavyCollisions() {
+        StressResult baseline = run("full-hash", 48, true);
+        StressResult indexed = run("15-bit", 15, true);
+        StressResult database = run("15-bit-db", 15, false);
+
+        System.out.printf("%nhash        single/s  batch/s  collisions/url  lookups/single%n");
+        System.out.println(baseline.describe());
+        System.out.println(indexed.describe());
+        System.out.println(database.describe());
+
+        assertEquals(0, baseline.collisions());
+        assertTrue(indexed.collisions() > SINGLE_CREATES + BATCH_CREATES,
+                "Expected more than one collision per URL, was " + indexed.collisions());
+        // Lookups only confirm a code the URL already owns, and no URL here is shortened twice
+        assertEquals(0, indexed.lookups());
+        assertTrue(database.lookups() > SINGLE_CREATES);
+    }
+
+    private StressResult run(String name, int hashBits, boolean ownershipIndex) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.shortcode.hash-bits=" + hashBits,
+                        "app.shortcode.max-probes=256",
+                        "app.ownership-index.enabled=" + ownershipIndex,
+                        "spring.datasource.url=jdbc:h2:mem:collision-" + name,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .run()) {
+            UrlService urlService = context.getBean(UrlService.class);
+            BatchShorteningService batchShorteningService = context.getBean(BatchShorteningService.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            Set<String> codes = new HashSet<>();
+
+            long singleStart = System.nanoTime();
+            for (int i = 0; i < SINGLE_CREATES; i++) {
+                codes.add(urlService.createShortenedUrl("https://example.com/single/" + i).getShortenedUrl());
+            }
+            long singleNanos = System.nanoTime() - singleStart;
+            long lookups = (long) meterRegistry.find("spring.data.repository.invocations")
+                    .tag("method", "findByShortenedUrl")
+                    .timers().stream().mapToLong(Timer::count).sum();
+
+            long batchStart = System.nanoTime();
+            for (int offset = 0; offset < BATCH_CREATES; offset += BATCH_SIZE) {
+                int from = offset;
+                List<String> urls = IntStream.range(from, from + BATCH_SIZE)
+                        .mapToObj(i -> "https://example.com/batch/" + i)
+                        .toList();
+                for (BatchShorteningService.ItemResult result : batchShorteningService.shortenAll(urls)) {
+                    assertNull(result.error(), result.originalUrl());
+                    codes.add(result.shortenedCode());
+                }
+            }
+            long batchNanos = System.nanoTime() - batchStart;
+
+            assertEquals(SINGLE_CREATES + BATCH_CREATES, codes.size(), name + ": codes must be distinct");
+            long collisions = (long) meterRegistry.get("ushort.shortcode.collisions").counter().count();
+            return new StressResult(name, SINGLE_CREATES * 1e9 / singleNanos, BATCH_CREATES * 1e9 / batchNanos,
+                    collisions, lookups);
+        }
+    }
+
+    private record StressResult(String name, double singlePerSecond, double batchPerSecond, long collisions,
+                                long lookups) {
+
+        String describe() {
+            return String.format("%-10s %9.0f %8.0f %15.2f %15d", name, singlePerSecond, batchPerSecond,
+                    (double) collisions / (SINGLE_CREATES + BATCH_CREATES), lookups);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.entity.EpochSecondsConverter;
+import au.id.ohare.ushort.service.ShortCodes;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The urls table at 1M rows on the earlier schema (IDENTITY id, unique shortened_url
+ * index, TIMESTAMP times) against the current one keyed by packed shortcode with
+ * epoch-second times: space used by the table and its indexes, file size once
+ * compacted, and single-row lookup time by code. Both run on H2 file databases through
+ * plain JDBC so the figures isolate the schema. Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class CompactSchemaLoadTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int INSERT_BATCH = 10_000;
+    private static final int WARMUP_LOOKUPS = 100_000;
+    private static final int MEASURED_LOOKUPS = 500_000;
+    private static final long CODE_SPACE = 218_340_105_584_896L; // 62^8
+
+    private static final List<String> LEGACY_DDL = List.of(
+            "CREATE TABLE urls (id BIGINT AUTO_INCREMENT PRIMARY KEY, original_url VARCHAR(2048) NOT NULL, " +
+                    "shortened_url VARCHAR(16) NOT NULL, access_count INTEGER NOT NULL, " +
+                    "last_accessed TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL)",
+            "CREATE UNIQUE INDEX idx_shortened_url ON urls (shortened_url)",
+            "CREATE INDEX idx_last_accessed ON urls (last_accessed)",
+            "CREATE INDEX idx_access_count ON urls (access_count, id)");
+
+    private static final List<String> COMPACT_DDL = List.of(
+            "CREATE TABLE urls (id BIGINT PRIMARY KEY, original_url VARCHAR(2048) NOT NULL, " +
+                    "access_count INTEGER NOT NULL, last_accessed BIGINT NOT NULL, created_at BIGINT NOT NULL)",
+            "CREATE INDEX idx_last_accessed ON urls (last_accessed)",
+            "CREATE INDEX idx_access_count ON urls (access_count, id)");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should take less space when keyed by packed shortcode, and report lookup times for both")
+    void shouldShrinkTableWhenKeyedByShortcode() throws Exception {
+        SchemaResult legacy = run("legacy", LEGACY_DDL, false);
+        SchemaResult compact = run("compact", COMPACT_DDL, true);
+
+        System.out.printf("%nschema     table+indexes(MB)  file(MB)  lookup p50(us)  p99(us)  mean(us)%n");
+        System.out.println(legacy.describe());
+        System.out.println(compact.describe());
+
+        assertTrue(compact.spaceUsedBytes() < legacy.spaceUsedBytes(), "Expected the compact schema to use less space: "
+                + compact.spaceUsedBytes() + " vs " + legacy.spaceUsedBytes());
+        assertTrue(compact.fileBytes() < legacy.fileBytes());
+    }
+
+    private SchemaResult run(String name, List<String> ddl, boolean packed) throws SQLException {
+        String url = "jdbc:h2:file:" + directory.resolve(name).toAbsolutePath();
+        long spaceUsed;
+        Histogram lookups = new Histogram(3);
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : ddl) {
+                    statement.execute(sql);
+                }
+            }
+            load(connection, packed);
+
+            String lookupSql = packed
+                    ? "SELECT original_url FROM urls WHERE id = ?"
+                    : "SELECT original_url FROM urls WHERE shortened_url = ?";
+            try (PreparedStatement lookup = connection.prepareStatement(lookupSql)) {
+                for (int i = 0; i < WARMUP_LOOKUPS + MEASURED_LOOKUPS; i++) {
+                    String code = code(ThreadLocalRandom.current().nextInt(ROWS));
+                    long start = System.nanoTime();
+                    if (packed) {
+                        lookup.setLong(1, ShortCodes.pack(code));
+                    } else {
+                        lookup.setString(1, code);
+                    }
+                    try (ResultSet resultSet = lookup.executeQuery()) {
+                        assertTrue(resultSet.next(), name + ": missing " + code);
+                    }
+                    if (i >= WARMUP_LOOKUPS) {
+                        lookups.recordValue(System.nanoTime() - start);
+                    }
+                }
+            }
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT DISK_SPACE_USED('URLS')")) {
+                resultSet.next();
+                spaceUsed = resultSet.getLong(1);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN COMPACT");
+            }
+        }
+        long fileBytes = Files.size(directory.resolve(name + ".mv.db"));
+        return new SchemaResult(name, spaceUsed, fileBytes, lookups);
+    }
+
+    private static void load(Connection connection, boolean packed) throws SQLException {
+        String insertSql = packed
+                ? "INSERT INTO urls (id, original_url, access_count, last_accessed, created_at) VALUES (?, ?, 0, ?, ?)"
+                : "INSERT INTO urls (shortened_url, original_url, access_count, last_accessed, created_at) VALUES (?, ?, 0, ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            for (int i = 0; i < ROWS; i++) {
+                String code = code(i);
+                // Spread creation times over a year so the last_accessed index is realistic
+                LocalDateTime time = now.minusSeconds(ThreadLocalRandom.current().nextLong(365L * 24 * 3600));
+                if (packed) {
+                    insert.setLong(1, ShortCodes.pack(code));
+                    insert.setLong(3, EpochSecondsConverter.toEpochSecond(time));
+                    insert.setLong(4, EpochSecondsConverter.toEpochSecond(time));
+                } else {
+                    insert.setString(1, code);
+                    insert.setTimestamp(3, Timestamp.valueOf(time));
+                    insert.setTimestamp(4, Timestamp.valueOf(time));
+                }
+                insert.setString(2, "https://example.com/links/" + i);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    // Distinct 8-character codes in hash-like order: multiplying by a prime coprime to 62^8 permutes the code space
+    private static String code(int i) {
+        return ShortCodes.unpack((8L << 60) | (i * 2_147_483_647L % CODE_SPACE));
+    }
+
+    private record SchemaResult(String name, long spaceUsedBytes, long fileBytes, Histogram lookups) {
+
+        String describe() {
+            return String.format("%-10s %18.1f %9.1f %15.2f %8.2f %9.2f", name,
+                    spaceUsedBytes / 1048576.0, fileBytes / 1048576.0,
+                    lookups.getValueAtPercentile(50) / 1000.0, lookups.getValueAtPercentile(99) / 1000.0,
+                    lookups.getMean() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.service.BulkImportService.ImportReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Populates a running instance through its admin API: the links are generated on the
+ * fly and streamed to {@code POST /api/admin/import} as NDJSON, so a million of them
+ * never sit in memory as one body. The shortcodes are then read back from the NDJSON
+ * export rather than recomputed, so they are right whatever the server did about
+ * collisions and whatever was already stored.
+ */
+final class DatasetSeeder {
+
+    private static final Pattern SHORTCODE = Pattern.compile("\"shortcode\":\"([^\"]+)\"");
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final String authorization;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    DatasetSeeder(HttpClient client, URI baseUri, String authorization) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.authorization = authorization;
+    }
+
+    static String seedUrl(long i) {
+        return "https://seed.example.com/links/" + i;
+    }
+
+    /**
+     * Import links {@code 0..count-1}. Links already present count as existing, so
+     * seeding the same instance twice is harmless.
+     */
+    ImportReport seed(int count) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/admin/import"))
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new NdjsonLinks(count)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Import returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readValue(response.body(), ImportReport.class);
+    }
+
+    /**
+     * @return every shortcode stored on the instance
+     */
+    String[] shortcodes() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/admin/export?format=ndjson"))
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            throw new IOException("Export returned " + response.statusCode());
+        }
+        List<String> codes = new ArrayList<>();
+        try (Stream<String> lines = response.body()) {
+            lines.forEach(line -> {
+                Matcher matcher = SHORTCODE.matcher(line);
+                if (matcher.find()) {
+                    codes.add(matcher.group(1));
+                }
+            });
+        }
+        return codes.toArray(String[]::new);
+    }
+
+    // One {"url": ...} line per link, produced as the HTTP client reads
+    private static final class NdjsonLinks extends InputStream {
+
+        private final int count;
+        private int next;
+        private byte[] line = new byte[0];
+        private int position;
+
+        NdjsonLinks(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            return line[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < length) {
+                if (position == line.length && !nextLine()) {
+                    break;
+                }
+                int chunk = Math.min(length - read, line.length - position);
+                System.arraycopy(line, position, buffer, offset + read, chunk);
+                position += chunk;
+                read += chunk;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        private boolean nextLine() {
+            if (next == count) {
+                return false;
+            }
+            line = ("{\"url\":\"" + seedUrl(next++) + "\"}\n").getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+}
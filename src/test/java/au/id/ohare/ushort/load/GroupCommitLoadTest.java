@@ -0,0 +1,138 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.UshortApplication;
+import au.id.ohare.ushort.repository.UrlRepository;
+import au.id.ohare.ushort.service.UrlService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Create throughput and latency with group commit against one JPA transaction per
+ * create, at 1, 16 and 256 closed-loop clients each shortening distinct URLs. Group
+ * commit costs a little latency to a lone client, which waits out the commit window,
+ * and should pay it back as clients outnumber pooled connections.
+ * Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class GroupCommitLoadTest {
+
+    private static final int[] CLIENTS = {1, 16, 256};
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASURE = Duration.ofSeconds(10);
+
+    @Test
+    @DisplayName("Should create every URL exactly once and share commits under concurrency")
+    void shouldShareCommitsUnderConcurrency() throws Exception {
+        List<CreateResult> results = new ArrayList<>();
+        for (boolean groupCommit : new boolean[] {false, true}) {
+            for (int clients : CLIENTS) {
+                results.add(run(groupCommit, clients));
+            }
+        }
+
+        System.out.printf("%npath       clients   creates/s  p50(ms)  p99(ms)  max(ms)  rows/commit%n");
+        results.forEach(result -> System.out.println(result.describe()));
+
+        for (CreateResult result : results) {
+            assertEquals(0, result.errors(), result.describe());
+        }
+        CreateResult grouped = results.get(results.size() - 1);
+        assertTrue(grouped.rowsPerCommit() > 1,
+                "Expected 256 clients to share commits, averaged " + grouped.rowsPerCommit() + " rows per commit");
+    }
+
+    private CreateResult run(boolean groupCommit, int clients) throws Exception {
+        String path = groupCommit ? "group" : "direct";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.group-commit.enabled=" + groupCommit,
+                        "spring.datasource.url=jdbc:h2:mem:group-commit-" + path + "-" + clients,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .run()) {
+            UrlService urlService = context.getBean(UrlService.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            Totals warmup = drive(urlService, clients, "warmup", WARMUP, new ConcurrentHistogram(3));
+            DistributionSummary batchSizes = meterRegistry.get("ushort.group_commit.batch_size").summary();
+            long commitsBefore = batchSizes.count();
+            double rowsBefore = batchSizes.totalAmount();
+
+            Histogram latencies = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(30), 3);
+            long startNanos = System.nanoTime();
+            Totals measured = drive(urlService, clients, "measure", MEASURE, latencies);
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+            assertEquals(warmup.creates() + measured.creates(), context.getBean(UrlRepository.class).count(),
+                    path + ": every create must insert one row");
+            long commits = batchSizes.count() - commitsBefore;
+            double rowsPerCommit = commits == 0 ? 1 : (batchSizes.totalAmount() - rowsBefore) / commits;
+            return new CreateResult(path, clients, measured.creates() / seconds,
+                    latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0, rowsPerCommit, warmup.errors() + measured.errors());
+        }
+    }
+
+    private Totals drive(UrlService urlService, int clients, String phase, Duration duration, Histogram latencies)
+            throws Exception {
+        AtomicLong creates = new AtomicLong();
+        AtomicInteger errors = new AtomicInteger();
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService pool = Executors.newFixedThreadPool(clients)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        String url = "https://example.com/" + phase + "/" + client + "/" + i;
+                        long start = System.nanoTime();
+                        try {
+                            urlService.createShortenedUrl(url);
+                            creates.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+        return new Totals(creates.get(), errors.get());
+    }
+
+    private record Totals(long creates, int errors) {
+    }
+
+    private record CreateResult(String path, int clients, double createsPerSecond, double p50Ms, double p99Ms,
+                                double maxMs, double rowsPerCommit, int errors) {
+
+        String describe() {
+            return String.format("%-9s %8d %11.0f %8.2f %8.2f %8.2f %12.1f",
+                    path, clients, createsPerSecond, p50Ms, p99Ms, maxMs, rowsPerCommit);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package au.id.ohare.ushort.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Open-model load: each scenario starts requests on a fixed schedule at its arrival
+ * rate whether or not earlier requests have completed, the way independent users
+ * arrive. Latency is measured from when a request was due rather than when it was
+ * sent, so a stalled server shows up as queueing delay instead of quietly lowering
+ * the offered load (coordinated omission). Every request runs on its own virtual
+ * thread with a blocking {@link HttpClient#send}.
+ */
+final class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * @param requests builds the i-th request of the scenario; called from one thread
+     */
+    record Scenario(String name, double requestsPerSecond, int expectedStatus, LongFunction<HttpRequest> requests) {
+    }
+
+    /**
+     * @param latency microseconds from the due time to the complete response
+     */
+    record Result(String name, double targetRate, long requests, long errors, String firstError,
+                  Duration elapsed, Histogram latency) {
+
+        static final String HEADER = String.format("%-9s %9s %9s %9s %7s %8s %8s %8s %9s %8s",
+                "scenario", "target/s", "actual/s", "requests", "errors",
+                "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+
+        double actualRate() {
+            return requests / (elapsed.toNanos() / 1e9);
+        }
+
+        double percentileMs(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        String describe() {
+            return String.format("%-9s %9.0f %9.0f %9d %7d %8.2f %8.2f %8.2f %9.2f %8.2f",
+                    name, targetRate, actualRate(), requests, errors,
+                    percentileMs(50), percentileMs(90), percentileMs(99), percentileMs(99.9),
+                    latency.getMaxValue() / 1000.0);
+        }
+
+        /**
+         * Write the full percentile distribution in milliseconds as {@code <name>.hgrm},
+         * which the HdrHistogram plotter reads.
+         */
+        Path writeHistogram(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(name + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                latency.outputPercentileDistribution(out, 1000.0);
+            }
+            return file;
+        }
+    }
+
+    private final HttpClient client;
+
+    LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    static HttpClient newClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    static HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Run all scenarios side by side for {@code duration} and wait for every request
+     * they started to complete or time out.
+     */
+    List<Result> run(List<Scenario> scenarios, Duration duration) throws InterruptedException {
+        List<Run> runs = scenarios.stream().map(Run::new).toList();
+        List<Thread> schedulers = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Run run : runs) {
+                schedulers.add(Thread.ofPlatform().name("load-" + run.scenario.name())
+                        .start(() -> run.schedule(requests, startNanos, duration.toNanos())));
+            }
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        return runs.stream().map(run -> run.result(elapsed)).toList();
+    }
+
+    private final class Run {
+
+        private final Scenario scenario;
+        // Microseconds, auto-resizing so a timeout cannot overflow it
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+
+        Run(Scenario scenario) {
+            this.scenario = scenario;
+        }
+
+        void schedule(ExecutorService requests, long startNanos, long durationNanos) {
+            double intervalNanos = 1e9 / scenario.requestsPerSecond();
+            for (long i = 0; ; i++) {
+                long dueNanos = startNanos + (long) (i * intervalNanos);
+                if (dueNanos - startNanos >= durationNanos) {
+                    return;
+                }
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                // A scheduler that falls behind catches up in a burst; latency still counts from dueNanos
+                HttpRequest request = scenario.requests().apply(i);
+                sent.increment();
+                requests.execute(() -> send(request, dueNanos));
+            }
+        }
+
+        private void send(HttpRequest request, long dueNanos) {
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != scenario.expectedStatus()) {
+                    error(request.method() + " " + request.uri() + " returned " + response.statusCode());
+                }
+            } catch (IOException e) {
+                error(request.method() + " " + request.uri() + " failed: " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error(request.method() + " " + request.uri() + " interrupted");
+            }
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueNanos));
+        }
+
+        private void error(String description) {
+            errors.increment();
+            firstError.compareAndSet(null, description);
+        }
+
+        Result result(Duration elapsed) {
+            return new Result(scenario.name(), scenario.requestsPerSecond(), sent.sum(), errors.sum(),
+                    firstError.get(), elapsed, latency);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.service.BulkImportService.ImportReport;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load generator for a running instance: seeds it with links, then drives redirects
+ * (Zipfian over the stored shortcodes), shortens (new URLs) and admin statistics pages
+ * at fixed arrival rates side by side, and prints an HdrHistogram latency report per
+ * endpoint. Everything runs against localhost, so it needs no network access.
+ *
+ * <pre>
+ * ./gradlew bootRun
+ * ./gradlew loadRun -PloadArgs="--seed=1000000 --redirect-rate=5000 --duration=2m"
+ * </pre>
+ *
+ * Options are {@code --name=value}, falling back to the system property
+ * {@code load.name} and then to the defaults below. A rate of 0 skips that scenario.
+ */
+public final class LoadTool {
+
+    record Options(URI baseUri, String username, String password, int seed, double redirectRate,
+                   double shortenRate, double adminRate, double theta, Duration warmup, Duration duration,
+                   Path reportDirectory) {
+
+        static Options parse(String... args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            return new Options(
+                    URI.create(value(values, "base-url", "http://localhost:8080")),
+                    value(values, "username", "admin"),
+                    value(values, "password", "admin123"),
+                    Integer.parseInt(value(values, "seed", "1000000")),
+                    Double.parseDouble(value(values, "redirect-rate", "2000")),
+                    Double.parseDouble(value(values, "shorten-rate", "100")),
+                    Double.parseDouble(value(values, "admin-rate", "10")),
+                    Double.parseDouble(value(values, "theta", String.valueOf(ZipfianSampler.DEFAULT_THETA))),
+                    duration(value(values, "warmup", "15s")),
+                    duration(value(values, "duration", "60s")),
+                    Path.of(value(values, "report-dir", "build/reports/load")));
+        }
+
+        private static String value(Map<String, String> values, String name, String defaultValue) {
+            return values.getOrDefault(name, System.getProperty("load." + name, defaultValue));
+        }
+
+        // 90s, 2m, or anything Duration.parse takes without the PT prefix
+        private static Duration duration(String value) {
+            return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private LoadTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<LoadGenerator.Result> results = run(Options.parse(args), System.out);
+        if (results.stream().anyMatch(result -> result.errors() > 0)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Seed, warm up, then measure. Only the measured results are returned; their
+     * histograms are also written to the report directory.
+     */
+    static List<LoadGenerator.Result> run(Options options, PrintStream out) throws IOException, InterruptedException {
+        HttpClient client = LoadGenerator.newClient();
+        String authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (options.username() + ":" + options.password()).getBytes(StandardCharsets.UTF_8));
+        DatasetSeeder seeder = new DatasetSeeder(client, options.baseUri(), authorization);
+
+        if (options.seed() > 0) {
+            out.printf("Seeding %d links into %s%n", options.seed(), options.baseUri());
+            ImportReport report = seeder.seed(options.seed());
+            out.printf("Seeded: created=%d, existing=%d, failed=%d, duration=%dms, urlsPerSecond=%d%n",
+                    report.created(), report.existing(), report.failed(), report.durationMs(), report.urlsPerSecond());
+        }
+        String[] codes = seeder.shortcodes();
+        out.printf("Redirect keys: %d, theta=%s%n", codes.length, options.theta());
+
+        LoadGenerator generator = new LoadGenerator(client);
+        if (!options.warmup().isZero()) {
+            out.printf("Warming up for %s%n", options.warmup());
+            generator.run(scenarios(options, authorization, codes, "warmup"), options.warmup());
+        }
+        out.printf("Measuring for %s%n", options.duration());
+        List<LoadGenerator.Result> results = generator.run(
+                scenarios(options, authorization, codes, "run-" + System.currentTimeMillis()), options.duration());
+
+        out.printf("%n%s%n", LoadGenerator.Result.HEADER);
+        for (LoadGenerator.Result result : results) {
+            out.println(result.describe());
+        }
+        for (LoadGenerator.Result result : results) {
+            Path histogram = result.writeHistogram(options.reportDirectory());
+            if (result.firstError() != null) {
+                out.printf("%s first error: %s%n", result.name(), result.firstError());
+            }
+            out.printf("%s histogram: %s%n", result.name(), histogram.toAbsolutePath());
+        }
+        return results;
+    }
+
+    /**
+     * @param runId keeps shortened URLs unique across phases, so every shorten creates a link
+     */
+    static List<LoadGenerator.Scenario> scenarios(Options options, String authorization, String[] codes, String runId) {
+        URI baseUri = options.baseUri();
+        List<LoadGenerator.Scenario> scenarios = new ArrayList<>();
+
+        if (options.redirectRate() > 0 && codes.length > 1) {
+            ZipfianSampler keys = new ZipfianSampler(codes.length, options.theta(), runId.hashCode());
+            scenarios.add(new LoadGenerator.Scenario("redirect", options.redirectRate(), 302,
+                    i -> LoadGenerator.request(baseUri.resolve("/" + codes[(int) keys.next()])).GET().build()));
+        }
+
+        if (options.shortenRate() > 0) {
+            URI shorten = baseUri.resolve("/api/shorten");
+            scenarios.add(new LoadGenerator.Scenario("shorten", options.shortenRate(), 200,
+                    i -> LoadGenerator.request(shorten)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"url\":\"https://load.example.com/" + runId + "/" + i + "\"}"))
+                            .build()));
+        }
+
+        if (options.adminRate() > 0) {
+            // Alternate the JSON API and the rendered analytics page; both build one statistics page
+            URI api = baseUri.resolve("/api/admin/urls?limit=50");
+            URI page = baseUri.resolve("/admin/analytics");
+            scenarios.add(new LoadGenerator.Scenario("admin", options.adminRate(), 200,
+                    i -> LoadGenerator.request(i % 2 == 0 ? api : page)
+                            .header("Authorization", authorization)
+                            .GET()
+                            .build()));
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,150 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.UshortApplication;
+import au.id.ohare.ushort.config.VirtualThreadPinningMonitor;
+import au.id.ohare.ushort.service.UrlService;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.Ordered;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares redirect latency and concurrency with Tomcat on a bounded platform thread
+ * pool against virtual threads. A filter blocks every request for a fixed time to
+ * stand in for a slow database, which is what exhausts platform workers in a burst.
+ * Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class RedirectThreadingLoadTest {
+
+    private static final int CONCURRENT_CLIENTS = 1_000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final int PLATFORM_MAX_THREADS = 50;
+    private static final long SIMULATED_BLOCKING_MS = 20;
+
+    @Test
+    @DisplayName("Should serve more concurrent redirects at a lower p99 on virtual threads")
+    void shouldServeMoreConcurrentRedirectsOnVirtualThreads() throws Exception {
+        LoadResult platform = run(false);
+        LoadResult virtual = run(true);
+
+        System.out.printf("%nthreads   requests  p50(ms)  p99(ms)  max(ms)  maxConcurrency  pinned%n");
+        System.out.println(platform.describe("platform"));
+        System.out.println(virtual.describe("virtual"));
+
+        assertEquals(0, platform.failures());
+        assertEquals(0, virtual.failures());
+        assertTrue(platform.maxConcurrency() <= PLATFORM_MAX_THREADS);
+        assertTrue(virtual.maxConcurrency() > PLATFORM_MAX_THREADS);
+        assertTrue(virtual.p99Ms() < platform.p99Ms());
+        assertEquals(0, virtual.pinned(), "Redirect path should not pin virtual threads");
+    }
+
+    private LoadResult run(boolean virtualThreads) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Filter blockingFilter = (request, response, chain) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(SIMULATED_BLOCKING_MS);
+                chain.doFilter(request, response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + PLATFORM_MAX_THREADS,
+                        "spring.datasource.url=jdbc:h2:mem:load-" + (virtualThreads ? "virtual" : "platform"),
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext).registerBean(
+                        "blockingFilter", FilterRegistrationBean.class, () -> {
+                            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(blockingFilter);
+                            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+                            return registration;
+                        }))
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String code = context.getBean(UrlService.class).createShortenedUrl("https://example.com/load").getShortenedUrl();
+            URI target = URI.create("http://localhost:" + port + "/" + code);
+
+            long[] latencies = new long[CONCURRENT_CLIENTS * REQUESTS_PER_CLIENT];
+            AtomicInteger failures = new AtomicInteger();
+            HttpClient client = HttpClient.newBuilder()
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> results = new ArrayList<>();
+                for (int c = 0; c < CONCURRENT_CLIENTS; c++) {
+                    int clientIndex = c;
+                    results.add(clients.submit(() -> {
+                        for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                            long start = System.nanoTime();
+                            try {
+                                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(target).GET().build(),
+                                        HttpResponse.BodyHandlers.discarding());
+                                if (response.statusCode() != 302) {
+                                    failures.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                failures.incrementAndGet();
+                            }
+                            latencies[clientIndex * REQUESTS_PER_CLIENT + r] = System.nanoTime() - start;
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            }
+
+            long pinned = virtualThreads ? context.getBean(VirtualThreadPinningMonitor.class).getPinnedCount() : 0;
+            Arrays.sort(latencies);
+            return new LoadResult(latencies.length, failures.get(), percentileMs(latencies, 0.50),
+                    percentileMs(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000.0, maxInFlight.get(), pinned);
+        }
+    }
+
+    private static double percentileMs(long[] sortedNanos, double percentile) {
+        return sortedNanos[(int) Math.ceil(percentile * sortedNanos.length) - 1] / 1_000_000.0;
+    }
+
+    private record LoadResult(int requests, int failures, double p50Ms, double p99Ms, double maxMs,
+                              int maxConcurrency, long pinned) {
+
+        String describe(String threads) {
+            return String.format("%-9s %8d %8.1f %8.1f %8.1f %15d %7d",
+                    threads, requests, p50Ms, p99Ms, maxMs, maxConcurrency, pinned);
+        }
+    }
+}
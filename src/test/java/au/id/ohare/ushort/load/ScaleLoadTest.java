@@ -0,0 +1,62 @@
+package au.id.ohare.ushort.load;
+
+import au.id.ohare.ushort.UshortApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application on a random port, seeds it with a million links through the
+ * bulk import, and runs redirect, shorten and admin traffic against it at fixed
+ * arrival rates. Sizes and rates come from {@code load.*} system properties, e.g.
+ * {@code ./gradlew loadTest --tests '*ScaleLoadTest' -Dload.seed=100000 -Dload.redirect-rate=5000}.
+ */
+@Tag("load")
+class ScaleLoadTest {
+
+    private static final double REDIRECT_P99_BUDGET_MS = 100;
+    private static final double SHORTEN_P99_BUDGET_MS = 1_000;
+
+    @Test
+    @DisplayName("Should serve Zipfian redirects from a million links within the p99 budget while shortening")
+    void shouldServeRedirectsAtScale() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UshortApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=true",
+                        "spring.datasource.url=jdbc:h2:mem:scale-load",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.au.id.ohare=WARN")
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            LoadTool.Options options = LoadTool.Options.parse("--base-url=http://localhost:" + port);
+
+            List<LoadGenerator.Result> results = LoadTool.run(options, System.out);
+
+            for (LoadGenerator.Result result : results) {
+                assertEquals(0, result.errors(), result.name() + ": " + result.firstError());
+                assertTrue(result.requests() > 0, result.name());
+            }
+            assertTrue(percentile(results, "redirect", 99) < REDIRECT_P99_BUDGET_MS,
+                    "Redirect p99 over budget: " + percentile(results, "redirect", 99) + "ms");
+            assertTrue(percentile(results, "shorten", 99) < SHORTEN_P99_BUDGET_MS,
+                    "Shorten p99 over budget: " + percentile(results, "shorten", 99) + "ms");
+        }
+    }
+
+    // Zero for a scenario switched off with a zero rate
+    private static double percentile(List<LoadGenerator.Result> results, String name, double percentile) {
+        return results.stream()
+                .filter(result -> result.name().equals(name))
+                .mapToDouble(result -> result.percentileMs(percentile))
+                .findFirst()
+                .orElse(0);
+    }
+}
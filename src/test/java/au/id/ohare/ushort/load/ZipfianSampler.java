@@ -0,0 +1,78 @@
+package au.id.ohare.ushort.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipfian key popularity over {@code items} keys, after Gray et al., "Quickly
+ * Generating Billion-Record Synthetic Databases" (the generator YCSB uses). With the
+ * default skew of 0.99 a small set of links takes most of the traffic, as on a real
+ * shortener. Ranks are scattered across the key space by a fixed permutation, so the
+ * hot keys are not simply the first links seeded.
+ *
+ * <p>Not thread-safe: each scenario samples from its own scheduler thread.
+ */
+final class ZipfianSampler {
+
+    static final double DEFAULT_THETA = 0.99;
+
+    // Prime, so multiplying by it modulo items is a permutation unless items is a multiple
+    private static final long SCATTER = 2_147_483_647L;
+
+    private final long items;
+    private final double theta;
+    private final double alpha;
+    private final double zetan;
+    private final double eta;
+    private final double secondThreshold;
+    private final SplittableRandom random;
+
+    ZipfianSampler(long items, double theta, long seed) {
+        if (items < 2 || items % SCATTER == 0) {
+            throw new IllegalArgumentException("Unsupported item count: " + items);
+        }
+        if (!(theta > 0 && theta < 1)) {
+            throw new IllegalArgumentException("Theta must be between 0 and 1 exclusive: " + theta);
+        }
+        this.items = items;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetan = zeta(items, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        this.secondThreshold = 1 + Math.pow(0.5, theta);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return a key index in {@code [0, items)}
+     */
+    long next() {
+        return Math.floorMod(rank() * SCATTER, items);
+    }
+
+    /**
+     * @return the popularity rank of the next key, 0 being the most requested
+     */
+    long rank() {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < secondThreshold) {
+            return 1;
+        }
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    double theta() {
+        return theta;
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
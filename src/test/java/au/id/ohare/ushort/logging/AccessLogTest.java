@@ -0,0 +1,127 @@
+package au.id.ohare.ushort.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ListAppender<ILoggingEvent> listAppender;
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        logger = (Logger) LoggerFactory.getLogger(AccessLog.LOGGER_NAME);
+        listAppender = new ListAppender<>();
+        listAppender.start();
+        logger.addAppender(listAppender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(listAppender);
+    }
+
+    @Test
+    @DisplayName("Should write each recorded event as one JSON line")
+    void shouldWriteJsonLines() {
+        AccessLog accessLog = new AccessLog(meterRegistry, 64, 1.0, 1.0, 1.0, false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc123");
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.2");
+        request.addHeader("User-Agent", "Mozilla/5.0 \"quoted\"");
+
+        accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.FAST, "abc123", request);
+        accessLog.record(AccessLog.Outcome.NOT_FOUND, AccessLog.Route.API, "zzz999", new MockHttpServletRequest());
+        accessLog.shutdown();
+
+        List<String> lines = lines();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("\\{\"ts\":\\d+,\"outcome\":\"REDIRECT\",\"route\":\"FAST\",\"code\":\"abc123\","
+                + "\"clientIp\":\"203\\.0\\.113\\.7\",\"userAgent\":\"Mozilla/5\\.0 \\\\\"quoted\\\\\"\"}"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"outcome\":\"NOT_FOUND\",\"route\":\"API\",\"code\":\"zzz999\""), lines.get(1));
+        assertTrue(lines.get(1).contains("\"userAgent\":null"), lines.get(1));
+        assertEquals(2, meterRegistry.get("ushort.access_log.written").counter().count());
+        assertEquals(0, accessLog.pending());
+    }
+
+    @Test
+    @DisplayName("Should sample each outcome at its own rate and tag sampled lines with the rate")
+    void shouldSamplePerOutcome() {
+        AccessLog accessLog = new AccessLog(meterRegistry, 4096, 0.0, 0.5, 1.0, false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        for (int i = 0; i < 2000; i++) {
+            accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.WEB, "abc123", request);
+            accessLog.record(AccessLog.Outcome.NOT_FOUND, AccessLog.Route.WEB, "zzz999", request);
+        }
+        accessLog.record(AccessLog.Outcome.EXPIRED, AccessLog.Route.WEB, "old123", request);
+        accessLog.shutdown();
+
+        List<String> lines = lines();
+        assertTrue(lines.stream().noneMatch(line -> line.contains("\"REDIRECT\"")));
+        long notFound = lines.stream().filter(line -> line.contains("\"NOT_FOUND\"")).count();
+        assertTrue(notFound > 800 && notFound < 1200, "Expected about half sampled, was " + notFound);
+        assertTrue(lines.stream().filter(line -> line.contains("\"NOT_FOUND\"")).allMatch(line -> line.endsWith(",\"sampleRate\":0.5}")));
+        assertEquals(1, lines.stream().filter(line -> line.contains("\"EXPIRED\"") && !line.contains("sampleRate")).count());
+    }
+
+    @Test
+    @DisplayName("Should drop and count events rather than block when the ring is full")
+    void shouldDropWhenFull() {
+        AccessLog accessLog = new AccessLog(meterRegistry, 2, 1.0, 1.0, 1.0, false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        int recorded = 100_000;
+        for (int i = 0; i < recorded; i++) {
+            accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.FAST, "abc123", request);
+        }
+        accessLog.shutdown();
+
+        double written = meterRegistry.get("ushort.access_log.written").counter().count();
+        double dropped = meterRegistry.get("ushort.access_log.dropped").counter().count();
+        assertTrue(dropped > 0, "A two-slot ring should overflow");
+        assertEquals(recorded, written + dropped);
+        assertEquals((long) written, lines().size());
+    }
+
+    @Test
+    @DisplayName("Should still write an event recorded after the writer has backed off")
+    void shouldWakeIdleWriter() throws InterruptedException {
+        AccessLog accessLog = new AccessLog(meterRegistry, 64, 1.0, 1.0, 1.0, false);
+        // Long enough for the writer to back off to its longest park
+        Thread.sleep(300);
+
+        long start = System.nanoTime();
+        accessLog.record(AccessLog.Outcome.REDIRECT, AccessLog.Route.FAST, "abc123", new MockHttpServletRequest());
+        while (accessLog.pending() > 0 && System.nanoTime() - start < 5_000_000_000L) {
+            Thread.sleep(1);
+        }
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        accessLog.shutdown();
+
+        assertEquals(1, lines().size());
+        assertTrue(waitedMillis < 1_000, "Idle writer took " + waitedMillis + "ms to pick up an event");
+    }
+
+    // Each logging event is a batch of newline-separated JSON lines
+    private List<String> lines() {
+        return listAppender.list.stream()
+                .flatMap(event -> Arrays.stream(event.getFormattedMessage().split("\n")))
+                .toList();
+    }
+}
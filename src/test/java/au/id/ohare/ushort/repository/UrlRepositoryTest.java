@@ -1,6 +1,7 @@
 package au.id.ohare.ushort.repository;
 
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.service.ShortCodes;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -67,6 +68,27 @@ class UrlRepositoryTest {
         assertEquals(5, foundEntity.get().getAccessCount());
     }
 
+    @Test
+    @DisplayName("Should key rows by the packed shortcode and store times to the second")
+    void shouldKeyRowsByPackedShortcode() {
+        // Given
+        LocalDateTime lastAccessed = LocalDateTime.of(2025, 3, 4, 5, 6, 7, 890_000_000);
+        UrlEntity savedEntity = entityManager.persistAndFlush(
+                createUrlEntity("https://www.packed.com", "0aZ9bY", 0, lastAccessed));
+        entityManager.clear();
+
+        // When
+        Optional<UrlEntity> foundEntity = urlRepository.findById(ShortCodes.pack("0aZ9bY"));
+
+        // Then
+        assertEquals(ShortCodes.pack("0aZ9bY"), savedEntity.getId());
+        assertTrue(foundEntity.isPresent(), "Entity should be found by its packed shortcode");
+        assertEquals("0aZ9bY", foundEntity.get().getShortenedUrl());
+        assertEquals(lastAccessed.withNano(0), foundEntity.get().getLastAccessed());
+        assertTrue(urlRepository.existsByShortenedUrl("0aZ9bY"));
+        assertFalse(urlRepository.existsByShortenedUrl("0aZ9bZ"));
+    }
+
     @Test
     @DisplayName("Should return empty when shortened URL not found")
     void shouldReturnEmptyForNonExistentShortenedUrl() {
@@ -203,6 +225,22 @@ class UrlRepositoryTest {
         assertFalse(urlRepository.findById(url2.getId()).isPresent(), "url2 should be deleted");
     }
 
+    @Test
+    @DisplayName("Should range-scan the access count index for a statistics page after a cursor")
+    void shouldRangeScanAccessCountIndexForStatisticsAfter() {
+        // Given the predicate and order findStatisticsAfter issues
+        String plan = (String) entityManager.getEntityManager().createNativeQuery(
+                "EXPLAIN SELECT id, original_url, access_count, created_at, last_accessed FROM urls " +
+                "WHERE access_count <= 5 AND (access_count < 5 OR (access_count = 5 AND id < 42)) " +
+                "ORDER BY access_count DESC, id DESC FETCH FIRST 20 ROWS ONLY")
+                .getSingleResult();
+
+        // Then the scan starts at the cursor rather than reading the rows ahead of it
+        String upperPlan = plan.toUpperCase();
+        assertTrue(upperPlan.contains("IDX_ACCESS_COUNT: ACCESS_COUNT <= 5"),
+                "Should bound the idx_access_count scan by the cursor: " + plan);
+    }
+
     private UrlEntity createUrlEntity(String originalUrl, String shortenedUrl, int accessCount, LocalDateTime lastAccessed) {
         return UrlEntity.builder()
                 .originalUrl(originalUrl)
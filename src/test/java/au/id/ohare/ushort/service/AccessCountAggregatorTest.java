@@ -0,0 +1,116 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.AccessDelta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AccessCountAggregatorTest {
+
+    private UrlJdbcRepository urlJdbcRepository;
+    private AccessCountAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        urlJdbcRepository = mock(UrlJdbcRepository.class);
+        // Long interval and high threshold so only explicit flushes run
+        aggregator = new AccessCountAggregator(urlJdbcRepository, mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), 60_000, 1_000_000, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should not write to the database when recording a click")
+    void shouldNotWriteOnRecord() {
+        aggregator.recordAccess("abc123", LocalDateTime.now());
+
+        verifyNoInteractions(urlJdbcRepository);
+        assertEquals(1, aggregator.getPendingClicks());
+    }
+
+    @Test
+    @DisplayName("Should coalesce clicks per shortcode into one batched flush")
+    @SuppressWarnings("unchecked")
+    void shouldCoalesceClicksPerShortcode() {
+        LocalDateTime earlier = LocalDateTime.now().minusMinutes(5);
+        LocalDateTime later = LocalDateTime.now();
+        aggregator.recordAccess("abc123", later);
+        aggregator.recordAccess("abc123", earlier);
+        aggregator.recordAccess("abc123", earlier);
+        aggregator.recordAccess("def456", earlier);
+
+        long flushed = aggregator.flush();
+
+        ArgumentCaptor<List<AccessDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(urlJdbcRepository, times(1)).applyAccessDeltas(captor.capture());
+        Map<String, AccessDelta> deltas = captor.getValue().stream()
+                .collect(Collectors.toMap(AccessDelta::shortenedUrl, delta -> delta));
+
+        assertEquals(4, flushed);
+        assertEquals(3, deltas.get("abc123").clicks());
+        assertEquals(later.truncatedTo(ChronoUnit.MILLIS), deltas.get("abc123").lastAccessed(),
+                "Most recent access time should win");
+        assertEquals(1, deltas.get("def456").clicks());
+        assertEquals(0, aggregator.getPendingClicks());
+    }
+
+    @Test
+    @DisplayName("Should retain clicks when a flush fails")
+    void shouldRetainClicksWhenFlushFails() {
+        when(urlJdbcRepository.applyAccessDeltas(anyList())).thenThrow(new IllegalStateException("database down"));
+        aggregator.recordAccess("abc123", LocalDateTime.now());
+
+        assertThrows(IllegalStateException.class, () -> aggregator.flush());
+
+        assertEquals(1, aggregator.getPendingClicks());
+        reset(urlJdbcRepository);
+        assertEquals(1, aggregator.flush(), "Retried flush should pick up the retained click");
+    }
+
+    @Test
+    @DisplayName("Should not lose clicks recorded concurrently with flushes")
+    void shouldNotLoseConcurrentClicks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.recordAccess("hot" + (i % 4), LocalDateTime.now());
+                }
+                done.countDown();
+            });
+        }
+
+        long flushed = 0;
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            flushed += aggregator.flush();
+        }
+        flushed += aggregator.flush();
+        executor.shutdown();
+
+        assertEquals(80_000, flushed);
+        assertEquals(0, aggregator.getPendingClicks());
+    }
+}
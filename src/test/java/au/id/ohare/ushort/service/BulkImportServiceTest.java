@@ -0,0 +1,75 @@
+package au.id.ohare.ushort.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BulkImportServiceTest {
+
+    private BatchShorteningService batchShorteningService;
+    private BulkImportService bulkImportService;
+
+    @BeforeEach
+    void setUp() {
+        batchShorteningService = mock(BatchShorteningService.class);
+        when(batchShorteningService.shortenAll(anyList())).thenAnswer(invocation -> {
+            List<String> urls = invocation.getArgument(0);
+            return urls.stream()
+                    .map(url -> new BatchShorteningService.ItemResult(url, "code" + url.length(), true, null))
+                    .toList();
+        });
+        bulkImportService = new BulkImportService(batchShorteningService, new ObjectMapper(), 10, 2, 1000, false);
+    }
+
+    @Test
+    @DisplayName("Should stream NDJSON input to the batch shortener in bounded chunks")
+    void shouldImportNdjsonInChunks() throws Exception {
+        String input = IntStream.range(0, 25)
+                .mapToObj(i -> "{\"url\":\"https://example.com/" + i + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        BulkImportService.ImportReport report = bulkImportService.importUrls(
+                new StringReader(input), BulkImportService.Format.NDJSON);
+
+        assertEquals(25, report.read());
+        assertEquals(25, report.created());
+        assertEquals(0, report.failed());
+        verify(batchShorteningService, times(3)).shortenAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should read the first CSV column, skipping a header and quoting")
+    void shouldImportCsv() throws Exception {
+        String input = "url,campaign\nhttps://a.example.com,spring\n\"https://b.example.com/?q=1,2\",summer\n";
+
+        BulkImportService.ImportReport report = bulkImportService.importUrls(
+                new StringReader(input), BulkImportService.Format.CSV);
+
+        assertEquals(2, report.read());
+        verify(batchShorteningService).shortenAll(List.of("https://a.example.com", "https://b.example.com/?q=1,2"));
+    }
+
+    @Test
+    @DisplayName("Should count malformed lines as failures without stopping the import")
+    void shouldReportMalformedLines() throws Exception {
+        String input = "{\"url\":\"https://ok.example.com\"}\nnot json\n{\"other\":1}\n";
+
+        BulkImportService.ImportReport report = bulkImportService.importUrls(
+                new StringReader(input), BulkImportService.Format.NDJSON);
+
+        assertEquals(1, report.read());
+        assertEquals(2, report.failed());
+        assertEquals(2, report.errorSamples().size());
+        assertTrue(report.errorSamples().get(0).startsWith("line 2"));
+    }
+}
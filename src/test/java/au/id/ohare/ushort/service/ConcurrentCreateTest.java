@@ -0,0 +1,102 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import au.id.ohare.ushort.repository.UrlRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:concurrent-create")
+class ConcurrentCreateTest {
+
+    private static final int THREADS = 300;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private UrlShortenerService urlShortenerService;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlJdbcRepository urlJdbcRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        urlRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should insert once and give every concurrent caller the same code")
+    void shouldCoalesceConcurrentCreates() throws Exception {
+        String url = "https://example.com/campaign";
+        double createdBefore = createdCount();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UrlEntity>> results = new ArrayList<>();
+
+        try (ExecutorService clients = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(clients.submit(() -> {
+                    start.await();
+                    return urlService.createShortenedUrl(url);
+                }));
+            }
+            start.countDown();
+
+            Set<String> codes = results.stream().map(result -> {
+                try {
+                    return result.get().getShortenedUrl();
+                } catch (Exception e) {
+                    throw new AssertionError("Concurrent create failed", e);
+                }
+            }).collect(Collectors.toSet());
+
+            assertEquals(1, codes.size());
+        }
+        assertEquals(1, urlRepository.count());
+        assertEquals(1, createdCount() - createdBefore);
+    }
+
+    @Test
+    @DisplayName("Should return the row a racing insert committed instead of failing on the unique index")
+    void shouldReReadAfterUniqueViolation() {
+        String url = "https://example.com/raced";
+        String code = urlShortenerService.generateShortenedCode(url);
+        // A plain JDBC insert publishes no event, so the off-heap index still reports the code free
+        urlJdbcRepository.insertAll(List.of(new NewUrl(url, code, LocalDateTime.now())));
+
+        UrlEntity urlEntity = urlService.createShortenedUrl(url);
+
+        assertEquals(code, urlEntity.getShortenedUrl());
+        assertEquals(url, urlEntity.getOriginalUrl());
+        assertEquals(1, urlRepository.count());
+    }
+
+    private double createdCount() {
+        return meterRegistry.get("ushort.urls.outcomes").tag("outcome", "created").counter().count();
+    }
+}
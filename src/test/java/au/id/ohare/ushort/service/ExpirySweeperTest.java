@@ -0,0 +1,96 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.repository.UrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "app.ttl-days=90",
+        "app.expiry.chunk-size=2",
+        "app.expiry.chunk-pause-ms=0",
+        "app.bloom.rebuild-deleted-fraction=0"
+})
+class ExpirySweeperTest {
+
+    @Autowired
+    private ExpirySweeper expirySweeper;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private ShortCodeCache shortCodeCache;
+
+    @Autowired
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+
+    @BeforeEach
+    void setUp() {
+        urlRepository.deleteAll();
+        shortCodeCache.clear();
+    }
+
+    @Test
+    @DisplayName("Should delete expired URLs across several chunks and keep live ones")
+    void shouldDeleteExpiredUrlsInChunks() {
+        // Given - Five expired URLs (more than two chunks) and one live URL
+        for (int i = 0; i < 5; i++) {
+            urlRepository.save(createUrl("https://old.example.com/" + i, "old" + i + "abc", LocalDateTime.now().minusDays(91 + i)));
+        }
+        urlRepository.save(createUrl("https://new.example.com", "live123", LocalDateTime.now().minusDays(1)));
+        shortCodeCache.put("old0abc", "https://old.example.com/0", LocalDateTime.now());
+
+        // When
+        long deleted = expirySweeper.sweep();
+
+        // Then
+        assertEquals(5, deleted);
+        assertEquals(1, urlRepository.count());
+        assertTrue(urlRepository.existsByShortenedUrl("live123"));
+        assertNull(shortCodeCache.get("old0abc"));
+    }
+
+    @Test
+    @DisplayName("Should do nothing when no URL has expired")
+    void shouldDoNothingWithoutExpiredUrls() {
+        urlRepository.save(createUrl("https://new.example.com", "live123", LocalDateTime.now()));
+
+        assertEquals(0, expirySweeper.sweep());
+        assertEquals(1, urlRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should stop passing swept codes through the bloom filter")
+    void shouldDropSweptCodesFromBloomFilter() {
+        urlRepository.save(createUrl("https://old.example.com", "gone123", LocalDateTime.now().minusDays(91)));
+        urlRepository.save(createUrl("https://new.example.com", "live123", LocalDateTime.now()));
+        shortCodeBloomFilter.add("gone123");
+        shortCodeBloomFilter.add("live123");
+        assertTrue(shortCodeBloomFilter.mightContain("gone123"));
+
+        assertEquals(1, expirySweeper.sweep());
+
+        assertFalse(shortCodeBloomFilter.mightContain("gone123"));
+        assertTrue(shortCodeBloomFilter.mightContain("live123"));
+    }
+
+    private UrlEntity createUrl(String originalUrl, String shortenedUrl, LocalDateTime lastAccessed) {
+        return UrlEntity.builder()
+                .originalUrl(originalUrl)
+                .shortenedUrl(shortenedUrl)
+                .accessCount(0)
+                .createdAt(lastAccessed)
+                .lastAccessed(lastAccessed)
+                .build();
+    }
+}
@@ -0,0 +1,208 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.service.ExpiryTimingWheel.ExpiredCodes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ExpiryTimingWheelTest {
+
+    private static final int TTL_DAYS = 90;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+    private static final LocalDateTime CUTOFF = NOW.minusDays(TTL_DAYS);
+
+    private UrlJdbcRepository urlJdbcRepository;
+    private ExpiryTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        urlJdbcRepository = mock(UrlJdbcRepository.class);
+        wheel = new ExpiryTimingWheel(urlJdbcRepository, new SimpleMeterRegistry(), TTL_DAYS, 16);
+    }
+
+    @Test
+    @DisplayName("Should expire only whole days older than the cutoff")
+    void shouldExpireWholeDaysBeforeCutoff() {
+        wheel.touch("old111", NOW.minusDays(TTL_DAYS + 1));
+        wheel.touch("old222", NOW.minusDays(TTL_DAYS + 1).withHour(23));
+        wheel.touch("edge11", NOW.minusDays(TTL_DAYS).withHour(1));
+        wheel.touch("live11", NOW.minusDays(1));
+
+        List<String> expired = wheel.takeExpired(CUTOFF, 100).codes();
+
+        assertEquals(Set.of("old111", "old222"), Set.copyOf(expired));
+        assertEquals(2, wheel.size());
+        assertTrue(wheel.takeExpired(CUTOFF, 100).codes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should move a code to its latest access day and never back")
+    void shouldMoveCodeForward() {
+        wheel.touch("abc123", NOW.minusDays(TTL_DAYS + 5));
+        wheel.touch("abc123", NOW);
+        wheel.touch("abc123", NOW.minusDays(TTL_DAYS + 10));
+
+        assertTrue(wheel.takeExpired(CUTOFF, 100).codes().isEmpty());
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should forget removed codes")
+    void shouldRemoveCodes() {
+        wheel.touch("abc123", NOW.minusDays(TTL_DAYS + 1));
+        wheel.touch("abcdefghijklmn", NOW.minusDays(TTL_DAYS + 1));
+
+        wheel.remove("abc123");
+        wheel.remove("abcdefghijklmn");
+
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.takeExpired(CUTOFF, 100).codes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should take at most the limit and leave the rest for the next call")
+    void shouldRespectLimit() {
+        for (int i = 0; i < 25; i++) {
+            wheel.touch("old" + (1000 + i), NOW.minusDays(TTL_DAYS + 1 + i % 3));
+        }
+
+        Set<String> expired = new HashSet<>();
+        List<String> chunk;
+        while (!(chunk = wheel.takeExpired(CUTOFF, 10).codes()).isEmpty()) {
+            assertTrue(chunk.size() <= 10);
+            expired.addAll(chunk);
+        }
+
+        assertEquals(25, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should track put-back codes again under the day they were taken from")
+    void shouldPutBackTakenCodes() {
+        wheel.touch("old111", NOW.minusDays(TTL_DAYS + 1));
+        wheel.touch("abcdefghijklmn", NOW.minusDays(TTL_DAYS + 1));
+        wheel.touch("old222", NOW.minusDays(TTL_DAYS + 2));
+        ExpiredCodes expired = wheel.takeExpired(CUTOFF, 100);
+        assertEquals(3, expired.size());
+        assertEquals(0, wheel.size());
+
+        // Accessed while its delete was failing, so it keeps the later day
+        wheel.touch("old111", NOW);
+        wheel.putBack(expired);
+
+        assertEquals(3, wheel.size());
+        assertEquals(List.of("old222"), wheel.takeExpired(CUTOFF.minusDays(1), 100).codes());
+        assertEquals(List.of("abcdefghijklmn"), wheel.takeExpired(CUTOFF, 100).codes());
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should grow past its initial capacity and keep every code")
+    void shouldGrow() {
+        for (int i = 0; i < 10_000; i++) {
+            wheel.touch("code" + (100_000 + i), NOW.minusDays(i % (TTL_DAYS * 2)));
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            wheel.remove("code" + (100_000 + i));
+        }
+
+        assertEquals(5_000, wheel.size());
+        List<String> expired = wheel.takeExpired(CUTOFF, Integer.MAX_VALUE).codes();
+        // Odd i with i % 180 > 90 are more than a full day past the TTL
+        long expected = java.util.stream.IntStream.range(0, 10_000)
+                .filter(i -> i % 2 == 1 && i % (TTL_DAYS * 2) > TTL_DAYS)
+                .count();
+        assertEquals(expected, expired.size());
+    }
+
+    @Test
+    @DisplayName("Should treat codes a whole ring older than their slot as overdue")
+    void shouldHandleCodesOlderThanTheRing() {
+        wheel.touch("live11", NOW);
+        // Same ring slot as NOW, a full ring earlier
+        wheel.touch("ancient", NOW.minusDays(TTL_DAYS + 2));
+        wheel.touch("newer1", NOW.minusDays(1));
+        // Lands in the slot of the ancient day before it is expired
+        wheel.touch("older1", NOW.minusDays(TTL_DAYS + 3));
+
+        assertEquals(Set.of("ancient", "older1"), Set.copyOf(wheel.takeExpired(CUTOFF, 100).codes()));
+        assertEquals(2, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should rebuild from the urls table and become ready")
+    @SuppressWarnings("unchecked")
+    void shouldRebuildFromTable() {
+        wheel.touch("stale1", NOW.minusDays(TTL_DAYS + 1));
+        doAnswer(invocation -> {
+            BiConsumer<String, LocalDateTime> action = invocation.getArgument(0);
+            action.accept("abc123", NOW.minusDays(TTL_DAYS + 1));
+            action.accept("def456", NOW);
+            return null;
+        }).when(urlJdbcRepository).forEachLastAccessed(any(BiConsumer.class));
+
+        assertFalse(wheel.isReady());
+        wheel.rebuild();
+
+        assertTrue(wheel.isReady());
+        assertEquals(2, wheel.size());
+        assertEquals(List.of("abc123"), wheel.takeExpired(CUTOFF, 100).codes());
+    }
+
+    @Test
+    @DisplayName("Should not restore a code deleted while the rebuild was loading")
+    @SuppressWarnings("unchecked")
+    void shouldNotRestoreCodeDeletedDuringRebuild() {
+        doAnswer(invocation -> {
+            BiConsumer<String, LocalDateTime> action = invocation.getArgument(0);
+            action.accept("abc123", NOW.minusDays(TTL_DAYS + 1));
+            // Deleted after the cursor read def456 but before it reached the wheel
+            wheel.remove("def456");
+            action.accept("def456", NOW.minusDays(TTL_DAYS + 1));
+            return null;
+        }).when(urlJdbcRepository).forEachLastAccessed(any(BiConsumer.class));
+
+        wheel.rebuild();
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("abc123"), wheel.takeExpired(CUTOFF, 100).codes());
+
+        // The guard only covers the load: later touches add the code again
+        wheel.touch("def456", NOW);
+        assertEquals(1, wheel.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc123", "000000", "0000aB", "ZZZZZZZZZZ", "aB3dE6gH9"})
+    @DisplayName("Should pack and unpack Base62 codes losslessly")
+    void shouldPackCodes(String code) {
+        long packed = ShortCodes.pack(code);
+
+        assertNotEquals(ShortCodes.NOT_PACKABLE, packed);
+        assertNotEquals(0L, packed);
+        assertEquals(code, ShortCodes.unpack(packed));
+    }
+
+    @Test
+    @DisplayName("Should keep codes with leading zeros distinct when packed")
+    void shouldKeepLeadingZerosDistinct() {
+        assertNotEquals(ShortCodes.pack("0abc12"), ShortCodes.pack("abc12"));
+        assertEquals(ShortCodes.NOT_PACKABLE, ShortCodes.pack("abcdefghijk"));
+        assertEquals(ShortCodes.NOT_PACKABLE, ShortCodes.pack("abc-12"));
+    }
+}
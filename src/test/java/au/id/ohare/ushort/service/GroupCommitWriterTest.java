@@ -0,0 +1,173 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.NewUrl;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class GroupCommitWriterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+    private static final int CLIENTS = 32;
+
+    private UrlJdbcRepository urlJdbcRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private GroupCommitWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        urlJdbcRepository = mock(UrlJdbcRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // A long window so clients arriving during a commit all land in the next group
+        writer = new GroupCommitWriter(urlJdbcRepository, eventPublisher, meterRegistry,
+                true, 256, 200_000, 1024, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should write concurrent inserts as one statement and release callers after the event")
+    void shouldCoalesceConcurrentInserts() throws Exception {
+        doAnswer(invocation -> {
+            Thread.sleep(20);
+            return null;
+        }).when(urlJdbcRepository).insertMultiRow(anyList());
+
+        List<Future<?>> results = insertConcurrently();
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        ArgumentCaptor<List<NewUrl>> rows = ArgumentCaptor.forClass(List.class);
+        verify(urlJdbcRepository, atLeastOnce()).insertMultiRow(rows.capture());
+        assertEquals(CLIENTS, rows.getAllValues().stream().mapToInt(List::size).sum());
+        DistributionSummary batchSizes = meterRegistry.get("ushort.group_commit.batch_size").summary();
+        assertTrue(batchSizes.max() > 1, "Expected inserts to share a commit, largest group was " + batchSizes.max());
+
+        ArgumentCaptor<UrlsCreatedEvent> events = ArgumentCaptor.forClass(UrlsCreatedEvent.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertEquals(CLIENTS, events.getAllValues().stream().mapToInt(event -> event.urls().size()).sum());
+    }
+
+    @Test
+    @DisplayName("Should fail only the duplicate when one row of a group already exists")
+    void shouldFailOnlyTheDuplicate() throws Exception {
+        doAnswer(invocation -> {
+            List<NewUrl> newUrls = invocation.getArgument(0);
+            if (newUrls.stream().anyMatch(newUrl -> newUrl.shortenedUrl().equals("c0"))) {
+                throw new DuplicateKeyException("shortened_url c0");
+            }
+            return null;
+        }).when(urlJdbcRepository).insertMultiRow(anyList());
+
+        List<Future<?>> results = insertConcurrently();
+
+        int failed = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                assertInstanceOf(DuplicateKeyException.class, e.getCause());
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        ArgumentCaptor<UrlsCreatedEvent> events = ArgumentCaptor.forClass(UrlsCreatedEvent.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertEquals(CLIENTS - 1, events.getAllValues().stream().mapToInt(event -> event.urls().size()).sum());
+    }
+
+    @Test
+    @DisplayName("Should refuse inserts once stopped and do nothing when disabled")
+    void shouldRefuseInsertsWhenNotRunning() {
+        writer.shutdown();
+        assertThrows(IllegalStateException.class, () -> writer.insert(new NewUrl("https://example.com", "c0", NOW)));
+
+        GroupCommitWriter disabled = new GroupCommitWriter(urlJdbcRepository, eventPublisher, new SimpleMeterRegistry(),
+                false, 256, 200, 1024, false);
+        assertFalse(disabled.isEnabled());
+        disabled.shutdown();
+        verify(urlJdbcRepository, never()).insertMultiRow(any());
+    }
+
+    @Test
+    @DisplayName("Should commit or refuse every insert racing a shutdown, never leave one waiting")
+    void shouldNotStrandInsertsRacingShutdown() throws Exception {
+        CountDownLatch started = new CountDownLatch(CLIENTS);
+        List<Future<?>> results = new ArrayList<>();
+        // Daemon threads, so a stranded caller fails the test rather than hanging the run
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                int client = i;
+                results.add(clients.submit(() -> {
+                    started.countDown();
+                    for (int n = 0; ; n++) {
+                        try {
+                            writer.insert(new NewUrl("https://example.com/" + client, "c" + client + "x" + n, NOW));
+                        } catch (IllegalStateException e) {
+                            return null;
+                        }
+                    }
+                }));
+            }
+            started.await();
+            writer.shutdown();
+
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private List<Future<?>> insertConcurrently() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < CLIENTS; i++) {
+                int client = i;
+                results.add(clients.submit(() -> {
+                    start.await();
+                    writer.insert(new NewUrl("https://example.com/" + client, "c" + client, NOW));
+                    return null;
+                }));
+            }
+            start.countDown();
+        }
+        return results;
+    }
+}
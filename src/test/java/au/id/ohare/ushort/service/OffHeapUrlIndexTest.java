@@ -0,0 +1,202 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.AccessCountsFlushedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent;
+import au.id.ohare.ushort.event.UrlsCreatedEvent.CreatedUrl;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.AccessDelta;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.UrlRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static au.id.ohare.ushort.service.OffHeapUrlIndex.Owner.*;
+import static au.id.ohare.ushort.service.OffHeapUrlIndex.fingerprint;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OffHeapUrlIndexTest {
+
+    private static final int TTL_DAYS = 90;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+    private static final long NOW_MILLIS = NOW.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    private final UrlShortenerService urlShortenerService = new UrlShortenerService();
+    private UrlJdbcRepository urlJdbcRepository;
+    private OffHeapUrlIndex index;
+
+    @BeforeEach
+    void setUp() {
+        urlJdbcRepository = mock(UrlJdbcRepository.class);
+        index = new OffHeapUrlIndex(urlJdbcRepository, urlShortenerService, new SimpleMeterRegistry(),
+                true, true, TTL_DAYS, 16);
+    }
+
+    @Test
+    @DisplayName("Should resolve an indexed code to its URL and report unknown codes as missing")
+    void shouldResolveIndexedCode() {
+        index.put("abc123", "https://example.com/ünïcode", 3, NOW);
+
+        long reference = index.resolve("abc123", NOW_MILLIS);
+
+        assertTrue(reference >= 0);
+        assertEquals("https://example.com/ünïcode", index.originalUrl(reference));
+        assertEquals(3, index.accessCount("abc123"));
+        assertEquals(OffHeapUrlIndex.MISSING, index.resolve("zzz999", NOW_MILLIS));
+    }
+
+    @Test
+    @DisplayName("Should report codes idle past the TTL as expired and leave them to the database")
+    void shouldReportExpiredCode() {
+        index.put("old123", "https://example.com", 0, NOW.minusDays(TTL_DAYS + 1));
+        index.put("abcdefghijklmn", "https://example.com", 0, NOW);
+
+        assertEquals(OffHeapUrlIndex.EXPIRED, index.resolve("old123", NOW_MILLIS));
+        assertEquals(OffHeapUrlIndex.NOT_INDEXED, index.resolve("abcdefghijklmn", NOW_MILLIS));
+    }
+
+    @Test
+    @DisplayName("Should apply flushed clicks and forget deleted codes")
+    void shouldFollowFlushesAndDeletes() {
+        index.put("abc123", "https://example.com", 0, NOW.minusDays(TTL_DAYS + 1));
+        index.put("def456", "https://google.com", 0, NOW);
+
+        index.onAccessCountsFlushed(new AccessCountsFlushedEvent(List.of(new AccessDelta("abc123", 4, NOW))));
+        index.onUrlsDeleted(new UrlsDeletedEvent(List.of("def456")));
+
+        assertEquals(4, index.accessCount("abc123"));
+        assertTrue(index.resolve("abc123", NOW_MILLIS) >= 0, "A flushed click should renew the TTL");
+        assertEquals(OffHeapUrlIndex.MISSING, index.resolve("def456", NOW_MILLIS));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Should keep every URL through table growth and arena compaction")
+    void shouldSurviveGrowthAndCompaction() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                index.put(code(i), "https://example.com/" + round + "/" + i, i, NOW);
+            }
+        }
+        long staleReference = index.resolve(code(0), NOW_MILLIS);
+        for (int i = 0; i < 5_000; i += 2) {
+            index.remove(code(i));
+        }
+        // Enough replacement data to force the mostly-garbage arena to compact
+        for (int i = 1; i < 5_000; i += 2) {
+            index.put(code(i), "https://example.com/final/" + i + "/" + "x".repeat(64), i, NOW);
+        }
+
+        assertEquals(2_500, index.size());
+        for (int i = 1; i < 5_000; i += 2) {
+            assertEquals("https://example.com/final/" + i + "/" + "x".repeat(64),
+                    index.originalUrl(index.resolve(code(i), NOW_MILLIS)));
+        }
+        assertEquals(OffHeapUrlIndex.MISSING, index.resolve(code(0), NOW_MILLIS));
+        assertNull(index.originalUrl(staleReference), "References from before a compaction must not be served");
+    }
+
+    @Test
+    @DisplayName("Should load every row on rebuild and only then answer misses definitively")
+    @SuppressWarnings("unchecked")
+    void shouldRebuildFromTable() {
+        doAnswer(invocation -> {
+            Consumer<UrlRow> action = invocation.getArgument(0);
+            action.accept(new UrlRow(1, "https://example.com", "abc123", 7, NOW, NOW));
+            // Deleted while the load was running, after the cursor had already read it
+            index.remove("def456");
+            action.accept(new UrlRow(2, "https://google.com", "def456", 0, NOW, NOW));
+            return null;
+        }).when(urlJdbcRepository).forEachUrl(any(Consumer.class));
+
+        assertFalse(index.isReady());
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertEquals(7, index.accessCount("abc123"));
+        assertEquals(OffHeapUrlIndex.MISSING, index.resolve("def456", NOW_MILLIS));
+    }
+
+    @Test
+    @DisplayName("Should answer unknown until rebuilt, then tell the owning URL from a colliding one")
+    void shouldTellOwnerFromCollidingUrl() {
+        assertEquals(UNKNOWN, index.ownerOf("abc123", fingerprint("https://example.com/a")));
+        rebuildWith(new UrlRow(1, "https://example.com/a", "abc123", 0, NOW, NOW));
+
+        assertTrue(index.answersOwnership());
+        assertEquals(SAME, index.ownerOf("abc123", fingerprint("https://example.com/a")));
+        assertEquals(SAME, index.ownerOf("abc123", fingerprint("  https://example.com/a ")));
+        assertEquals(OTHER, index.ownerOf("abc123", fingerprint("https://example.com/b")));
+        assertEquals(FREE, index.ownerOf("xyz789", fingerprint("https://example.com/a")));
+    }
+
+    @Test
+    @DisplayName("Should follow owners of created and deleted codes through table growth")
+    void shouldFollowOwnersThroughCreatesAndDeletes() {
+        rebuildWith();
+        for (int i = 0; i < 5_000; i++) {
+            index.onUrlsCreated(new UrlsCreatedEvent(List.of(
+                    new CreatedUrl(code(i), "https://example.com/" + i, 0, NOW, NOW))));
+            if (i % 2 == 0) {
+                index.onUrlsDeleted(new UrlsDeletedEvent(List.of(code(i))));
+            }
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i % 2 == 0 ? FREE : SAME, index.ownerOf(code(i), fingerprint("https://example.com/" + i)));
+        }
+        assertEquals(OTHER, index.ownerOf(code(1), fingerprint("https://example.com/3")));
+    }
+
+    @Test
+    @DisplayName("Should know which URLs sit past their first probe after a rebuild and once marked")
+    void shouldTrackCollidedUrls() {
+        String firstProbe = urlShortenerService.generateShortenedCode("https://example.com/a", 0);
+        String laterProbe = urlShortenerService.generateShortenedCode("https://example.com/b", 2);
+        assertFalse(index.hasCollided(fingerprint("https://example.com/b")), "Nothing is known before the rebuild");
+        rebuildWith(new UrlRow(1, "https://example.com/a", firstProbe, 0, NOW, NOW),
+                new UrlRow(2, "https://example.com/b", laterProbe, 0, NOW, NOW));
+
+        assertFalse(index.hasCollided(fingerprint("https://example.com/a")));
+        assertTrue(index.hasCollided(fingerprint("https://example.com/b")));
+
+        index.markCollided(fingerprint("https://example.com/c"));
+        assertTrue(index.hasCollided(fingerprint("https://example.com/c")));
+    }
+
+    @Test
+    @DisplayName("Should stay unknown about owners when ownership answers are disabled")
+    void shouldStayUnknownWhenOwnershipDisabled() {
+        index = new OffHeapUrlIndex(urlJdbcRepository, urlShortenerService, new SimpleMeterRegistry(),
+                true, false, TTL_DAYS, 16);
+        rebuildWith(new UrlRow(1, "https://example.com/a", "abc123", 0, NOW, NOW));
+
+        assertTrue(index.isReady());
+        assertFalse(index.answersOwnership());
+        assertEquals(UNKNOWN, index.ownerOf("abc123", fingerprint("https://example.com/a")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuildWith(UrlRow... rows) {
+        doAnswer(invocation -> {
+            Consumer<UrlRow> action = invocation.getArgument(0);
+            for (UrlRow row : rows) {
+                action.accept(row);
+            }
+            return null;
+        }).when(urlJdbcRepository).forEachUrl(any(Consumer.class));
+        index.rebuild();
+    }
+
+    private static String code(int i) {
+        return "c" + (100_000 + i);
+    }
+}
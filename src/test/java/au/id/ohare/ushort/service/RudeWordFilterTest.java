@@ -0,0 +1,72 @@
+package au.id.ohare.ushort.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RudeWordFilterTest {
+
+    private final RudeWordFilter filter = RudeWordFilter.load(new ClassPathResource(UrlShortenerService.DEFAULT_RUDE_WORDS));
+
+    @ParameterizedTest
+    @ValueSource(strings = {"damn", "DAMN", "hellX", "Xhell", "aHeLLb", "xxfartxx", "9butt9"})
+    @DisplayName("Should detect rude words anywhere in the code, ignoring case")
+    void shouldDetectWordsAnywhere(String code) {
+        assertTrue(filter.matches(code), "Should detect rude word in: " + code);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a55x", "5h1t9", "p0rnQ", "Qp155"})
+    @DisplayName("Should detect leetspeak variants")
+    void shouldDetectLeetspeak(String code) {
+        assertTrue(filter.matches(code), "Should detect leetspeak rude word in: " + code);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test123", "abc123", "xyz789", "he1l", "as2s", ""})
+    @DisplayName("Should not flag clean codes")
+    void shouldNotFlagCleanCodes(String code) {
+        assertFalse(filter.matches(code), "Should not flag: " + code);
+    }
+
+    @Test
+    @DisplayName("Should match overlapping words via failure links")
+    void shouldMatchOverlappingWords() {
+        RudeWordFilter overlapping = RudeWordFilter.of(List.of("he", "she", "his", "hers"));
+
+        assertTrue(overlapping.matches("ushers"));
+        assertTrue(overlapping.matches("ahisz"));
+        assertFalse(overlapping.matches("xsh"));
+    }
+
+    @Test
+    @DisplayName("Should load word list ignoring comments and blank lines")
+    void shouldLoadWordListIgnoringComments() {
+        String wordList = "# comment\n\nfoo\nbar  # trailing comment\n";
+        RudeWordFilter loaded = RudeWordFilter.load(new ByteArrayResource(wordList.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, loaded.getWordCount());
+        assertTrue(loaded.matches("xfoox"));
+        assertTrue(loaded.matches("BAR"));
+        assertFalse(loaded.matches("comment"));
+    }
+
+    @Test
+    @DisplayName("Should skip list entries with characters a code cannot match rather than drop them silently")
+    void shouldSkipEntriesWithUnmatchableCharacters() {
+        RudeWordFilter filter = RudeWordFilter.of(List.of("a-b", "c d", "x2y", "foo"));
+
+        assertEquals(1, filter.getWordCount());
+        assertFalse(filter.matches("ab"));
+        assertFalse(filter.matches("cd"));
+        assertTrue(filter.matches("xfoox"));
+    }
+}
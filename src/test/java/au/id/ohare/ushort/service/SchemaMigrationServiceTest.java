@@ -0,0 +1,84 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.repository.UrlRepository;
+import au.id.ohare.ushort.service.SchemaMigrationService.MigrationReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "app.import.chunk-size=2",
+        "spring.datasource.url=jdbc:h2:mem:schema-migration"
+})
+class SchemaMigrationServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+
+    @Autowired
+    private SchemaMigrationService schemaMigrationService;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    private DriverManagerDataSource legacy;
+    private JdbcTemplate legacyJdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        urlRepository.deleteAll();
+        legacy = new DriverManagerDataSource("jdbc:h2:mem:legacy-urls;DB_CLOSE_DELAY=-1", "sa", "");
+        legacyJdbcTemplate = new JdbcTemplate(legacy);
+        legacyJdbcTemplate.execute("CREATE TABLE urls (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "original_url VARCHAR(2048) NOT NULL, shortened_url VARCHAR(16) NOT NULL UNIQUE, " +
+                "access_count INTEGER NOT NULL, last_accessed TIMESTAMP NOT NULL, created_at TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        legacyJdbcTemplate.execute("DROP TABLE urls");
+    }
+
+    @Test
+    @DisplayName("Should copy rows from the earlier schema with counts and times, skipping unpackable codes")
+    void shouldMigrateFromEarlierSchema() {
+        insertLegacy("https://example.com/a", "abc123", 7);
+        insertLegacy("https://example.com/b", "0000aB", 0);
+        insertLegacy("https://example.com/c", "xyz7890", 3);
+        insertLegacy("https://example.com/long", "abcdefghijklmn", 1);
+
+        MigrationReport report = schemaMigrationService.migrateFrom(legacy);
+
+        assertEquals(3, report.migrated());
+        assertEquals(1, report.skipped());
+        assertEquals(3, urlRepository.count());
+        UrlEntity migrated = urlRepository.findByShortenedUrl("abc123").orElseThrow();
+        assertEquals(ShortCodes.pack("abc123"), migrated.getId());
+        assertEquals("https://example.com/a", migrated.getOriginalUrl());
+        assertEquals(7, migrated.getAccessCount());
+        assertEquals(CREATED, migrated.getCreatedAt());
+        // Published as created, so redirects resolve them without a restart
+        assertEquals("https://example.com/b", urlService.getOriginalUrl("0000aB", "127.0.0.1").orElseThrow());
+    }
+
+    private void insertLegacy(String originalUrl, String shortenedUrl, int accessCount) {
+        legacyJdbcTemplate.update("INSERT INTO urls (original_url, shortened_url, access_count, last_accessed, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?)", originalUrl, shortenedUrl, accessCount,
+                Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(CREATED));
+    }
+}
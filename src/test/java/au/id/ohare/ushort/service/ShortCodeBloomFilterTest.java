@@ -0,0 +1,151 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ShortCodeBloomFilterTest {
+
+    private UrlJdbcRepository urlJdbcRepository;
+    private ShortCodeBloomFilter bloomFilter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        urlJdbcRepository = mock(UrlJdbcRepository.class);
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("abc123");
+            action.accept("def456");
+            return null;
+        }).when(urlJdbcRepository).forEachShortenedUrl(any(Consumer.class));
+
+        bloomFilter = new ShortCodeBloomFilter(urlJdbcRepository, new SimpleMeterRegistry(), 10_000, 0.01, 0.1);
+    }
+
+    @Test
+    @DisplayName("Should let everything through until the startup rebuild completes")
+    void shouldNotRejectBeforeRebuild() {
+        assertTrue(bloomFilter.mightContain("unknown1"));
+    }
+
+    @Test
+    @DisplayName("Should contain codes loaded by the rebuild and codes added afterwards")
+    void shouldContainLoadedAndAddedCodes() {
+        bloomFilter.rebuild();
+        bloomFilter.add("ghi789");
+
+        assertTrue(bloomFilter.mightContain("abc123"));
+        assertTrue(bloomFilter.mightContain("def456"));
+        assertTrue(bloomFilter.mightContain("ghi789"));
+    }
+
+    @Test
+    @DisplayName("Should keep the false positive rate near its configured target")
+    void shouldKeepFalsePositiveRateNearTarget() {
+        bloomFilter.rebuild();
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.add("live" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloomFilter.mightContain("miss" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "Observed false positive rate too high: " + falsePositives / 100_000.0);
+        assertTrue(bloomFilter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    @DisplayName("Should rebuild and stop passing deleted codes once enough have been deleted")
+    @SuppressWarnings("unchecked")
+    void shouldRebuildOnceEnoughCodesAreDeleted() {
+        bloomFilter.rebuild();
+        assertFalse(bloomFilter.rebuildIfStale(), "Nothing deleted yet");
+
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("abc123");
+            return null;
+        }).when(urlJdbcRepository).forEachShortenedUrl(any(Consumer.class));
+        bloomFilter.onUrlsDeleted(new UrlsDeletedEvent(List.of("def456")));
+
+        // One of two codes deleted is past the 10% threshold
+        assertTrue(bloomFilter.rebuildIfStale());
+        assertTrue(bloomFilter.mightContain("abc123"));
+        assertFalse(bloomFilter.mightContain("def456"));
+        assertFalse(bloomFilter.rebuildIfStale(), "The rebuild resets the deleted count");
+    }
+
+    @Test
+    @DisplayName("Should keep the deleted count when a rebuild fails")
+    @SuppressWarnings("unchecked")
+    void shouldKeepDeletedCountWhenRebuildFails() {
+        bloomFilter.rebuild();
+        bloomFilter.onUrlsDeleted(new UrlsDeletedEvent(List.of("def456")));
+
+        doAnswer(invocation -> {
+            throw new IllegalStateException("scan failed");
+        }).when(urlJdbcRepository).forEachShortenedUrl(any(Consumer.class));
+        assertThrows(IllegalStateException.class, bloomFilter::rebuildIfStale);
+
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("abc123");
+            return null;
+        }).when(urlJdbcRepository).forEachShortenedUrl(any(Consumer.class));
+        assertTrue(bloomFilter.rebuildIfStale(), "The failed rebuild should not forget the delete");
+        assertFalse(bloomFilter.mightContain("def456"));
+    }
+
+    @Test
+    @DisplayName("Should count codes added while a rebuild scans as insertions")
+    @SuppressWarnings("unchecked")
+    void shouldCountAddsDuringRebuild() {
+        ShortCodeBloomFilter halfFilter = new ShortCodeBloomFilter(urlJdbcRepository, new SimpleMeterRegistry(),
+                10_000, 0.01, 0.5);
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("abc123");
+            halfFilter.add("def456");
+            halfFilter.add("ghi789");
+            return null;
+        }).when(urlJdbcRepository).forEachShortenedUrl(any(Consumer.class));
+        halfFilter.rebuild();
+
+        // One delete of three codes is under the 50% threshold
+        halfFilter.onUrlsDeleted(new UrlsDeletedEvent(List.of("abc123")));
+        assertFalse(halfFilter.rebuildIfStale());
+        assertTrue(halfFilter.mightContain("ghi789"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"favicon.ico", "robots.txt", "abc", "abc-123", "abcdefghijklmnopq"})
+    @DisplayName("Should treat non-Base62 or out-of-range codes as malformed")
+    void shouldRejectMalformedCodes(String code) {
+        assertFalse(ShortCodes.isWellFormed(code));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc123", "0000aB", "test123456", "aB3dE6gH"})
+    @DisplayName("Should accept well formed codes")
+    void shouldAcceptWellFormedCodes(String code) {
+        assertTrue(ShortCodes.isWellFormed(code));
+    }
+}
@@ -0,0 +1,77 @@
+package au.id.ohare.ushort.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodeCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private ShortCodeCache shortCodeCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        shortCodeCache = new ShortCodeCache(meterRegistry, 100, 0, 10_000, false, 90);
+    }
+
+    @Test
+    @DisplayName("Should return cached original URL after put")
+    void shouldReturnCachedUrl() {
+        shortCodeCache.put("abc123", "https://www.example.com", LocalDateTime.now());
+
+        ShortCodeCache.CachedUrl cachedUrl = shortCodeCache.get("abc123");
+
+        assertNotNull(cachedUrl, "Entry should be cached");
+        assertEquals("https://www.example.com", cachedUrl.originalUrl());
+        assertFalse(cachedUrl.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("Should not return entries whose TTL has already run out")
+    void shouldNotReturnExpiredEntries() {
+        shortCodeCache.put("old123", "https://www.old.com", LocalDateTime.now().minusDays(91));
+
+        assertNull(shortCodeCache.get("old123"), "Expired entry should not be served");
+    }
+
+    @Test
+    @DisplayName("Should evict entries on request")
+    void shouldEvictEntries() {
+        shortCodeCache.put("abc123", "https://www.example.com", LocalDateTime.now());
+
+        shortCodeCache.evict("abc123");
+
+        assertNull(shortCodeCache.get("abc123"));
+    }
+
+    @Test
+    @DisplayName("Should report hits and misses through Micrometer")
+    void shouldReportHitAndMissMetrics() {
+        shortCodeCache.put("abc123", "https://www.example.com", LocalDateTime.now());
+
+        shortCodeCache.get("abc123");
+        shortCodeCache.get("missing");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ShortCodeCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ShortCodeCache.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should accept byte-weighted sizing")
+    void shouldSupportByteWeightedSizing() {
+        ShortCodeCache weighted = new ShortCodeCache(new SimpleMeterRegistry(), 0, 64 * 1024, 10_000, false, 90);
+
+        weighted.put("abc123", "https://www.example.com", LocalDateTime.now());
+
+        assertNotNull(weighted.get("abc123"));
+    }
+}
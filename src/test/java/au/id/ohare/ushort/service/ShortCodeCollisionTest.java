@@ -0,0 +1,187 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.event.UrlsDeletedEvent;
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shortcodes cut down to 8 bits of hash, so 256 codes serve a few hundred URLs and
+ * most creates collide with a different URL at least once.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "app.shortcode.hash-bits=8",
+        "app.shortcode.max-probes=64",
+        "spring.datasource.url=jdbc:h2:mem:collisions"
+})
+class ShortCodeCollisionTest {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private BatchShorteningService batchShorteningService;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlJdbcRepository urlJdbcRepository;
+
+    @Autowired
+    private OffHeapUrlIndex offHeapUrlIndex;
+
+    @Autowired
+    private UrlShortenerService urlShortenerService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // A repository delete publishes no event, so tell the index which codes are free again
+        List<String> stored = urlRepository.findAll().stream().map(UrlEntity::getShortenedUrl).toList();
+        urlRepository.deleteAll();
+        eventPublisher.publishEvent(new UrlsDeletedEvent(stored));
+        assertTrue(offHeapUrlIndex.answersOwnership());
+    }
+
+    @Test
+    @DisplayName("Should give colliding URLs distinct codes and give a repeated URL its own code back")
+    void shouldProbePastCollisions() {
+        double collisionsBefore = meterRegistry.get("ushort.shortcode.collisions").counter().count();
+        Map<String, String> codeByUrl = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            String url = "https://example.com/single/" + i;
+            codeByUrl.put(url, urlService.createShortenedUrl(url).getShortenedUrl());
+        }
+
+        assertEquals(150, new HashSet<>(codeByUrl.values()).size());
+        assertEquals(150, urlRepository.count());
+        assertTrue(meterRegistry.get("ushort.shortcode.collisions").counter().count() > collisionsBefore);
+        codeByUrl.forEach((url, code) -> {
+            assertEquals(code, urlService.createShortenedUrl(url).getShortenedUrl());
+            assertEquals(url, urlService.getOriginalUrl(code, "127.0.0.1").orElseThrow());
+        });
+        assertEquals(150, urlRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should probe past collisions within a batch and against stored URLs")
+    void shouldProbePastCollisionsInBatch() {
+        Map<String, String> stored = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String url = "https://example.com/stored/" + i;
+            stored.put(url, urlService.createShortenedUrl(url).getShortenedUrl());
+        }
+
+        // New URLs, URLs already stored, and repeats within the batch
+        List<String> urls = new ArrayList<>(IntStream.range(0, 100).mapToObj(i -> "https://example.com/batch/" + i).toList());
+        urls.addAll(stored.keySet().stream().limit(10).toList());
+        urls.addAll(List.copyOf(urls.subList(0, 20)));
+
+        List<BatchShorteningService.ItemResult> results = batchShorteningService.shortenAll(urls);
+
+        assertTrue(results.stream().allMatch(result -> result.error() == null), results.toString());
+        assertEquals(100, results.stream().filter(BatchShorteningService.ItemResult::created).count());
+        assertEquals(150, urlRepository.count());
+        Map<String, String> codeByUrl = new HashMap<>(stored);
+        for (BatchShorteningService.ItemResult result : results) {
+            String previous = codeByUrl.putIfAbsent(result.originalUrl(), result.shortenedCode());
+            assertEquals(previous == null ? result.shortenedCode() : previous, result.shortenedCode(), result.originalUrl());
+        }
+        assertEquals(150, new HashSet<>(codeByUrl.values()).size());
+        codeByUrl.forEach((url, code) -> assertEquals(url, urlService.getOriginalUrl(code, "127.0.0.1").orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("Should give a URL its code back after the URL it collided with is deleted")
+    void shouldKeepCodeAfterCollidingOwnerIsDeleted() {
+        List<String> urls = IntStream.range(0, 150).mapToObj(i -> "https://example.com/freed/" + i).toList();
+        urls.forEach(urlService::createShortenedUrl);
+        String collider = urls.stream()
+                .filter(url -> !urlService.createShortenedUrl(url).getShortenedUrl()
+                        .equals(urlShortenerService.generateShortenedCode(url, 0)))
+                .findFirst()
+                .orElseThrow();
+        String code = urlService.createShortenedUrl(collider).getShortenedUrl();
+
+        // Delete the URL holding the collider's first choice, freeing that code
+        UrlEntity owner = urlRepository.findByShortenedUrl(urlShortenerService.generateShortenedCode(collider, 0))
+                .orElseThrow();
+        urlRepository.delete(owner);
+        eventPublisher.publishEvent(new UrlsDeletedEvent(List.of(owner.getShortenedUrl())));
+
+        assertEquals(code, urlService.createShortenedUrl(collider).getShortenedUrl());
+        List<BatchShorteningService.ItemResult> results = batchShorteningService.shortenAll(List.of(collider));
+        assertEquals(code, results.get(0).shortenedCode());
+        assertFalse(results.get(0).created());
+        assertEquals(149, urlRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should not report a code as existing when the index entry is stale")
+    void shouldConfirmIndexMatchesInBatch() {
+        String url = "https://example.com/stale/1";
+        String code = urlService.createShortenedUrl(url).getShortenedUrl();
+
+        // Deleted through JDBC with no event, so the index still says the URL holds its code
+        urlJdbcRepository.deleteExpired(List.of(code), LocalDateTime.now().plusDays(1));
+        assertEquals(OffHeapUrlIndex.Owner.SAME, offHeapUrlIndex.ownerOf(code, OffHeapUrlIndex.fingerprint(url)));
+
+        List<BatchShorteningService.ItemResult> results = batchShorteningService.shortenAll(List.of(url));
+
+        assertTrue(results.get(0).created(), results.toString());
+        assertEquals(url, urlRepository.findByShortenedUrl(results.get(0).shortenedCode()).orElseThrow().getOriginalUrl());
+        assertEquals(1, urlRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should hash a URL only once when its first code is free and it never collided")
+    void shouldGenerateOneCodeWhenFirstProbeIsFree() {
+        String single = urlWithFreeFirstProbe("https://example.com/fresh/single/");
+        long generatedBefore = generatedCodes();
+        urlService.createShortenedUrl(single);
+        assertEquals(generatedBefore + 1, generatedCodes());
+
+        String batched = urlWithFreeFirstProbe("https://example.com/fresh/batch/");
+        generatedBefore = generatedCodes();
+        batchShorteningService.shortenAll(List.of(batched));
+        assertEquals(generatedBefore + 1, generatedCodes());
+    }
+
+    private String urlWithFreeFirstProbe(String prefix) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> prefix + i)
+                .filter(url -> offHeapUrlIndex.ownerOf(urlShortenerService.generateShortenedCode(url, 0),
+                        OffHeapUrlIndex.fingerprint(url)) == OffHeapUrlIndex.Owner.FREE)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private long generatedCodes() {
+        return meterRegistry.get("ushort.shortcode.generate").timer().count();
+    }
+}
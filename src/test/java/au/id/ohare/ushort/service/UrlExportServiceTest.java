@@ -0,0 +1,74 @@
+package au.id.ohare.ushort.service;
+
+import au.id.ohare.ushort.repository.UrlJdbcRepository;
+import au.id.ohare.ushort.repository.UrlJdbcRepository.UrlRow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UrlExportServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+
+    private UrlExportService urlExportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        UrlJdbcRepository urlJdbcRepository = mock(UrlJdbcRepository.class);
+        doAnswer(invocation -> {
+            Consumer<UrlRow> action = invocation.getArgument(0);
+            action.accept(new UrlRow(1, "https://example.com", "abc123", 5, CREATED, CREATED));
+            action.accept(new UrlRow(2, "https://example.com/?q=\"a\",b", "def456", 0, CREATED, CREATED));
+            return null;
+        }).when(urlJdbcRepository).forEachUrl(any(Consumer.class));
+        urlExportService = new UrlExportService(urlJdbcRepository, new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Should write CSV with a header and quote values that need it")
+    void shouldExportCsv() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = urlExportService.exportUrls(output, BulkImportService.Format.CSV, false);
+
+        assertEquals(2, rows);
+        assertEquals(UrlExportService.CSV_HEADER + "\n"
+                + "https://example.com,abc123,5,2025-01-02T03:04:05,2025-01-02T03:04:05\n"
+                + "\"https://example.com/?q=\"\"a\"\",b\",def456,0,2025-01-02T03:04:05,2025-01-02T03:04:05\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should write one JSON object per line, gzipped on request")
+    void shouldExportGzippedNdjson() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        urlExportService.exportUrls(output, BulkImportService.Format.NDJSON, true);
+
+        String text;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            text = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = text.lines().toList();
+        assertEquals(2, lines.size());
+        JsonNode second = new ObjectMapper().readTree(lines.get(1));
+        assertEquals("https://example.com/?q=\"a\",b", second.get("url").asText());
+        assertEquals("def456", second.get("shortcode").asText());
+        assertEquals(0, second.get("accessCount").asLong());
+    }
+}
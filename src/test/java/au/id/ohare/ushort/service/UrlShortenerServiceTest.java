@@ -6,6 +6,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.math.BigInteger;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -150,4 +152,44 @@ class UrlShortenerServiceTest {
                 () -> urlShortenerService.generateShortenedCode("   "),
                 "Should throw exception for whitespace-only URL");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should encode Base62 identically to the BigInteger reference algorithm")
+    void shouldEncodeBase62IdenticallyToReference() {
+        Random random = new Random(42);
+        byte[] hashBytes = new byte[UrlShortenerService.HASH_BYTES_LENGTH];
+        char[] buffer = new char[UrlShortenerService.MAX_ENCODED_DIGITS];
+
+        for (int i = 0; i < 100_000; i++) {
+            random.nextBytes(hashBytes);
+            // Cover small values that need padding as well as full-width ones
+            if (i % 10 == 0) {
+                hashBytes[0] = hashBytes[1] = hashBytes[2] = 0;
+            }
+
+            long packed = 0;
+            for (byte b : hashBytes) {
+                packed = (packed << 8) | (b & 0xFF);
+            }
+
+            assertEquals(referenceEncodeBase62(hashBytes), UrlShortenerService.encodeBase62(packed, buffer),
+                    "Encoding mismatch for value " + packed);
+        }
+        assertEquals("000000", UrlShortenerService.encodeBase62(0, buffer));
+    }
+
+    private static String referenceEncodeBase62(byte[] bytes) {
+        String alphabet = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        StringBuilder result = new StringBuilder();
+        BigInteger value = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(62);
+        while (value.signum() > 0) {
+            result.insert(0, alphabet.charAt(value.remainder(base).intValue()));
+            value = value.divide(base);
+        }
+        while (result.length() < 6) {
+            result.insert(0, alphabet.charAt(0));
+        }
+        return result.length() > 8 ? result.substring(0, 8) : result.toString();
+    }
+}
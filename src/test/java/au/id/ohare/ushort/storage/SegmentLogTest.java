@@ -0,0 +1,136 @@
+package au.id.ohare.ushort.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should replay creates, deletes and access deltas written by an earlier run")
+    void shouldReplayEarlierRun() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            log.appendCreate("abc123", "https://example.com", 0, 1_000, 1_000);
+            log.appendCreate("def456", "https://google.com", 0, 2_000, 2_000);
+            log.appendAccess("abc123", 5, 9_000);
+            log.appendAccess("abc123", 2, 8_000);
+            log.appendDelete("def456");
+        }
+
+        Map<String, StoredUrl> urls = replayAll();
+
+        assertEquals(1, urls.size());
+        StoredUrl url = urls.get("abc123");
+        assertEquals("https://example.com", url.originalUrl());
+        assertEquals(7, url.accessCount());
+        assertEquals(1_000, url.createdAtMillis());
+        assertEquals(9_000, url.lastAccessedMillis());
+    }
+
+    @Test
+    @DisplayName("Should keep clicks logged ahead of the create they belong to")
+    void shouldKeepClicksLoggedBeforeCreate() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            log.appendAccess("abc123", 3, 9_000);
+            log.appendCreate("abc123", "https://example.com", 0, 1_000, 1_000);
+        }
+
+        Map<String, StoredUrl> urls = replayAll();
+
+        StoredUrl url = urls.get("abc123");
+        assertNotNull(url);
+        assertEquals(3, url.accessCount());
+        assertEquals(1_000, url.createdAtMillis());
+        assertEquals(9_000, url.lastAccessedMillis());
+    }
+
+    @Test
+    @DisplayName("Should drop a torn record at the end of a segment and keep what came before")
+    void shouldTruncateTornTail() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            log.appendCreate("abc123", "https://example.com", 0, 1_000, 1_000);
+            log.appendCreate("def456", "https://google.com", 0, 2_000, 2_000);
+        }
+        Path segment = onlySegment();
+        long intactSize = Files.size(segment);
+        // Simulate a crash halfway through the last record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intactSize - 5);
+        }
+
+        Map<String, StoredUrl> urls = replayAll();
+
+        assertEquals(List.of("abc123"), List.copyOf(urls.keySet()));
+        assertTrue(Files.size(segment) < intactSize - 5, "Torn tail should have been cut off");
+    }
+
+    @Test
+    @DisplayName("Should stop at a record whose checksum does not match")
+    void shouldRejectCorruptRecord() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            log.appendCreate("abc123", "https://example.com", 0, 1_000, 1_000);
+            log.appendCreate("def456", "https://google.com", 0, 2_000, 2_000);
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 3] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("abc123"), List.copyOf(replayAll().keySet()));
+    }
+
+    @Test
+    @DisplayName("Should start after the sequence a snapshot covers even once its segments are deleted")
+    void shouldNotReuseSnapshottedSequences() throws IOException {
+        long through;
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            log.appendCreate("abc123", "https://example.com", 0, 1_000, 1_000);
+            through = log.roll();
+            log.deleteSegmentsThrough(through);
+            assertTrue(log.sealedSegmentsAfter(through).isEmpty());
+        }
+
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20, through + 5)) {
+            log.appendCreate("def456", "https://google.com", 0, 2_000, 2_000);
+            log.roll();
+            List<Path> sealed = log.sealedSegmentsAfter(through);
+            assertTrue(sealed.stream().allMatch(segment -> SegmentLog.sequenceOf(segment) > through + 5));
+            assertEquals(List.of("def456"), List.copyOf(replay(sealed).keySet()));
+        }
+    }
+
+    private Map<String, StoredUrl> replayAll() throws IOException {
+        try (SegmentLog log = SegmentLog.open(directory, 1 << 20)) {
+            return replay(log.sealedSegments());
+        }
+    }
+
+    private static Map<String, StoredUrl> replay(List<Path> segments) throws IOException {
+        WalOverlay overlay = new WalOverlay();
+        SegmentLog.replay(segments, overlay);
+        Map<String, StoredUrl> urls = new LinkedHashMap<>();
+        overlay.merge(sink -> { }, url -> urls.put(url.shortenedUrl(), url));
+        return urls;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (var files = Files.list(directory)) {
+            List<Path> segments = files.filter(path -> Files.isRegularFile(path)).sorted().toList();
+            return segments.get(0);
+        }
+    }
+}
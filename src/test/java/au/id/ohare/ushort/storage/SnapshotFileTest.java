@@ -0,0 +1,80 @@
+package au.id.ohare.ushort.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read back every URL and the sequence the snapshot covers")
+    void shouldRoundTrip() throws IOException {
+        Path snapshot = directory.resolve("snapshot.bin");
+        List<StoredUrl> urls = List.of(
+                new StoredUrl("abc123", "https://example.com", 7, 1_000, 9_000),
+                new StoredUrl("def456", "https://example.com/ünïcode?q=ß", 0, 2_000, 2_000));
+
+        long written = SnapshotFile.write(snapshot, 42, sink -> urls.forEach(sink));
+
+        List<StoredUrl> read = new ArrayList<>();
+        assertEquals(2, written);
+        assertEquals(42, SnapshotFile.read(snapshot, read::add));
+        assertEquals(urls, read);
+        assertFalse(Files.exists(directory.resolve("snapshot.bin.tmp")));
+    }
+
+    @Test
+    @DisplayName("Should refuse a snapshot whose body has been corrupted")
+    void shouldRejectCorruptSnapshot() throws IOException {
+        Path snapshot = directory.resolve("snapshot.bin");
+        SnapshotFile.write(snapshot, 1, sink -> sink.accept(new StoredUrl("abc123", "https://example.com", 0, 1, 1)));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 10] ^= 0x7F;
+        Files.write(snapshot, bytes);
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(snapshot, url -> { }));
+    }
+
+    @Test
+    @DisplayName("Should fold the log written since a snapshot into it to produce the next one")
+    void shouldMergeLogIntoSnapshot() throws IOException {
+        Path previous = directory.resolve("previous.bin");
+        SnapshotFile.write(previous, 3, sink -> {
+            sink.accept(new StoredUrl("keep01", "https://example.com/keep", 4, 1_000, 1_000));
+            sink.accept(new StoredUrl("gone01", "https://example.com/gone", 1, 1_000, 1_000));
+        });
+
+        WalOverlay overlay = new WalOverlay();
+        overlay.onAccess("keep01", 3, 5_000);
+        overlay.onDelete("gone01");
+        overlay.onCreate("new001", "https://example.com/new", 0, 6_000, 6_000);
+        overlay.onAccess("new001", 2, 7_000);
+        // A click flushed after its code was deleted must not resurrect it
+        overlay.onAccess("gone01", 1, 8_000);
+
+        Path next = directory.resolve("next.bin");
+        long written = SnapshotFile.write(next, 9,
+                sink -> overlay.merge(source -> SnapshotFile.read(previous, source), sink));
+
+        Map<String, StoredUrl> urls = new LinkedHashMap<>();
+        SnapshotFile.read(next, url -> urls.put(url.shortenedUrl(), url));
+        assertEquals(2, written);
+        assertEquals(List.of("keep01", "new001"), List.copyOf(urls.keySet()));
+        assertEquals(new StoredUrl("keep01", "https://example.com/keep", 7, 1_000, 5_000), urls.get("keep01"));
+        assertEquals(2, urls.get("new001").accessCount());
+        assertEquals(7_000, urls.get("new001").lastAccessedMillis());
+    }
+}
@@ -0,0 +1,87 @@
+package au.id.ohare.ushort.web;
+
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
+import au.id.ohare.ushort.service.UrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RedirectFastPathFilterTest {
+
+    private UrlService urlService;
+    private AccessLog accessLog;
+    private RedirectFastPathFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        urlService = mock(UrlService.class);
+        accessLog = mock(AccessLog.class);
+        filter = new RedirectFastPathFilter(urlService, accessLog, new UrlMetrics(new SimpleMeterRegistry()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/abc123", "/api/abc123"})
+    @DisplayName("Should answer a resolvable code with a 302 without continuing down the chain")
+    void shouldRedirectResolvedCode(String path) throws Exception {
+        when(urlService.resolveRedirect("abc123")).thenReturn("https://www.example.com/page?q=1");
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", path), response, chain);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://www.example.com/page?q=1", response.getHeader("Location"));
+        assertNull(chain.getRequest(), "Resolved redirects should not reach the controllers");
+        verify(accessLog).record(eq(AccessLog.Outcome.REDIRECT), eq(AccessLog.Route.FAST), eq("abc123"), any());
+    }
+
+    @Test
+    @DisplayName("Should fall through for codes it cannot answer and for non-ASCII targets")
+    void shouldFallThroughWhenUnresolved() throws Exception {
+        when(urlService.resolveRedirect("miss12")).thenReturn(null);
+        when(urlService.resolveRedirect("intl12")).thenReturn("https://example.com/ünïcode");
+
+        for (String path : new String[] {"/miss12", "/intl12"}) {
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest(), path + " should continue to the controllers");
+        }
+        verifyNoInteractions(accessLog);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/", "/admin", "/admin/analytics", "/actuator", "/api/shorten", "/h2-console/x", "/abc-12", "/abc12"})
+    @DisplayName("Should leave application paths and malformed codes alone without a lookup")
+    void shouldIgnoreNonShortcodePaths(String path) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", path), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        verify(urlService, never()).resolveRedirect(anyString());
+    }
+
+    @Test
+    @DisplayName("Should only handle GET and HEAD")
+    void shouldIgnoreOtherMethods() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/abc123"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        verify(urlService, never()).resolveRedirect(anyString());
+    }
+}
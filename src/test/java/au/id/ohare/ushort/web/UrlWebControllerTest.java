@@ -1,6 +1,8 @@
 package au.id.ohare.ushort.web;
 
 import au.id.ohare.ushort.entity.UrlEntity;
+import au.id.ohare.ushort.logging.AccessLog;
+import au.id.ohare.ushort.metrics.UrlMetrics;
 import au.id.ohare.ushort.service.UrlService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +34,12 @@ class UrlWebControllerTest {
     @MockitoBean
     private UrlService urlService;
 
+    @MockitoBean
+    private AccessLog accessLog;
+
+    @MockitoBean
+    private UrlMetrics urlMetrics;
+
     @Test
     void homePage_ShouldDisplayUrlCreationForm() throws Exception {
         mockMvc.perform(get("/"))